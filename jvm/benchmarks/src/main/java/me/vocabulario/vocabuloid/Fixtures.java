@@ -0,0 +1,141 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import android.content.Context;
+
+/**
+ * Recorded API responses (resources under /fixtures, named after the API paths) and the ways the app turns them
+ * into model objects. Lists 1 (2000 vocabularies) and 2 (300 verbs) belong to user 1.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class Fixtures {
+
+	/** Id of the vocabulary list */
+	public static final int VOCABULARY_LIST = 1;
+	/** Id of the verb list */
+	public static final int VERB_LIST = 2;
+	/** Id of the user owning the lists */
+	public static final int USER = 1;
+
+	private Fixtures() {}
+
+	/**
+     * Returns the recorded response for an API path
+     *
+     * @param path API path (e.g. /lists/1.json)
+     */
+	public static byte[] read(String path) {
+		InputStream in = Fixtures.class.getResourceAsStream("/fixtures" + path);
+		if (in == null) { throw new IllegalArgumentException("No fixture for " + path); }
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) { out.write(buffer, 0, n); }
+			in.close();
+			return out.toByteArray();
+		}
+		catch (IOException e) { throw new IllegalStateException(e); }
+	}
+
+	/**
+     * Streams a list payload into a table (as {@link VocabularyList VocabularyList} does)
+     *
+     * @param ctx Context
+     * @param payload List payload
+     */
+	public static VocabularyTable stream(Context ctx, byte[] payload) throws IOException {
+		JsonPullReader reader = new JsonPullReader(new InputStreamReader(new ByteArrayInputStream(payload), "UTF-8"));
+		VocabularyTable table = new VocabularyTable(ctx, 16);
+		int languageFromId = 0;
+		String languageFromName = null;
+		reader.beginObject();
+		reader.nextName();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String field = reader.nextName();
+			if (field.equals("language_from")) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String key = reader.nextName();
+					if (key.equals("id")) { languageFromId = reader.nextInt(); }
+					else if (key.equals("word")) { languageFromName = reader.nextString(); }
+					else { reader.skipValue(); }
+				}
+				reader.endObject();
+			}
+			else if (field.equals("vocabularies")) {
+				reader.beginArray();
+				while (reader.hasNext()) { table.read(reader); }
+				reader.endArray();
+			}
+			else { reader.skipValue(); }
+		}
+		reader.endObject();
+		reader.endObject();
+		reader.close();
+		table.setLanguage(languageFromId, languageFromName);
+		table.trim();
+		return table;
+	}
+
+	/**
+     * Reads a list payload into a String, parses it into a JSONObject and fills a table from it (the path before
+     * streaming, where every vocabulary set its translations or conjugations from a JSONArray)
+     *
+     * @param ctx Context
+     * @param payload List payload
+     */
+	public static VocabularyTable parse(Context ctx, byte[] payload) throws Exception {
+		JSONObject json = new JSONObject(new String(payload, "UTF-8"));
+		JSONObject list = json.getJSONObject(json.names().getString(0));
+		JSONObject language = list.getJSONObject("language_from");
+		JSONArray vocabularies = list.getJSONArray("vocabularies");
+		VocabularyTable table = new VocabularyTable(ctx, vocabularies.length());
+		for (int i=0; i<vocabularies.length(); i++) {
+			JSONObject vocabulary = vocabularies.getJSONObject(i);
+			table.addVocabulary(vocabulary.getInt("id"), vocabulary.getString("word"), language.getInt("id"), language.getString("word"));
+			if (vocabulary.has("translation")) {
+				JSONArray translations = vocabulary.getJSONArray("translation");
+				for (int j=0; j<translations.length(); j++) {
+					JSONObject translation = translations.getJSONObject(j);
+					JSONObject to = translation.getJSONObject("language");
+					table.addTranslation(translation.getInt("id"), translation.getString("word"), to.getInt("id"), to.getString("word"));
+				}
+			}
+			if (vocabulary.has("conjugations")) {
+				JSONArray conjugations = vocabulary.getJSONArray("conjugations");
+				for (int j=0; j<conjugations.length(); j++) {
+					JSONObject conjugation = conjugations.getJSONObject(j);
+					table.addConjugation(conjugation.getString("person").split("/")[0] + " - " + conjugation.getString("verb"));
+				}
+			}
+		}
+		table.setLanguage(language.getInt("id"), language.getString("word"));
+		table.trim();
+		return table;
+	}
+
+	/**
+     * Returns a table of generated vocabularies without translations
+     *
+     * @param ctx Context
+     * @param size Number of vocabularies
+     */
+	public static VocabularyTable generate(Context ctx, int size) {
+		VocabularyTable table = new VocabularyTable(ctx, size);
+		for (int i=0; i<size; i++) { table.addVocabulary(100000 + i, "word " + i, 0, null); }
+		table.setLanguage(1, "English");
+		return table;
+	}
+}
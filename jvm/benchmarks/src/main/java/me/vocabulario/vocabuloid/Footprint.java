@@ -0,0 +1,118 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.ArrayList;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+
+import org.json.JSONObject;
+
+import android.content.Context;
+
+/**
+ * Reports what the recorded lists keep on the heap once read (JMH measures time and allocation, not what stays
+ * reachable): a {@link VocabularyTable VocabularyTable} versus the object-per-vocabulary layout it replaced, and the
+ * table streamed through {@link JsonPullReader JsonPullReader} versus the String and JSONObject held at the peak of
+ * parsing. Run after packaging the benchmarks (see their pom):
+ * java -Dvocabuloid.res=res -cp jvm/benchmarks/target/benchmarks.jar me.vocabulario.vocabuloid.Footprint
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class Footprint {
+
+	private Footprint() {}
+
+	/**
+     * Measures both recorded lists
+     */
+	public static void main(String[] args) throws Exception {
+		StubContext context = new StubContext();
+		int[] lists = { Fixtures.VOCABULARY_LIST, Fixtures.VERB_LIST };
+		for (int listId : lists) { objects(context, Fixtures.parse(context, Fixtures.read("/lists/" + listId + ".json"))); }
+		System.out.println(String.format("%6s %8s %12s %12s %12s", "list", "size", "table", "objects", "JSONObject"));
+		for (int listId : lists) {
+			byte[] payload = Fixtures.read("/lists/" + listId + ".json");
+			long base = used();
+			VocabularyTable table = Fixtures.stream(context, payload);
+			long streamed = used() - base;
+			base = used();
+			ArrayList<OldVocabulary> objects = objects(context, table);
+			long layout = used() - base;
+			objects = null;
+			base = used();
+			JSONObject json = new JSONObject(new String(payload, "UTF-8"));
+			long parsed = used() - base;
+			json = null;
+			System.out.println(String.format("%6d %8d %9d KB %9d KB %9d KB", listId, table.size(), streamed / 1024, layout / 1024, parsed / 1024));
+		}
+	}
+
+	/**
+     * Helper method: Returns the bytes in use after collecting garbage
+     */
+	private static long used() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i=0; i<4; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+	/**
+     * Helper method: Copies a table into one object per vocabulary and translation, each with its own strings (the
+     * layout before VocabularyTable)
+     */
+	private static ArrayList<OldVocabulary> objects(Context ctx, VocabularyTable table) {
+		ArrayList<OldVocabulary> vocabularies = new ArrayList<OldVocabulary>();
+		for (int i=0; i<table.size(); i++) {
+			OldVocabulary vocabulary = new OldVocabulary(ctx);
+			vocabulary.type = "Vocabulary";
+			vocabulary.id = table.getId(i);
+			vocabulary.word = copy(table.getWord(i));
+			vocabulary.languageId = table.getLanguageId(i);
+			vocabulary.languageName = copy(table.getLanguageName(i));
+			vocabulary.translations = new OldVocabulary[table.getTranslationEnd(i) - table.getTranslationStart(i)];
+			for (int j=0; j<vocabulary.translations.length; j++) {
+				int translation = table.getTranslationStart(i) + j;
+				OldVocabulary to = new OldVocabulary(ctx);
+				to.type = "Vocabulary";
+				to.id = table.getTranslationId(translation);
+				to.word = copy(table.getTranslationWord(translation));
+				to.languageId = table.getTranslationLanguageId(translation);
+				to.languageName = copy(table.getTranslationLanguageName(translation));
+				vocabulary.translations[j] = to;
+			}
+			vocabulary.conjugation = new String[table.getConjugationEnd(i) - table.getConjugationStart(i)];
+			for (int k=0; k<vocabulary.conjugation.length; k++) { vocabulary.conjugation[k] = copy(table.getConjugation(table.getConjugationStart(i) + k)); }
+			vocabularies.add(vocabulary);
+		}
+		return vocabularies;
+	}
+
+	/**
+     * Helper method: Returns a copy of a string that doesn't share its characters
+     */
+	private static String copy(String string) {
+		return new String(string.toCharArray());
+	}
+
+	/**
+	 * Fields of a Vocabulary before VocabularyTable (one object per vocabulary and translation)
+	 */
+	private static class OldVocabulary {
+		Context context;
+		int id;
+		String word;
+		String type;
+		int languageId;
+		String languageName;
+		OldVocabulary[] translations;
+		String[] conjugation;
+
+		OldVocabulary(Context context) {
+			this.context = context;
+		}
+	}
+}
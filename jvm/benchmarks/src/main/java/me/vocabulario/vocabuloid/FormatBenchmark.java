@@ -0,0 +1,53 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.concurrent.TimeUnit;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building the text shown on the back of the flash cards (translations or conjugations, one per line) for every
+ * vocabulary of a recorded list
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+
+	/** Id of list to format (1: vocabularies, 2: verbs) */
+	@Param({ "1", "2" })
+	public int listId;
+
+	private VocabularyTable mTable;
+
+	@Setup
+	public void setUp() throws Exception {
+		mTable = Fixtures.stream(new StubContext(), Fixtures.read("/lists/" + listId + ".json"));
+	}
+
+	@Benchmark
+	public void formatAll(Blackhole blackhole) {
+		boolean verbs = listId == Fixtures.VERB_LIST;
+		for (int i=0; i<mTable.size(); i++) {
+			blackhole.consume(new Vocabulary(mTable, i).getResultAsFormattedString(0, verbs));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.concurrent.TimeUnit;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turning recorded responses into model objects: a list streamed through {@link JsonPullReader JsonPullReader}
+ * versus parsed into a JSONObject first, the lists of a user and the tenses of a language. Run with -prof gc for the
+ * bytes allocated per list (what each way keeps at its peak is reported by {@link Footprint Footprint}).
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+	private StubContext mContext;
+	private byte[] mLists;
+	private byte[] mTenses;
+
+	@Setup
+	public void setUp() {
+		mContext = new StubContext();
+		mLists = Fixtures.read("/users/" + Fixtures.USER + "/lists.json");
+		mTenses = Fixtures.read("/tenses.json");
+	}
+
+	@Benchmark
+	public VocabularyTable streamList(ListPayload list) throws Exception {
+		return Fixtures.stream(mContext, list.payload);
+	}
+
+	@Benchmark
+	public VocabularyTable parseList(ListPayload list) throws Exception {
+		return Fixtures.parse(mContext, list.payload);
+	}
+
+	/**
+     * Reads the lists of a user the way {@link User User} does
+     */
+	@Benchmark
+	public ArrayList<VocabularyList> parseLists() throws Exception {
+		JSONArray result = new JSONArray(new String(mLists, "UTF-8"));
+		ArrayList<VocabularyList> lists = new ArrayList<VocabularyList>();
+		for (int i=0;i<result.length();i++) {
+			JSONObject list = result.getJSONObject(i);
+			String root = list.names().getString(0);
+			VocabularyList vocabularylist = new VocabularyList(mContext);
+			vocabularylist.setId(list.getJSONObject(root).getInt("id"));
+			vocabularylist.setName(list.getJSONObject(root).getString("name"));
+			vocabularylist.setSize(list.getJSONObject(root).getInt("size"));
+			vocabularylist.setLanguageFromId(list.getJSONObject(root).getJSONObject("language_from").getInt("id"));
+			vocabularylist.setLanguageFromName(list.getJSONObject(root).getJSONObject("language_from").getString("word"));
+			vocabularylist.setType(root);
+			lists.add(vocabularylist);
+		}
+		return lists;
+	}
+
+	/**
+     * Reads the tenses of a language the way {@link TenseCatalogue TenseCatalogue} does
+     */
+	@Benchmark
+	public Hashtable<Integer,String> parseTenses() throws Exception {
+		JSONArray result = new JSONArray(new String(mTenses, "UTF-8"));
+		Hashtable<Integer,String> tenses = new Hashtable<Integer,String>();
+		for (int i=0;i<result.length();i++) {
+			JSONObject remotetense = result.getJSONObject(i).getJSONObject("conjugation_time");
+			tenses.put(remotetense.getInt("id"), remotetense.getString("name"));
+		}
+		return tenses;
+	}
+
+	/**
+	 * Recorded list (only the list benchmarks depend on it)
+	 */
+	@State(Scope.Benchmark)
+	public static class ListPayload {
+		/** Id of list to read (1: vocabularies, 2: verbs) */
+		@Param({ "1", "2" })
+		public int listId;
+
+		byte[] payload;
+
+		@Setup
+		public void setUp() {
+			payload = Fixtures.read("/lists/" + listId + ".json");
+		}
+	}
+}
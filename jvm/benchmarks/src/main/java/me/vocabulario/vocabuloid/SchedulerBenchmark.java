@@ -0,0 +1,75 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.concurrent.TimeUnit;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating a {@link Scheduler Scheduler} (including loading its state from the store), ordering all cards,
+ * finding the next card and reviewing a card (including storing its new state), for lists of 10k and 100k cards
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchedulerBenchmark {
+
+	/** Number of cards */
+	@Param({ "10000", "100000" })
+	public int size;
+
+	private StubContext mContext;
+	private VocabularyTable mTable;
+	private Scheduler mScheduler;
+	/** Row reviewed next */
+	private int mRow;
+
+	@Setup
+	public void setUp() {
+		mContext = new StubContext();
+		mTable = Fixtures.generate(mContext, size);
+		mScheduler = new Scheduler(mContext, mTable);
+		for (int i=0; i<size; i+=3) { mScheduler.restore(i, 1, 1, Scheduler.DEFAULT_EASE, System.currentTimeMillis() + i * 1000L); }
+		mScheduler.load(Fixtures.VOCABULARY_LIST);
+	}
+
+	@Benchmark
+	public Scheduler create() {
+		Scheduler scheduler = new Scheduler(mContext, mTable);
+		scheduler.load(Fixtures.VOCABULARY_LIST);
+		return scheduler;
+	}
+
+	@Benchmark
+	public int[] order() {
+		return mScheduler.getOrder();
+	}
+
+	@Benchmark
+	public boolean next() {
+		return mScheduler.isDue(mScheduler.peek());
+	}
+
+	@Benchmark
+	public void review() {
+		mScheduler.review(mRow, mRow % 3 == 0 ? Scheduler.GRADE_AGAIN : Scheduler.GRADE_GOOD);
+		mRow = (mRow + 97) % size;
+	}
+}
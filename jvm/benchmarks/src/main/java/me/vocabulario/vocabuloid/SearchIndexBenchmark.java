@@ -0,0 +1,64 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.concurrent.TimeUnit;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Extracting the search terms of a recorded list (as done when storing it) and searching the stored list
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+	private VocabularyTable mTable;
+	private DeckStore mStore;
+
+	@Setup
+	public void setUp() throws Exception {
+		StubContext context = new StubContext();
+		mTable = Fixtures.stream(context, Fixtures.read("/lists/" + Fixtures.VOCABULARY_LIST + ".json"));
+		VocabularyList list = new VocabularyList(context);
+		list.setId(Fixtures.VOCABULARY_LIST);
+		list.setName("Animals");
+		list.setSize(mTable.size());
+		list.setType("vocabulary_list");
+		list.setTable(mTable);
+		mStore = DeckStore.getInstance(context);
+		mStore.putVocabularies(list);
+	}
+
+	@Benchmark
+	public void terms(Blackhole blackhole) {
+		for (int i=0; i<mTable.size(); i++) {
+			blackhole.consume(SearchIndex.getTerms(mTable.getWord(i)));
+			for (int j=mTable.getTranslationStart(i); j<mTable.getTranslationEnd(i); j++) {
+				blackhole.consume(SearchIndex.getTerms(mTable.getTranslationWord(j)));
+			}
+		}
+	}
+
+	@Benchmark
+	public SearchIndex.Result[] search() {
+		return mStore.search("palabra 1000");
+	}
+}
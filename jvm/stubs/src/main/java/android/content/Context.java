@@ -0,0 +1,41 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * Stand-in for android.content.Context, limited to what the model classes use (see
+ * {@link me.vocabulario.vocabuloid.stub.StubContext StubContext} for an implementation)
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public abstract class Context {
+
+	/** File creation mode: only accessible by the app */
+	public static final int MODE_PRIVATE = 0;
+	/** Name of the connectivity service */
+	public static final String CONNECTIVITY_SERVICE = "connectivity";
+
+	/** Returns the application context */
+	public abstract Context getApplicationContext();
+
+	/** Returns a string resource */
+	public abstract String getString(int resId);
+
+	/** Returns a formatted string resource */
+	public String getString(int resId, Object... formatArgs) {
+		return String.format(getString(resId), formatArgs);
+	}
+
+	/** Returns a preferences store */
+	public abstract SharedPreferences getSharedPreferences(String name, int mode);
+
+	/** Returns a system service (only CONNECTIVITY_SERVICE) */
+	public abstract Object getSystemService(String name);
+
+	/** Returns the directory holding private files */
+	public abstract File getFilesDir();
+
+	/** Returns the path of a database */
+	public abstract File getDatabasePath(String name);
+}
@@ -0,0 +1,42 @@
+package android.database;
+
+/**
+ * Stand-in for android.database.Cursor
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public interface Cursor {
+
+	int getCount();
+
+	int getPosition();
+
+	boolean moveToFirst();
+
+	boolean moveToNext();
+
+	boolean moveToPosition(int position);
+
+	boolean isAfterLast();
+
+	int getColumnCount();
+
+	boolean isNull(int columnIndex);
+
+	int getInt(int columnIndex);
+
+	long getLong(int columnIndex);
+
+	float getFloat(int columnIndex);
+
+	double getDouble(int columnIndex);
+
+	String getString(int columnIndex);
+
+	byte[] getBlob(int columnIndex);
+
+	void close();
+
+	boolean isClosed();
+}
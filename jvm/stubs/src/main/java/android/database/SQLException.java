@@ -0,0 +1,20 @@
+package android.database;
+
+/**
+ * Stand-in for android.database.SQLException
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class SQLException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public SQLException(String error) {
+		super(error);
+	}
+
+	public SQLException(String error, Throwable cause) {
+		super(error, cause);
+	}
+}
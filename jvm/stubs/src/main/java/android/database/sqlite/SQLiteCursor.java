@@ -0,0 +1,103 @@
+package android.database.sqlite;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+import android.database.Cursor;
+
+/**
+ * Cursor over the (fully read) rows of a JDBC result set
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+class SQLiteCursor implements Cursor {
+
+	/** Rows */
+	private final ArrayList<Object[]> rows = new ArrayList<Object[]>();
+	/** Number of columns */
+	private final int columns;
+	/** Current position (-1 before first row) */
+	private int position = -1;
+	/** Whether cursor has been closed */
+	private boolean closed;
+
+	/**
+     * Reads all rows of a result set
+     *
+     * @param result Result set (not closed)
+     * @throws SQLException if reading fails
+     */
+	SQLiteCursor(ResultSet result) throws SQLException {
+		ResultSetMetaData meta = result.getMetaData();
+		columns = meta.getColumnCount();
+		while (result.next()) {
+			Object[] row = new Object[columns];
+			for (int i=0; i<columns; i++) { row[i] = result.getObject(i + 1); }
+			rows.add(row);
+		}
+	}
+
+	public int getCount() { return rows.size(); }
+
+	public int getPosition() { return position; }
+
+	public boolean moveToFirst() { return moveToPosition(0); }
+
+	public boolean moveToNext() { return moveToPosition(position + 1); }
+
+	public boolean moveToPosition(int position) {
+		this.position = Math.max(-1, Math.min(position, rows.size()));
+		return this.position >= 0 && this.position < rows.size();
+	}
+
+	public boolean isAfterLast() { return position >= rows.size(); }
+
+	public int getColumnCount() { return columns; }
+
+	public boolean isNull(int columnIndex) { return get(columnIndex) == null; }
+
+	public int getInt(int columnIndex) { return (int) getLong(columnIndex); }
+
+	public long getLong(int columnIndex) {
+		Object value = get(columnIndex);
+		if (value == null) { return 0; }
+		if (value instanceof Number) { return ((Number) value).longValue(); }
+		try { return Long.parseLong(value.toString()); }
+		catch (NumberFormatException e) { return (long) Double.parseDouble(value.toString()); }
+	}
+
+	public float getFloat(int columnIndex) { return (float) getDouble(columnIndex); }
+
+	public double getDouble(int columnIndex) {
+		Object value = get(columnIndex);
+		if (value == null) { return 0; }
+		if (value instanceof Number) { return ((Number) value).doubleValue(); }
+		return Double.parseDouble(value.toString());
+	}
+
+	public String getString(int columnIndex) {
+		Object value = get(columnIndex);
+		return value == null ? null : value instanceof byte[] ? new String((byte[]) value) : value.toString();
+	}
+
+	public byte[] getBlob(int columnIndex) {
+		Object value = get(columnIndex);
+		return value == null ? null : value instanceof byte[] ? (byte[]) value : value.toString().getBytes();
+	}
+
+	public void close() { closed = true; }
+
+	public boolean isClosed() { return closed; }
+
+	/**
+     * Helper method: Returns a value of the current row
+     */
+	private Object get(int columnIndex) {
+		if (closed) { throw new IllegalStateException("Cursor is closed"); }
+		if (position < 0 || position >= rows.size()) { throw new IllegalStateException("No current row: " + position); }
+		return rows.get(position)[columnIndex];
+	}
+}
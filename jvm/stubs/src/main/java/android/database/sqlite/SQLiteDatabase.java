@@ -0,0 +1,196 @@
+package android.database.sqlite;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import android.database.Cursor;
+import android.database.SQLException;
+
+/**
+ * Stand-in for android.database.sqlite.SQLiteDatabase on top of the SQLite JDBC driver. Transactions nest as on
+ * Android: only the outermost one commits, and only if every nested one has been marked successful.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class SQLiteDatabase {
+
+	/** JDBC connection */
+	private final Connection connection;
+	/** Depth of nested transactions */
+	private int depth;
+	/** Whether the innermost transaction has been marked successful */
+	private boolean successful;
+	/** Whether any nested transaction ended without being marked successful */
+	private boolean failed;
+
+	/**
+     * Opens (or creates) a database
+     *
+     * @param file Database file
+     */
+	SQLiteDatabase(File file) {
+		try {
+			file.getParentFile().mkdirs();
+			connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+		}
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/**
+     * Executes a statement without results
+     *
+     * @param sql Statement
+     */
+	public void execSQL(String sql) {
+		execSQL(sql, new Object[0]);
+	}
+
+	/**
+     * Executes a statement without results
+     *
+     * @param sql Statement
+     * @param bindArgs Arguments (Number, String, byte[], Boolean or null)
+     */
+	public void execSQL(String sql, Object[] bindArgs) {
+		try {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			try {
+				for (int i=0; i<bindArgs.length; i++) { bind(statement, i + 1, bindArgs[i]); }
+				statement.execute();
+			}
+			finally { statement.close(); }
+		}
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage() + ": " + sql, e); }
+	}
+
+	/**
+     * Runs a query
+     *
+     * @param sql Query
+     * @param selectionArgs Arguments (bound as strings), or null
+     * @return Cursor over all rows
+     */
+	public Cursor rawQuery(String sql, String[] selectionArgs) {
+		try {
+			PreparedStatement statement = connection.prepareStatement(sql);
+			try {
+				if (selectionArgs != null) {
+					for (int i=0; i<selectionArgs.length; i++) { statement.setString(i + 1, selectionArgs[i]); }
+				}
+				ResultSet result = statement.executeQuery();
+				try { return new SQLiteCursor(result); }
+				finally { result.close(); }
+			}
+			finally { statement.close(); }
+		}
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage() + ": " + sql, e); }
+	}
+
+	/**
+     * Compiles a statement for repeated execution
+     *
+     * @param sql Statement
+     * @return Compiled statement
+     */
+	public SQLiteStatement compileStatement(String sql) {
+		try { return new SQLiteStatement(this, connection.prepareStatement(sql)); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage() + ": " + sql, e); }
+	}
+
+	/** Begins a (possibly nested) transaction */
+	public void beginTransaction() {
+		try {
+			if (depth == 0) {
+				connection.setAutoCommit(false);
+				failed = false;
+			}
+			depth++;
+			successful = false;
+		}
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/** Marks the innermost transaction successful */
+	public void setTransactionSuccessful() {
+		successful = true;
+	}
+
+	/** Ends the innermost transaction, committing or rolling back if it is the outermost one */
+	public void endTransaction() {
+		if (depth == 0) { throw new IllegalStateException("No transaction pending"); }
+		failed |= !successful;
+		successful = true;
+		if (--depth > 0) { return; }
+		try {
+			if (failed) { connection.rollback(); } else { connection.commit(); }
+			connection.setAutoCommit(true);
+		}
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/** Returns whether a transaction is pending */
+	public boolean inTransaction() {
+		return depth > 0;
+	}
+
+	/** Returns the schema version (PRAGMA user_version) */
+	public int getVersion() {
+		Cursor c = rawQuery("PRAGMA user_version", null);
+		try { return c.moveToFirst() ? c.getInt(0) : 0; }
+		finally { c.close(); }
+	}
+
+	/** Sets the schema version (PRAGMA user_version) */
+	public void setVersion(int version) {
+		execSQL("PRAGMA user_version = " + version);
+	}
+
+	/** Closes database */
+	public void close() {
+		try { connection.close(); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/** Returns whether database is open */
+	public boolean isOpen() {
+		try { return !connection.isClosed(); }
+		catch (java.sql.SQLException e) { return false; }
+	}
+
+	/**
+     * Returns the rowid of the last insert
+     */
+	long lastInsertRowId() {
+		try {
+			Statement statement = connection.createStatement();
+			try {
+				ResultSet result = statement.executeQuery("SELECT last_insert_rowid()");
+				return result.next() ? result.getLong(1) : -1;
+			}
+			finally { statement.close(); }
+		}
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/**
+     * Binds an argument the way Android does (booleans as 0 or 1)
+     */
+	static void bind(PreparedStatement statement, int index, Object value) throws java.sql.SQLException {
+		if (value == null) { statement.setNull(index, java.sql.Types.NULL); }
+		else if (value instanceof Boolean) { statement.setLong(index, (Boolean) value ? 1 : 0); }
+		else if (value instanceof Float || value instanceof Double) { statement.setDouble(index, ((Number) value).doubleValue()); }
+		else if (value instanceof Number) { statement.setLong(index, ((Number) value).longValue()); }
+		else if (value instanceof byte[]) { statement.setBytes(index, (byte[]) value); }
+		else { statement.setString(index, value.toString()); }
+	}
+
+	/**
+     * Stand-in for android.database.sqlite.SQLiteDatabase.CursorFactory (not used)
+     */
+	public interface CursorFactory {}
+}
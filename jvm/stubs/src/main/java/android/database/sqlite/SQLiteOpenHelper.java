@@ -0,0 +1,61 @@
+package android.database.sqlite;
+
+import android.content.Context;
+
+/**
+ * Stand-in for android.database.sqlite.SQLiteOpenHelper. Opens the database at Context.getDatabasePath and creates
+ * or upgrades the schema according to PRAGMA user_version.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public abstract class SQLiteOpenHelper {
+
+	/** Context providing the database path */
+	private final Context context;
+	/** Name of database file */
+	private final String name;
+	/** Schema version */
+	private final int version;
+	/** Open database (or null) */
+	private SQLiteDatabase database;
+
+	public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
+		this.context = context;
+		this.name = name;
+		this.version = version;
+	}
+
+	public abstract void onCreate(SQLiteDatabase db);
+
+	public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+	public void onOpen(SQLiteDatabase db) {}
+
+	public synchronized SQLiteDatabase getWritableDatabase() {
+		if (database != null && database.isOpen()) { return database; }
+		SQLiteDatabase db = new SQLiteDatabase(context.getDatabasePath(name));
+		int current = db.getVersion();
+		if (current != version) {
+			db.beginTransaction();
+			try {
+				if (current == 0) { onCreate(db); } else { onUpgrade(db, current, version); }
+				db.setVersion(version);
+				db.setTransactionSuccessful();
+			}
+			finally { db.endTransaction(); }
+		}
+		onOpen(db);
+		database = db;
+		return db;
+	}
+
+	public synchronized SQLiteDatabase getReadableDatabase() {
+		return getWritableDatabase();
+	}
+
+	public synchronized void close() {
+		if (database != null) { database.close(); }
+		database = null;
+	}
+}
@@ -0,0 +1,70 @@
+package android.database.sqlite;
+
+import java.sql.PreparedStatement;
+
+import android.database.SQLException;
+
+/**
+ * Stand-in for android.database.sqlite.SQLiteStatement (a compiled JDBC statement)
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class SQLiteStatement {
+
+	/** Database the statement belongs to */
+	private final SQLiteDatabase db;
+	/** JDBC statement */
+	private final PreparedStatement statement;
+
+	SQLiteStatement(SQLiteDatabase db, PreparedStatement statement) {
+		this.db = db;
+		this.statement = statement;
+	}
+
+	public void bindLong(int index, long value) { bind(index, value); }
+
+	public void bindDouble(int index, double value) { bind(index, value); }
+
+	public void bindString(int index, String value) { bind(index, value); }
+
+	public void bindBlob(int index, byte[] value) { bind(index, value); }
+
+	public void bindNull(int index) { bind(index, null); }
+
+	public void clearBindings() {
+		try { statement.clearParameters(); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/** Executes statement */
+	public void execute() {
+		try { statement.execute(); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/** Executes an insert and returns the rowid of the new row */
+	public long executeInsert() {
+		execute();
+		return db.lastInsertRowId();
+	}
+
+	/** Executes an update or delete and returns the number of rows affected */
+	public int executeUpdateDelete() {
+		try { return statement.executeUpdate(); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	public void close() {
+		try { statement.close(); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+
+	/**
+     * Helper method: Binds an argument
+     */
+	private void bind(int index, Object value) {
+		try { SQLiteDatabase.bind(statement, index, value); }
+		catch (java.sql.SQLException e) { throw new SQLException(e.getMessage(), e); }
+	}
+}
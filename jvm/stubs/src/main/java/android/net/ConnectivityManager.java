@@ -0,0 +1,34 @@
+package android.net;
+
+/**
+ * Stand-in for android.net.ConnectivityManager. Tests switch networks with {@link #setActiveNetwork(NetworkInfo,
+ * boolean) setActiveNetwork}.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class ConnectivityManager {
+
+	public static final int TYPE_MOBILE = 0;
+	public static final int TYPE_WIFI = 1;
+
+	/** Active network (or null when offline) */
+	private volatile NetworkInfo active = new NetworkInfo(TYPE_WIFI, true);
+	/** Whether the active network is metered */
+	private volatile boolean metered;
+
+	public NetworkInfo getActiveNetworkInfo() { return active; }
+
+	public boolean isActiveNetworkMetered() { return metered; }
+
+	/**
+     * Sets the active network (stand-in only)
+     *
+     * @param network Active network, or null for offline
+     * @param metered Whether the network is metered
+     */
+	public void setActiveNetwork(NetworkInfo network, boolean metered) {
+		this.active = network;
+		this.metered = metered;
+	}
+}
@@ -0,0 +1,32 @@
+package android.net;
+
+/**
+ * Stand-in for android.net.NetworkInfo
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class NetworkInfo {
+
+	/** Network type (ConnectivityManager.TYPE_*) */
+	private final int type;
+	/** Whether the network is connected */
+	private final boolean connected;
+
+	/**
+     * Initializes network
+     *
+     * @param type Network type (ConnectivityManager.TYPE_*)
+     * @param connected Whether the network is connected
+     */
+	public NetworkInfo(int type, boolean connected) {
+		this.type = type;
+		this.connected = connected;
+	}
+
+	public int getType() { return type; }
+
+	public boolean isConnected() { return connected; }
+
+	public boolean isConnectedOrConnecting() { return connected; }
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * Stand-in for android.os.Build (behaves like the target platform, API 17)
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class Build {
+
+	public static class VERSION {
+		public static final int SDK_INT = 17;
+	}
+}
@@ -0,0 +1,38 @@
+package android.os;
+
+/**
+ * Stand-in for android.os.Looper. There always is a main looper (as in an app); it belongs to whichever thread
+ * called {@link #prepareMainLooper() prepareMainLooper}, so tests can play the main thread.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class Looper {
+
+	/** The main looper */
+	private static final Looper sMainLooper = new Looper();
+	/** Looper of the current thread */
+	private static final ThreadLocal<Looper> sThreadLocal = new ThreadLocal<Looper>();
+
+	private Looper() {}
+
+	/** Makes the current thread the main thread */
+	public static void prepareMainLooper() {
+		sThreadLocal.set(sMainLooper);
+	}
+
+	/** Returns the main looper */
+	public static Looper getMainLooper() {
+		return sMainLooper;
+	}
+
+	/** Returns the looper of the current thread (null unless it is the main thread) */
+	public static Looper myLooper() {
+		return sThreadLocal.get();
+	}
+
+	/** Detaches the current thread from its looper (stand-in only) */
+	public static void release() {
+		sThreadLocal.remove();
+	}
+}
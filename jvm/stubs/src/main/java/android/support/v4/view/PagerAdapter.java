@@ -0,0 +1,45 @@
+package android.support.v4.view;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Stand-in for android.support.v4.view.PagerAdapter. Counts calls of {@link #notifyDataSetChanged()
+ * notifyDataSetChanged} so tests can check how often the pager would rebind.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public abstract class PagerAdapter {
+
+	public static final int POSITION_UNCHANGED = -1;
+	public static final int POSITION_NONE = -2;
+
+	/** Number of change notifications */
+	private int changes;
+
+	public abstract int getCount();
+
+	public abstract boolean isViewFromObject(View view, Object object);
+
+	public Object instantiateItem(ViewGroup container, int position) {
+		throw new UnsupportedOperationException("Required method instantiateItem was not overridden");
+	}
+
+	public void destroyItem(ViewGroup container, int position, Object object) {
+		throw new UnsupportedOperationException("Required method destroyItem was not overridden");
+	}
+
+	public int getItemPosition(Object object) {
+		return POSITION_UNCHANGED;
+	}
+
+	public void notifyDataSetChanged() {
+		changes++;
+	}
+
+	/** Returns number of change notifications (stand-in only) */
+	public int getChangeCount() {
+		return changes;
+	}
+}
@@ -0,0 +1,50 @@
+package android.view;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.vocabulario.vocabuloid.R;
+
+import android.content.Context;
+import android.widget.TextView;
+
+/**
+ * Stand-in for android.view.LayoutInflater. Knows the only layout inflated outside activities (R.layout.card)
+ * and counts inflations so tests can check how many views an adapter creates.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class LayoutInflater {
+
+	/** Number of views inflated (all inflaters) */
+	private static final AtomicInteger sInflated = new AtomicInteger();
+
+	/** Context views are created with */
+	private final Context context;
+
+	private LayoutInflater(Context context) {
+		this.context = context;
+	}
+
+	public static LayoutInflater from(Context context) {
+		return new LayoutInflater(context);
+	}
+
+	public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+		if (resource != R.layout.card) { throw new IllegalArgumentException("Unknown layout " + resource); }
+		ViewGroup card = new ViewGroup(context);
+		for (int id : new int[] { R.id.heading, R.id.page, R.id.text }) {
+			TextView text = new TextView(context);
+			text.setId(id);
+			card.addView(text);
+		}
+		sInflated.incrementAndGet();
+		if (root != null && attachToRoot) { root.addView(card); }
+		return card;
+	}
+
+	/** Returns number of views inflated so far (stand-in only) */
+	public static int getInflatedCount() {
+		return sInflated.get();
+	}
+}
@@ -0,0 +1,39 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Stand-in for android.view.View
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class View {
+
+	/** Context view was created with */
+	private final Context context;
+	/** Id of view */
+	private int id;
+	/** Parent (or null) */
+	ViewGroup parent;
+
+	public View(Context context) {
+		this.context = context;
+	}
+
+	public Context getContext() { return context; }
+
+	public int getId() { return id; }
+
+	public void setId(int id) { this.id = id; }
+
+	public ViewGroup getParent() { return parent; }
+
+	public final View findViewById(int id) {
+		return findViewTraversal(id);
+	}
+
+	View findViewTraversal(int id) {
+		return this.id == id ? this : null;
+	}
+}
@@ -0,0 +1,45 @@
+package android.view;
+
+import java.util.ArrayList;
+
+import android.content.Context;
+
+/**
+ * Stand-in for android.view.ViewGroup
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class ViewGroup extends View {
+
+	/** Children */
+	private final ArrayList<View> children = new ArrayList<View>();
+
+	public ViewGroup(Context context) {
+		super(context);
+	}
+
+	public void addView(View child) {
+		if (child.parent != null) { throw new IllegalStateException("The specified child already has a parent"); }
+		child.parent = this;
+		children.add(child);
+	}
+
+	public void removeView(View view) {
+		if (children.remove(view)) { view.parent = null; }
+	}
+
+	public int getChildCount() { return children.size(); }
+
+	public View getChildAt(int index) { return children.get(index); }
+
+	@Override
+	View findViewTraversal(int id) {
+		if (getId() == id) { return this; }
+		for (View child : children) {
+			View view = child.findViewTraversal(id);
+			if (view != null) { return view; }
+		}
+		return null;
+	}
+}
@@ -0,0 +1,24 @@
+package android.widget;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * Stand-in for android.widget.TextView
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class TextView extends View {
+
+	/** Text shown */
+	private CharSequence text = "";
+
+	public TextView(Context context) {
+		super(context);
+	}
+
+	public CharSequence getText() { return text; }
+
+	public void setText(CharSequence text) { this.text = text == null ? "" : text; }
+}
@@ -0,0 +1,55 @@
+package me.vocabulario.vocabuloid;
+
+/**
+ * Stand-in for the R class generated by the Android build: the card layout and its ids (bound by
+ * FlashcardAdapter) plus all strings. String values are read from res/values by
+ * {@link me.vocabulario.vocabuloid.stub.StubContext StubContext}.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class R {
+
+	public static final class id {
+		public static final int heading = 0x7f050000;
+		public static final int page = 0x7f050001;
+		public static final int text = 0x7f050002;
+	}
+
+	public static final class layout {
+		public static final int card = 0x7f030000;
+	}
+
+	public static final class string {
+		public static final int base_url = 0x7f040000;
+		public static final int request_token = 0x7f040001;
+		public static final int access_token = 0x7f040002;
+		public static final int authorize = 0x7f040003;
+		public static final int consumer_key = 0x7f040004;
+		public static final int consumer_secret = 0x7f040005;
+		public static final int app_name = 0x7f040006;
+		public static final int sign_in = 0x7f040007;
+		public static final int sign_out = 0x7f040008;
+		public static final int quit = 0x7f040009;
+		public static final int search = 0x7f04000a;
+		public static final int shuffle = 0x7f04000b;
+		public static final int unshuffle = 0x7f04000c;
+		public static final int search_hint = 0x7f04000d;
+		public static final int grade_again = 0x7f04000e;
+		public static final int grade_good = 0x7f04000f;
+		public static final int grade_easy = 0x7f040010;
+		public static final int message_signed_out = 0x7f040011;
+		public static final int message_signed_in = 0x7f040012;
+		public static final int message_sign_in_failed = 0x7f040013;
+		public static final int message_no_conjugations = 0x7f040014;
+		public static final int message_no_translations = 0x7f040015;
+		public static final int message_no_vocabularies = 0x7f040016;
+		public static final int message_no_results = 0x7f040017;
+		public static final int message_offline = 0x7f040018;
+		public static final int message_lists_refresh_failed = 0x7f040019;
+		public static final int message_tenses_title = 0x7f04001a;
+		public static final int message_tenses_infinitive = 0x7f04001b;
+		public static final int message_dialog_loading_lists = 0x7f04001c;
+		public static final int message_dialog_loading_vocabularies = 0x7f04001d;
+	}
+}
@@ -0,0 +1,110 @@
+package me.vocabulario.vocabuloid.stub;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import me.vocabulario.vocabuloid.R;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+
+/**
+ * Context for running the model classes on a plain JVM: files and databases live in a temporary directory,
+ * preferences are kept in memory and strings are read from the app's res/values (system property
+ * "vocabuloid.res", defaulting to ../../res).
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class StubContext extends Context {
+
+	/** Directory holding files and databases */
+	private final File root;
+	/** Preferences by name */
+	private final Map<String,StubPreferences> preferences = new ConcurrentHashMap<String,StubPreferences>();
+	/** Connectivity service */
+	private final ConnectivityManager connectivity = new ConnectivityManager();
+	/** Strings by resource id */
+	private final Map<Integer,String> strings = new HashMap<Integer,String>();
+
+	/**
+     * Initializes context with a new temporary directory
+     */
+	public StubContext() {
+		try {
+			root = File.createTempFile("vocabuloid", "");
+			root.delete();
+			root.mkdirs();
+			root.deleteOnExit();
+		}
+		catch (Exception e) { throw new IllegalStateException(e); }
+		File res = new File(System.getProperty("vocabuloid.res", "../../res"), "values");
+		Map<String,String> values = new HashMap<String,String>();
+		Pattern string = Pattern.compile("<string name=\"([a-z_]+)\">(.*?)</string>", Pattern.DOTALL);
+		File[] files = res.listFiles();
+		if (files == null) { throw new IllegalStateException("No resources in " + res.getAbsolutePath()); }
+		for (File file : files) {
+			Matcher m = string.matcher(read(file));
+			while (m.find()) { values.put(m.group(1), m.group(2).replace("\\'", "'").replace("\\n", "\n")); }
+		}
+		try {
+			for (Field field : R.string.class.getFields()) { strings.put(field.getInt(null), values.get(field.getName())); }
+		}
+		catch (IllegalAccessException e) { throw new IllegalStateException(e); }
+	}
+
+	@Override
+	public Context getApplicationContext() { return this; }
+
+	@Override
+	public String getString(int resId) {
+		String value = strings.get(resId);
+		if (value == null) { throw new IllegalArgumentException("Unknown string " + resId); }
+		return value;
+	}
+
+	@Override
+	public SharedPreferences getSharedPreferences(String name, int mode) {
+		synchronized (preferences) {
+			StubPreferences settings = preferences.get(name);
+			if (settings == null) {
+				settings = new StubPreferences();
+				preferences.put(name, settings);
+			}
+			return settings;
+		}
+	}
+
+	@Override
+	public Object getSystemService(String name) {
+		return CONNECTIVITY_SERVICE.equals(name) ? connectivity : null;
+	}
+
+	@Override
+	public File getFilesDir() {
+		File files = new File(root, "files");
+		files.mkdirs();
+		return files;
+	}
+
+	@Override
+	public File getDatabasePath(String name) {
+		return new File(new File(root, "databases"), name);
+	}
+
+	/**
+     * Helper method: Reads a (small) file
+     */
+	private static String read(File file) {
+		try {
+			return new String(java.nio.file.Files.readAllBytes(file.toPath()), "UTF-8");
+		}
+		catch (Exception e) { throw new IllegalStateException(e); }
+	}
+}
@@ -0,0 +1,67 @@
+package me.vocabulario.vocabuloid.stub;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import android.content.SharedPreferences;
+
+/**
+ * In-memory preferences. Edits are applied on commit/apply, like on Android.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class StubPreferences implements SharedPreferences {
+
+	/** Values by key */
+	private final Map<String,Object> values = new HashMap<String,Object>();
+
+	public synchronized Map<String,?> getAll() { return new HashMap<String,Object>(values); }
+
+	public synchronized String getString(String key, String defValue) { return values.containsKey(key) ? (String) values.get(key) : defValue; }
+
+	public synchronized int getInt(String key, int defValue) { return values.containsKey(key) ? (Integer) values.get(key) : defValue; }
+
+	public synchronized long getLong(String key, long defValue) { return values.containsKey(key) ? (Long) values.get(key) : defValue; }
+
+	public synchronized boolean getBoolean(String key, boolean defValue) { return values.containsKey(key) ? (Boolean) values.get(key) : defValue; }
+
+	public synchronized boolean contains(String key) { return values.containsKey(key); }
+
+	public Editor edit() { return new StubEditor(); }
+
+	/**
+     * Editor collecting changes until commit
+     */
+	private class StubEditor implements Editor {
+
+		/** Changed values (null for removed keys) */
+		private final Map<String,Object> changes = new HashMap<String,Object>();
+		/** Whether all values are removed first */
+		private boolean clear;
+
+		public Editor putString(String key, String value) { changes.put(key, value); return this; }
+
+		public Editor putInt(String key, int value) { changes.put(key, value); return this; }
+
+		public Editor putLong(String key, long value) { changes.put(key, value); return this; }
+
+		public Editor putBoolean(String key, boolean value) { changes.put(key, value); return this; }
+
+		public Editor remove(String key) { changes.put(key, null); return this; }
+
+		public Editor clear() { clear = true; return this; }
+
+		public boolean commit() {
+			synchronized (StubPreferences.this) {
+				if (clear) { values.clear(); }
+				for (Map.Entry<String,Object> change : changes.entrySet()) {
+					if (change.getValue() == null) { values.remove(change.getKey()); } else { values.put(change.getKey(), change.getValue()); }
+				}
+			}
+			return true;
+		}
+
+		public void apply() { commit(); }
+	}
+}
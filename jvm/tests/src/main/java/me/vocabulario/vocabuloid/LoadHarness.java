@@ -0,0 +1,151 @@
+package me.vocabulario.vocabuloid;
+
+import me.vocabulario.vocabuloid.stub.Heap;
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+/**
+ * Headless driver for the list loading path, run against a local {@link StubServer StubServer}. For every list
+ * size it signs in, fetches the user and the lists, streams the list (formatting cards batch by batch as Flashcard
+ * does), then orders the remaining cards with a {@link Scheduler Scheduler}, and reports the time to the first
+ * card, the total load time, the bytes allocated by the loading thread and the number of requests. Every size starts
+ * with an empty {@link DeckStore DeckStore} (cold start).
+ *
+ * Configured with system properties:
+ * <ul>
+ * <li>vocabuloid.sizes: comma-separated list sizes (default 200,2000,20000)</li>
+ * <li>vocabuloid.latency: delay (in ms) before every response (default 0)</li>
+ * <li>vocabuloid.verbs: "true" to load verb lists</li>
+ * </ul>
+ * Run from the repository root: mvn -f jvm/pom.xml -pl tests -am compile exec:java -Dvocabuloid.latency=100
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class LoadHarness {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private final StubContext mContext = new StubContext();
+	/** Stand-in server */
+	private final StubServer mServer;
+
+	/**
+     * Initializes harness and server
+     *
+     * @param sizes List sizes (one list each)
+     * @param latency Delay (in ms) before every response
+     * @param verbs Whether the lists are verb lists
+     */
+	public LoadHarness(int[] sizes, long latency, boolean verbs) throws Exception {
+		mServer = new StubServer();
+		for (int i=0; i<sizes.length; i++) { mServer.addList(i + 1, sizes[i] + " cards", sizes[i], verbs); }
+		mServer.setLatency("", latency);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+		mContext.getSharedPreferences(RestClient.PREFERENCES, 0).edit().putString("accessToken", "harness").putString("accessSecret", "harness-secret").commit();
+	}
+
+	/**
+     * Loads one list from a cold start, the way Vocabuloid and Flashcard do
+     *
+     * @param position Position of list in the user's lists
+     * @return Result of the run
+     */
+	public Run load(int position) {
+		DeckStore.getInstance(mContext).clear();
+		TenseCatalogue.reset();
+		mServer.resetRequests();
+		final Run run = new Run();
+		final long start = System.nanoTime();
+		long allocated = Heap.allocated();
+		User user = new User(mContext);
+		user.getRemoteData();
+		user.getRemoteLists();
+		final VocabularyList list = user.getList(position);
+		final FlashcardAdapter adapter = new FlashcardAdapter(mContext, list, list.getSize());
+		list.setOnBatchLoadedListener(new VocabularyList.OnBatchLoadedListener() {
+			public void onBatchLoaded(Vocabulary[] batch) {
+				int[] rows = new int[batch.length];
+				for (int i=0; i<batch.length; i++) { rows[i] = adapter.getCount() / 2 + i; }
+				add(adapter, list, rows, batch);
+				if (run.firstCard == 0) { run.firstCard = System.nanoTime() - start; }
+			}
+		});
+		list.getRemoteData();
+		list.setOnBatchLoadedListener(null);
+		if (list.isVerbList()) { list.getTenses(); }
+		Scheduler scheduler = new Scheduler(mContext, list.getTable());
+		scheduler.load(list.getId());
+		int published = adapter.getCount() / 2;
+		int[] order = scheduler.getOrder();
+		int[] rows = new int[order.length - published];
+		Vocabulary[] rest = new Vocabulary[rows.length];
+		for (int i=0, j=0; i<order.length; i++) {
+			if (order[i] < published) { continue; }
+			rows[j] = order[i];
+			rest[j++] = list.getVocabulary(order[i]);
+		}
+		add(adapter, list, rows, rest);
+		if (run.firstCard == 0) { run.firstCard = System.nanoTime() - start; }
+		run.load = System.nanoTime() - start;
+		run.allocated = Heap.allocated() - allocated;
+		run.size = adapter.getCount() / 2;
+		run.requests = mServer.getRequests().size();
+		return run;
+	}
+
+	/** Stops the server */
+	public void stop() {
+		mServer.stop();
+	}
+
+	/**
+     * Helper method: Formats vocabularies and adds them to the adapter (as Flashcard's LoadVocabularies does)
+     */
+	private static void add(FlashcardAdapter adapter, VocabularyList list, int[] rows, Vocabulary[] vocabularies) {
+		String[] words = new String[rows.length];
+		String[] results = new String[rows.length];
+		for (int i=0; i<rows.length; i++) {
+			words[i] = vocabularies[i].getWord();
+			results[i] = vocabularies[i].getResultAsFormattedString(list.getSelector(), list.isVerbList());
+		}
+		adapter.add(rows, words, results);
+	}
+
+	/**
+     * Runs the harness with the configuration given as system properties
+     */
+	public static void main(String[] args) throws Exception {
+		String[] values = System.getProperty("vocabuloid.sizes", "200,2000,20000").split(",");
+		int[] sizes = new int[values.length];
+		for (int i=0; i<values.length; i++) { sizes[i] = Integer.parseInt(values[i].trim()); }
+		long latency = Long.parseLong(System.getProperty("vocabuloid.latency", "0"));
+		LoadHarness harness = new LoadHarness(sizes, latency, Boolean.getBoolean("vocabuloid.verbs"));
+		try {
+			harness.load(0);
+			System.out.println("Latency " + latency + " ms");
+			System.out.println(String.format("%8s %12s %10s %14s %9s", "cards", "first card", "load", "allocated", "requests"));
+			for (int i=0; i<sizes.length; i++) {
+				Run run = harness.load(i);
+				System.out.println(String.format("%8d %9.1f ms %7.1f ms %11.1f MB %9d", run.size, run.firstCard / 1e6, run.load / 1e6,
+						run.allocated / 1048576.0, run.requests));
+			}
+		}
+		finally { harness.stop(); }
+	}
+
+	/**
+	 * Result of loading one list
+	 */
+	public static class Run {
+		/** Number of cards loaded */
+		public int size;
+		/** Time (in ns) until the first cards were ready */
+		public long firstCard;
+		/** Time (in ns) until all cards were ready */
+		public long load;
+		/** Bytes allocated by the loading thread */
+		public long allocated;
+		/** Number of requests sent */
+		public int requests;
+	}
+}
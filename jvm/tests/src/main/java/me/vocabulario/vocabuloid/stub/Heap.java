@@ -0,0 +1,37 @@
+package me.vocabulario.vocabuloid.stub;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Heap measurements for tests and the load harness (HotSpot only): bytes allocated by the current thread and heap
+ * in use after a full collection.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class Heap {
+
+	private Heap() {}
+
+	/**
+     * Returns the number of bytes allocated by the current thread so far (compare two calls to measure a piece of
+     * code)
+     */
+	public static long allocated() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+     * Returns the number of bytes in use after collecting garbage (compare two calls to measure what a piece of
+     * code retains)
+     */
+	public static long used() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i=0; i<4; i++) {
+			System.gc();
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+}
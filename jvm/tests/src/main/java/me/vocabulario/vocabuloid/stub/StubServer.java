@@ -0,0 +1,701 @@
+package me.vocabulario.vocabuloid.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the vocabulario.me API, for tests and the {@link me.vocabulario.vocabuloid.LoadHarness
+ * LoadHarness}. Serves /users/current.json, /users/:id/lists.json, /lists/:id.json, /tenses.json and accepts
+ * POST /reviews.json.
+ *
+ * Behaves like the real service where the app depends on it:
+ * <ul>
+ * <li>Full responses carry an ETag and Last-Modified; matching conditional requests are answered with 304.</li>
+ * <li>Lists and list collections support delta sync: every change bumps a revision, sent as X-Change-Cursor.
+ * "?since=revision" returns the changes since (marked "X-Delta: true"), or the full resource if that revision
+ * has been {@link #compact() compacted} away.</li>
+ * </ul>
+ *
+ * Faults can be injected per path prefix: latency before the response, errors, and bodies trickling in (see
+ * {@link #setLatency(String, long) setLatency}, {@link #failNext(String, int, int) failNext} and
+ * {@link #setThrottle(int, long) setThrottle}). All requests are recorded with the OAuth token they were
+ * signed with.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class StubServer {
+
+	/** Language vocabularies are translated from */
+	public static final int LANGUAGE_FROM_ID = 1;
+	public static final String LANGUAGE_FROM_NAME = "English";
+	/** Language vocabularies are translated to */
+	public static final int LANGUAGE_TO_ID = 2;
+	public static final String LANGUAGE_TO_NAME = "Espa\u00f1ol";
+	/** Persons of generated conjugations */
+	private static final String[] PERSONS = { "yo", "t\u00fa", "\u00e9l", "nosotros", "vosotros", "ellos" };
+	/** Pattern extracting the token from an OAuth Authorization header */
+	private static final Pattern TOKEN = Pattern.compile("oauth_token=\"([^\"]*)\"");
+
+	/** HTTP server */
+	private final HttpServer server;
+	/** Threads handling requests */
+	private final ExecutorService executor;
+	/** Id of the signed-in user */
+	private volatile int userId = 1;
+	/** Name of the signed-in user */
+	private volatile String userName = "stub";
+	/** Lists by id (in order of creation) */
+	private final Map<Integer,StubList> lists = new LinkedHashMap<Integer,StubList>();
+	/** Revisions at which lists were deleted, by id */
+	private final Map<Integer,Integer> deletedLists = new LinkedHashMap<Integer,Integer>();
+	/** Current revision (bumped by every change) */
+	private int revision = 1;
+	/** Oldest revision changes are known since (older cursors get a full response) */
+	private int horizon = 1;
+	/** Revision of the list collection */
+	private int listsRevision = 1;
+	/** Whether delta sync is supported */
+	private volatile boolean deltaSync = true;
+	/** Tense names of verb lists */
+	private final Map<Integer,String> tenses = new LinkedHashMap<Integer,String>();
+	/** Latency (in ms) by path prefix */
+	private final Map<String,Long> latencies = new ConcurrentHashMap<String,Long>();
+	/** Pending injected errors by path prefix (status and remaining count) */
+	private final Map<String,int[]> failures = new ConcurrentHashMap<String,int[]>();
+	/** Size (in bytes) of chunks bodies are written in while throttled (0 for no throttle) */
+	private volatile int throttleChunk;
+	/** Delay (in ms) between chunks while throttled */
+	private volatile long throttleDelay;
+	/** Requests received */
+	private final List<Request> requests = Collections.synchronizedList(new ArrayList<Request>());
+	/** Number of requests currently being handled */
+	private final AtomicInteger inFlight = new AtomicInteger();
+	/** Reviews received (one JSON object per review) */
+	private final List<String> reviews = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+     * Starts server on a free local port
+     *
+     * @throws IOException if the server can't be started
+     */
+	public StubServer() throws IOException {
+		this(0);
+	}
+
+	/**
+     * Starts server on a local port
+     *
+     * @param port Port (0 for any free one)
+     * @throws IOException if the server can't be started
+     */
+	public StubServer(int port) throws IOException {
+		tenses.put(1, "Presente");
+		tenses.put(2, "Pret\u00e9rito");
+		tenses.put(3, "Futuro");
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 64);
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				StubServer.this.handle(exchange);
+			}
+		});
+		server.start();
+	}
+
+	/** Returns the base url to pass to RestClient.setBaseUrl */
+	public String getBaseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	/** Stops server, dropping connections */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+     * Sets the user /users/current.json returns
+     *
+     * @param id Id of user
+     * @param name Name of user
+     */
+	public void setUser(int id, String name) {
+		this.userId = id;
+		this.userName = name;
+	}
+
+	/**
+     * Adds a vocabulary list of the current user with generated vocabularies (ids listId * 100000 + n)
+     *
+     * @param id Id of list
+     * @param name Name of list
+     * @param size Number of vocabularies
+     * @param verbs Whether it is a verb list (conjugations instead of translations)
+     */
+	public synchronized void addList(int id, String name, int size, boolean verbs) {
+		StubList list = new StubList(id, name, verbs);
+		revision++;
+		for (int i=0; i<size; i++) { list.put(id * 100000 + i, revision); }
+		list.revision = revision;
+		lists.put(id, list);
+		deletedLists.remove(id);
+		listsRevision = revision;
+	}
+
+	/**
+     * Adds or changes a vocabulary of a list
+     *
+     * @param listId Id of list
+     * @param vocabularyId Id of vocabulary (changed vocabularies get a new word)
+     */
+	public synchronized void putVocabulary(int listId, int vocabularyId) {
+		StubList list = lists.get(listId);
+		list.put(vocabularyId, ++revision);
+		list.revision = revision;
+		list.listRevision = revision;
+		listsRevision = revision;
+	}
+
+	/**
+     * Deletes a vocabulary of a list
+     *
+     * @param listId Id of list
+     * @param vocabularyId Id of vocabulary
+     */
+	public synchronized void deleteVocabulary(int listId, int vocabularyId) {
+		StubList list = lists.get(listId);
+		list.vocabularies.remove(vocabularyId);
+		list.deleted.put(vocabularyId, ++revision);
+		list.revision = revision;
+		list.listRevision = revision;
+		listsRevision = revision;
+	}
+
+	/**
+     * Renames a list
+     *
+     * @param listId Id of list
+     * @param name New name
+     */
+	public synchronized void renameList(int listId, String name) {
+		StubList list = lists.get(listId);
+		list.name = name;
+		list.revision = ++revision;
+		list.listRevision = revision;
+		listsRevision = revision;
+	}
+
+	/**
+     * Deletes a list
+     *
+     * @param listId Id of list
+     */
+	public synchronized void deleteList(int listId) {
+		lists.remove(listId);
+		deletedLists.put(listId, ++revision);
+		listsRevision = revision;
+	}
+
+	/**
+     * Turns delta sync on or off. Without it, responses carry no change cursor and "since" is ignored (like the
+     * service before delta sync).
+     *
+     * @param enabled Whether delta sync is supported
+     */
+	public void setDeltaSync(boolean enabled) {
+		deltaSync = enabled;
+	}
+
+	/**
+     * Forgets the change history, so cursors handed out so far get a full response (forcing a full resync)
+     */
+	public synchronized void compact() {
+		horizon = revision;
+		for (StubList list : lists.values()) { list.deleted.clear(); }
+		deletedLists.clear();
+	}
+
+	/**
+     * Delays responses to paths starting with a prefix
+     *
+     * @param prefix Path prefix ("" for all)
+     * @param latency Delay (in ms) before the response is sent (0 to remove)
+     */
+	public void setLatency(String prefix, long latency) {
+		if (latency <= 0) { latencies.remove(prefix); } else { latencies.put(prefix, latency); }
+	}
+
+	/**
+     * Answers the next requests for paths starting with a prefix with an error
+     *
+     * @param prefix Path prefix ("" for all)
+     * @param status Status code (e.g. 503)
+     * @param count Number of requests to fail
+     */
+	public void failNext(String prefix, int status, int count) {
+		failures.put(prefix, new int[] { status, count });
+	}
+
+	/**
+     * Makes response bodies trickle in
+     *
+     * @param chunk Size (in bytes) of chunks (0 to send bodies at once)
+     * @param delay Delay (in ms) before every chunk
+     */
+	public void setThrottle(int chunk, long delay) {
+		throttleChunk = chunk;
+		throttleDelay = delay;
+	}
+
+	/** Returns all requests received so far */
+	public List<Request> getRequests() {
+		synchronized (requests) { return new ArrayList<Request>(requests); }
+	}
+
+	/**
+     * Returns the number of requests for a path (ignoring the query)
+     *
+     * @param path Path, e.g. "/lists/1.json"
+     */
+	public int getRequestCount(String path) {
+		int count = 0;
+		for (Request request : getRequests()) {
+			if (request.path.equals(path)) { count++; }
+		}
+		return count;
+	}
+
+	/** Returns the number of requests currently being handled */
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	/** Returns reviews received so far (one JSON object each) */
+	public List<String> getReviews() {
+		synchronized (reviews) { return new ArrayList<String>(reviews); }
+	}
+
+	/** Forgets requests and reviews received so far */
+	public void resetRequests() {
+		requests.clear();
+		reviews.clear();
+	}
+
+	/**
+     * Returns the (full) JSON of a list, as served for /lists/:id.json
+     *
+     * @param listId Id of list
+     */
+	public synchronized String getListJson(int listId) {
+		return listJson(lists.get(listId), 0);
+	}
+
+	/**
+     * Returns the (full) JSON of the lists of the current user, as served for /users/:id/lists.json
+     */
+	public synchronized String getListsJson() {
+		return listsJson(0);
+	}
+
+	/**
+     * Returns the JSON of the tenses, as served for /tenses.json
+     */
+	public synchronized String getTensesJson() {
+		StringBuilder json = new StringBuilder("[");
+		for (Map.Entry<Integer,String> tense : tenses.entrySet()) {
+			if (json.length() > 1) { json.append(','); }
+			json.append("{\"conjugation_time\":{\"id\":").append(tense.getKey()).append(",\"name\":");
+			quote(json, tense.getValue()).append("}}");
+		}
+		return json.append(']').toString();
+	}
+
+	/**
+     * Helper method: Handles a request
+     */
+	private void handle(HttpExchange exchange) throws IOException {
+		inFlight.incrementAndGet();
+		try {
+			String path = exchange.getRequestURI().getPath();
+			String query = exchange.getRequestURI().getRawQuery();
+			String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+			Matcher token = TOKEN.matcher(authorization == null ? "" : authorization);
+			Request request = new Request(exchange.getRequestMethod(), path, query, token.find() ? URLDecoder.decode(token.group(1), "UTF-8") : null);
+			requests.add(request);
+			exchange.setAttribute(Request.class.getName(), request);
+			byte[] body = read(exchange.getRequestBody());
+			sleep(lookup(latencies, path));
+			int[] failure = lookup(failures, path);
+			if (failure != null) {
+				synchronized (failure) {
+					if (failure[1] > 0) {
+						failure[1]--;
+						send(exchange, failure[0], "{\"error\":\"injected\"}", null);
+						return;
+					}
+				}
+			}
+			respond(exchange, request, body);
+		}
+		catch (IOException e) {
+			// Client went away (e.g. cancelled)
+		}
+		finally {
+			exchange.close();
+			inFlight.decrementAndGet();
+		}
+	}
+
+	/**
+     * Helper method: Routes a request and sends the response
+     *
+     * @return Status sent
+     */
+	private int respond(HttpExchange exchange, Request request, byte[] body) throws IOException {
+		String path = request.path;
+		Map<String,String> params = parse(request.query);
+		Matcher m;
+		if (request.method.equals("POST") && path.equals("/reviews.json")) {
+			Matcher review = Pattern.compile("\\{[^{}]*\\}").matcher(new String(body, "UTF-8"));
+			while (review.find()) { reviews.add(review.group()); }
+			return send(exchange, 201, "{}", null);
+		}
+		if (!request.method.equals("GET")) { return send(exchange, 405, "{}", null); }
+		if (path.equals("/tenses.json")) {
+			return send(exchange, 200, getTensesJson(), null);
+		}
+		String json;
+		String etag;
+		Map<String,String> headers = new LinkedHashMap<String,String>();
+		synchronized (this) {
+			if (path.equals("/users/current.json")) {
+				json = quote(new StringBuilder("{\"user\":{\"id\":").append(userId).append(",\"name\":"), userName).append(",\"admin\":false}}").toString();
+				etag = "\"user-" + userId + "-" + userName.hashCode() + "\"";
+			}
+			else if ((m = Pattern.compile("/users/(\\d+)/lists\\.json").matcher(path)).matches()) {
+				if (Integer.parseInt(m.group(1)) != userId) { return send(exchange, 404, "{}", null); }
+				int since = since(params);
+				json = listsJson(since);
+				etag = "\"lists-" + userId + "-" + listsRevision + "\"";
+				putDeltaHeaders(headers, since);
+			}
+			else if ((m = Pattern.compile("/lists/(\\d+)\\.json").matcher(path)).matches()) {
+				StubList list = lists.get(Integer.parseInt(m.group(1)));
+				if (list == null) { return send(exchange, 404, "{}", null); }
+				int since = since(params);
+				json = listJson(list, since);
+				etag = "\"list-" + list.id + "-" + list.revision + "\"";
+				putDeltaHeaders(headers, since);
+			}
+			else {
+				return send(exchange, 404, "{}", null);
+			}
+		}
+		if (request.query == null) {
+			headers.put("ETag", etag);
+			headers.put("Last-Modified", httpDate(etag.hashCode()));
+			String match = exchange.getRequestHeaders().getFirst("If-None-Match");
+			if (etag.equals(match)) { return send(exchange, 304, null, headers); }
+		}
+		return send(exchange, 200, json, headers);
+	}
+
+	/**
+     * Helper method: Returns the revision passed as "since" if changes since are known, otherwise 0 (full response)
+     */
+	private int since(Map<String,String> params) {
+		String since = params.get("since");
+		if (since == null || !deltaSync) { return 0; }
+		try {
+			int revision = Integer.parseInt(since);
+			return revision >= horizon ? revision : 0;
+		}
+		catch (NumberFormatException e) { return 0; }
+	}
+
+	/**
+     * Helper method: Adds the change cursor (and the delta marker if only changes since a revision are sent)
+     */
+	private void putDeltaHeaders(Map<String,String> headers, int since) {
+		if (!deltaSync) { return; }
+		headers.put("X-Change-Cursor", String.valueOf(revision));
+		if (since > 0) { headers.put("X-Delta", "true"); }
+	}
+
+	/**
+     * Helper method: Writes the JSON of the lists of the current user (changed since a revision, or all for 0)
+     */
+	private String listsJson(int since) {
+		StringBuilder json = new StringBuilder("[");
+		for (StubList list : lists.values()) {
+			if (list.listRevision <= since) { continue; }
+			if (json.length() > 1) { json.append(','); }
+			json.append("{\"").append(list.getRoot()).append("\":{\"id\":").append(list.id).append(",\"name\":");
+			quote(json, list.name).append(",\"size\":").append(list.vocabularies.size());
+			json.append(",\"language_from\":{\"id\":").append(LANGUAGE_FROM_ID).append(",\"word\":");
+			quote(json, LANGUAGE_FROM_NAME).append("}}}");
+		}
+		if (since > 0) {
+			for (Map.Entry<Integer,Integer> deleted : deletedLists.entrySet()) {
+				if (deleted.getValue() <= since) { continue; }
+				if (json.length() > 1) { json.append(','); }
+				json.append("{\"deleted\":{\"id\":").append(deleted.getKey()).append("}}");
+			}
+		}
+		return json.append(']').toString();
+	}
+
+	/**
+     * Helper method: Writes the JSON of a list (vocabularies changed since a revision, or all for 0)
+     */
+	private static String listJson(StubList list, int since) {
+		StringBuilder json = new StringBuilder(64 + list.vocabularies.size() * 160);
+		json.append("{\"").append(list.getRoot()).append("\":{\"id\":").append(list.id).append(",\"name\":");
+		quote(json, list.name).append(",\"size\":").append(list.vocabularies.size());
+		json.append(",\"language_from\":{\"id\":").append(LANGUAGE_FROM_ID).append(",\"word\":");
+		quote(json, LANGUAGE_FROM_NAME).append("},\"language_to\":{\"id\":").append(LANGUAGE_TO_ID).append(",\"word\":");
+		quote(json, LANGUAGE_TO_NAME).append("},\"vocabularies\":[");
+		boolean first = true;
+		for (Map.Entry<Integer,Integer> vocabulary : list.vocabularies.entrySet()) {
+			if (vocabulary.getValue() <= since) { continue; }
+			if (!first) { json.append(','); }
+			first = false;
+			int id = vocabulary.getKey();
+			json.append("{\"id\":").append(id).append(",\"word\":");
+			quote(json, word(id, vocabulary.getValue())).append(',');
+			if (list.verbs) {
+				json.append("\"conjugations\":[");
+				for (int i=0; i<PERSONS.length; i++) {
+					if (i > 0) { json.append(','); }
+					json.append("{\"person\":");
+					quote(json, PERSONS[i]).append(",\"verb\":");
+					quote(json, "habl" + (char) ('a' + i % 26) + id).append('}');
+				}
+				json.append(']');
+			}
+			else {
+				json.append("\"translation\":[");
+				for (int i=0; i<1+id%3; i++) {
+					if (i > 0) { json.append(','); }
+					json.append("{\"id\":").append(id * 10 + i).append(",\"word\":");
+					quote(json, "palabra \u00f1 " + id + "." + i).append(",\"language\":{\"id\":").append(LANGUAGE_TO_ID).append(",\"word\":");
+					quote(json, LANGUAGE_TO_NAME).append("}}");
+				}
+				json.append(']');
+			}
+			json.append('}');
+		}
+		json.append(']');
+		if (since > 0) {
+			json.append(",\"deleted\":[");
+			first = true;
+			for (Map.Entry<Integer,Integer> deleted : list.deleted.entrySet()) {
+				if (deleted.getValue() <= since) { continue; }
+				if (!first) { json.append(','); }
+				first = false;
+				json.append(deleted.getKey());
+			}
+			json.append(']');
+		}
+		return json.append("}}").toString();
+	}
+
+	/**
+     * Returns the word the stub serves for a vocabulary at a revision
+     *
+     * @param id Id of vocabulary
+     * @param revision Revision the vocabulary was last changed at
+     */
+	public static String word(int id, int revision) {
+		return "word " + id + " (" + revision + ")";
+	}
+
+	/**
+     * Helper method: Sends a response (throttled if requested)
+     *
+     * @return Status sent
+     */
+	private int send(HttpExchange exchange, int status, String body, Map<String,String> headers) throws IOException {
+		((Request) exchange.getAttribute(Request.class.getName())).status = status;
+		if (headers != null) {
+			for (Map.Entry<String,String> header : headers.entrySet()) { exchange.getResponseHeaders().set(header.getKey(), header.getValue()); }
+		}
+		if (body == null) {
+			exchange.sendResponseHeaders(status, -1);
+			return status;
+		}
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		byte[] bytes = body.getBytes("UTF-8");
+		int chunk = throttleChunk;
+		exchange.sendResponseHeaders(status, chunk > 0 ? 0 : bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		if (chunk <= 0) { out.write(bytes); }
+		else {
+			for (int offset=0; offset<bytes.length; offset+=chunk) {
+				sleep(throttleDelay);
+				out.write(bytes, offset, Math.min(chunk, bytes.length - offset));
+				out.flush();
+			}
+		}
+		out.close();
+		return status;
+	}
+
+	/**
+     * Helper method: Returns the value of the longest prefix of a path in a map
+     */
+	private static <T> T lookup(Map<String,T> map, String path) {
+		String best = null;
+		for (String prefix : map.keySet()) {
+			if (path.startsWith(prefix) && (best == null || prefix.length() > best.length())) { best = prefix; }
+		}
+		return best == null ? null : map.get(best);
+	}
+
+	/**
+     * Helper method: Parses a query string
+     */
+	private static Map<String,String> parse(String query) throws IOException {
+		Map<String,String> params = new LinkedHashMap<String,String>();
+		if (query == null) { return params; }
+		for (String param : query.split("&")) {
+			int i = param.indexOf('=');
+			if (i > 0) { params.put(URLDecoder.decode(param.substring(0, i), "UTF-8"), URLDecoder.decode(param.substring(i + 1), "UTF-8")); }
+		}
+		return params;
+	}
+
+	/**
+     * Helper method: Appends a JSON string literal
+     */
+	private static StringBuilder quote(StringBuilder json, String value) {
+		json.append('"');
+		for (int i=0; i<value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') { json.append('\\').append(c); }
+			else if (c < 0x20) { json.append(String.format("\\u%04x", (int) c)); }
+			else { json.append(c); }
+		}
+		return json.append('"');
+	}
+
+	/**
+     * Helper method: Formats a date for Last-Modified
+     */
+	private static String httpDate(long seconds) {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		return format.format(new Date(1300000000000L + (seconds & 0xffffff) * 1000));
+	}
+
+	/**
+     * Helper method: Reads a request body
+     */
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int n; (n = in.read(buffer)) > 0; ) { out.write(buffer, 0, n); }
+		return out.toByteArray();
+	}
+
+	/**
+     * Helper method: Sleeps (if delay isn't null or 0)
+     */
+	private static void sleep(Long delay) {
+		if (delay == null || delay <= 0) { return; }
+		try { TimeUnit.MILLISECONDS.sleep(delay); }
+		catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+	}
+
+	/**
+	 * Request received by the server
+	 */
+	public static class Request {
+		/** HTTP method */
+		public final String method;
+		/** Path (without query) */
+		public final String path;
+		/** Raw query (or null) */
+		public final String query;
+		/** OAuth token the request was signed with (or null) */
+		public final String token;
+		/** Status sent (0 while being handled) */
+		public volatile int status;
+
+		Request(String method, String path, String query, String token) {
+			this.method = method;
+			this.path = path;
+			this.query = query;
+			this.token = token;
+		}
+
+		@Override
+		public String toString() {
+			return method + " " + path + (query == null ? "" : "?" + query) + " -> " + status;
+		}
+	}
+
+	/**
+	 * List served by the stub
+	 */
+	private static class StubList {
+		/** Id of list */
+		final int id;
+		/** Name of list */
+		String name;
+		/** Whether it is a verb list */
+		final boolean verbs;
+		/** Revisions at which vocabularies were last changed, by id (in order of creation) */
+		final Map<Integer,Integer> vocabularies = new LinkedHashMap<Integer,Integer>();
+		/** Revisions at which vocabularies were deleted, by id */
+		final Map<Integer,Integer> deleted = new LinkedHashMap<Integer,Integer>();
+		/** Revision of last change of the list or its vocabularies */
+		int revision;
+		/** Revision of last change of the list's entry in the list collection */
+		int listRevision;
+
+		StubList(int id, String name, boolean verbs) {
+			this.id = id;
+			this.name = name;
+			this.verbs = verbs;
+		}
+
+		/** Adds or changes a vocabulary */
+		void put(int vocabularyId, int revision) {
+			vocabularies.put(vocabularyId, revision);
+			deleted.remove(vocabularyId);
+			if (listRevision == 0) { listRevision = revision; }
+		}
+
+		/** Returns root element of list JSON */
+		String getRoot() {
+			return verbs ? "spanish_verb_list" : "vocabulary_list";
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that cancelling a {@link VocabularyList VocabularyList} while it streams from a slow
+ * {@link StubServer StubServer} stops all work: the download, parsing, batches, retries and storing
+ */
+public class CancellationTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 5000, false);
+		mServer.addList(2, "Colours", 10, false);
+		mServer.setThrottle(2048, 20);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void cancelStopsStreamingList() throws Exception {
+		final VocabularyList list = list();
+		final AtomicInteger batches = new AtomicInteger();
+		final CountDownLatch firstBatch = new CountDownLatch(1);
+		list.setOnBatchLoadedListener(new VocabularyList.OnBatchLoadedListener() {
+			public void onBatchLoaded(Vocabulary[] batch) {
+				batches.incrementAndGet();
+				firstBatch.countDown();
+			}
+		});
+		Thread loader = new Thread() {
+			@Override
+			public void run() { list.getRemoteData(); }
+		};
+		loader.start();
+		assertTrue(firstBatch.await(10, TimeUnit.SECONDS));
+		long start = System.nanoTime();
+		list.cancel();
+		int cancelledAt = batches.get();
+		loader.join(5000);
+		long stopped = (System.nanoTime() - start) / 1000000;
+		assertTrue("Loader still running", !loader.isAlive());
+		assertTrue("Stopped after " + stopped + " ms", stopped < 1000);
+		assertTrue(batches.get() + " batches, " + cancelledAt + " at cancel", batches.get() <= cancelledAt + 1);
+		assertTrue(batches.get() * VocabularyList.BATCH_SIZE < 5000);
+
+		assertEquals(1, mServer.getRequestCount("/lists/1.json"));
+		long end = System.currentTimeMillis() + 2000;
+		while (mServer.getInFlightCount() > 0 && System.currentTimeMillis() < end) { Thread.sleep(20); }
+		assertEquals("Server still sending", 0, mServer.getInFlightCount());
+		Thread.sleep(200);
+		assertEquals(1, mServer.getRequestCount("/lists/1.json"));
+		assertTrue(!DeckStore.getInstance(sContext).hasVocabularies(1));
+		assertEquals(null, DeckStore.getInstance(sContext).getValidator("/lists/1.json"));
+	}
+
+	@Test
+	public void cancelledListSendsNoRequest() throws Exception {
+		VocabularyList list = list();
+		list.cancel();
+		list.getRemoteData();
+		assertEquals(0, mServer.getRequests().size());
+		assertTrue(!DeckStore.getInstance(sContext).hasVocabularies(1));
+	}
+
+	@Test
+	public void finishedRequestsAreForgotten() throws Exception {
+		mServer.setDeltaSync(false);
+		VocabularyList list = list(2, 10);
+		list.getRemoteData();
+		assertEquals(10, list.getVocabularyCount());
+		assertEquals(null, request(list));
+		list.getRemoteData();
+		assertEquals(304, mServer.getRequests().get(1).status);
+		assertEquals(null, request(list));
+		User user = new User(sContext);
+		user.getRemoteData();
+		assertEquals(null, request(user));
+		mServer.failNext("/lists/3.json", 404, 1);
+		VocabularyList missing = list(3, 10);
+		missing.getRemoteData();
+		assertEquals(null, request(missing));
+	}
+
+	/**
+     * Helper method: Returns a list pointing at the stub's list 1
+     */
+	private static VocabularyList list() {
+		return list(1, 5000);
+	}
+
+	/**
+     * Helper method: Returns a list pointing at one of the stub's lists
+     */
+	private static VocabularyList list(int id, int size) {
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(id);
+		list.setSize(size);
+		list.setType("vocabulary_list");
+		return list;
+	}
+
+	/**
+     * Helper method: Returns the request a client would abort when cancelled (private, so read by reflection)
+     */
+	private static Object request(RestClient client) throws Exception {
+		Field field = RestClient.class.getDeclaredField("mRequest");
+		field.setAccessible(true);
+		return field.get(client);
+	}
+}
@@ -0,0 +1,86 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.apache.http.client.HttpResponseException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the circuit breaker shared by all {@link RestClient RestClient}s against a failing
+ * {@link StubServer StubServer}. Once it is open, requests are refused without reaching the server.
+ */
+public class CircuitBreakerTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 10, false);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void opensAfterFailuresInARow() throws Exception {
+		mServer.failNext("", 503, 100);
+		try {
+			new Client().get("/lists/1.json");
+			fail("Request should have failed");
+		}
+		catch (HttpResponseException e) {}
+		assertEquals(RestClient.MAX_RETRIES + 1, mServer.getRequests().size());
+		try {
+			new Client().get("/lists/1.json");
+			fail("Breaker should have opened");
+		}
+		catch (RestClient.CircuitOpenException e) {}
+		assertEquals(RestClient.CircuitBreaker.FAILURE_THRESHOLD, mServer.getRequests().size());
+
+		long start = System.nanoTime();
+		for (String path : new String[] { "/users/current.json", "/users/1/lists.json", "/tenses.json" }) {
+			try {
+				new Client().get(path);
+				fail("Request to " + path + " should have been refused");
+			}
+			catch (RestClient.CircuitOpenException e) {}
+		}
+		assertTrue("Refusing took " + (System.nanoTime() - start) / 1000000 + " ms", System.nanoTime() - start < 100000000L);
+		assertEquals(RestClient.CircuitBreaker.FAILURE_THRESHOLD, mServer.getRequests().size());
+
+		User user = new User(sContext);
+		user.getRemoteData();
+		assertTrue(!user.getRemoteLists());
+		assertEquals(0, user.getLists().length);
+		assertEquals(RestClient.CircuitBreaker.FAILURE_THRESHOLD, mServer.getRequests().size());
+	}
+
+	/**
+	 * Client exposing GET requests
+	 */
+	private static class Client extends RestClient {
+		Client() {
+			super(sContext);
+		}
+
+		String get(String path) throws IOException {
+			return getString(path);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stress test for the shared lazy loads of {@link VocabularyList VocabularyList}, {@link User User} and
+ * {@link TenseCatalogue TenseCatalogue}: many threads asking for the same resource at once must cause exactly one
+ * request to {@link StubServer StubServer}
+ */
+public class ConcurrentLoadTest {
+
+	/** Number of threads racing for a resource */
+	private static final int THREADS = 16;
+	/** Number of rounds (each starting with an empty store) */
+	private static final int ROUNDS = 10;
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+	private ExecutorService mExecutor;
+
+	@Before
+	public void setUp() throws Exception {
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 2000, false);
+		mServer.setLatency("", 50);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+		mExecutor = Executors.newFixedThreadPool(THREADS);
+	}
+
+	@After
+	public void tearDown() {
+		mExecutor.shutdownNow();
+		mServer.stop();
+	}
+
+	@Test
+	public void listIsRequestedOncePerLoad() throws Exception {
+		for (int round=1; round<=ROUNDS; round++) {
+			reset();
+			final VocabularyList list = new VocabularyList(sContext);
+			list.setId(1);
+			list.setSize(2000);
+			list.setType("vocabulary_list");
+			for (int count : race(new Callable<Integer>() {
+				public Integer call() { return list.getVocabularyCount(); }
+			})) { assertEquals(2000, count); }
+			assertEquals(round, mServer.getRequestCount("/lists/1.json"));
+		}
+	}
+
+	@Test
+	public void listsAreRequestedOncePerLoad() throws Exception {
+		for (int round=1; round<=ROUNDS; round++) {
+			reset();
+			final User user = new User(sContext);
+			user.initialize(1, "stub", false);
+			for (int count : race(new Callable<Integer>() {
+				public Integer call() { return user.getLists().length; }
+			})) { assertEquals(1, count); }
+			assertEquals(round, mServer.getRequestCount("/users/1/lists.json"));
+		}
+	}
+
+	@Test
+	public void tensesAreRequestedOncePerLoad() throws Exception {
+		for (int round=1; round<=ROUNDS; round++) {
+			reset();
+			for (int count : race(new Callable<Integer>() {
+				public Integer call() { return TenseCatalogue.getInstance(sContext).getTenses(1).size(); }
+			})) { assertEquals(3, count); }
+			assertEquals(round, mServer.getRequestCount("/tenses.json"));
+		}
+	}
+
+	/**
+     * Helper method: Empties the store and the tense catalogue, so the next load goes to the server
+     */
+	private static void reset() {
+		DeckStore.getInstance(sContext).clear();
+		TenseCatalogue.reset();
+	}
+
+	/**
+     * Helper method: Runs a task on all threads at once
+     *
+     * @return Results of all threads
+     */
+	private List<Integer> race(final Callable<Integer> task) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int i=0; i<THREADS; i++) {
+			futures.add(mExecutor.submit(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					start.await();
+					return task.call();
+				}
+			}));
+		}
+		start.countDown();
+		List<Integer> results = new ArrayList<Integer>();
+		for (Future<Integer> future : futures) { results.add(future.get()); }
+		return results;
+	}
+}
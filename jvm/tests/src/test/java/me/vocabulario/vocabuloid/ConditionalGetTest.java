@@ -0,0 +1,137 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests revalidation of GET requests with ETag / Last-Modified against {@link StubServer StubServer}: unchanged
+ * resources are answered with 304 and served from {@link DeckStore DeckStore}, changed ones are fetched again
+ */
+public class ConditionalGetTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		mServer = new StubServer();
+		mServer.setDeltaSync(false);
+		mServer.addList(1, "Animals", 500, false);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void unchangedObjectIsServedFromStore() {
+		User user = new User(sContext);
+		user.getRemoteData();
+		long modified = RestClient.getModifiedCount();
+		long notModified = RestClient.getNotModifiedCount();
+		long saved = RestClient.getBytesSaved();
+
+		User again = new User(sContext);
+		again.getRemoteData();
+		assertEquals("stub", again.getName());
+		assertEquals(modified, RestClient.getModifiedCount());
+		assertEquals(notModified + 1, RestClient.getNotModifiedCount());
+		assertEquals(saved + "{\"user\":{\"id\":1,\"name\":\"stub\",\"admin\":false}}".length(), RestClient.getBytesSaved());
+		assertEquals(304, last("/users/current.json").status);
+	}
+
+	@Test
+	public void unchangedListIsServedFromStore() throws Exception {
+		VocabularyList list = list();
+		list.getRemoteData();
+		assertEquals(500, list.getVocabularyCount());
+		long notModified = RestClient.getNotModifiedCount();
+		long saved = RestClient.getBytesSaved();
+
+		VocabularyList again = list();
+		again.getRemoteData();
+		assertEquals(304, last("/lists/1.json").status);
+		assertEquals(500, again.getVocabularyCount());
+		assertEquals(list.getVocabulary(499).getWord(), again.getVocabulary(499).getWord());
+		assertEquals(notModified + 1, RestClient.getNotModifiedCount());
+		assertEquals(saved + mServer.getListJson(1).getBytes("UTF-8").length, RestClient.getBytesSaved());
+	}
+
+	@Test
+	public void changedListIsFetchedAgain() {
+		VocabularyList list = list();
+		list.getRemoteData();
+		long modified = RestClient.getModifiedCount();
+		long notModified = RestClient.getNotModifiedCount();
+		mServer.putVocabulary(1, 100007);
+
+		VocabularyList again = list();
+		again.getRemoteData();
+		assertEquals(200, last("/lists/1.json").status);
+		assertEquals(modified + 1, RestClient.getModifiedCount());
+		assertEquals(notModified, RestClient.getNotModifiedCount());
+		assertTrue(again.getVocabulary(7).getWord(), again.getVocabulary(7).getWord().startsWith("word 100007 ("));
+		assertTrue(!again.getVocabulary(7).getWord().equals(list.getVocabulary(7).getWord()));
+
+		again = list();
+		again.getRemoteData();
+		assertEquals(304, last("/lists/1.json").status);
+	}
+
+	@Test
+	public void listIsFetchedInFullIfStoreLostIt() {
+		list().getRemoteData();
+		DeckStore.getInstance(sContext).clear();
+		DeckStore.getInstance(sContext).putValidator(validator("/lists/1.json"));
+
+		VocabularyList again = list();
+		again.getRemoteData();
+		assertEquals(500, again.getVocabularyCount());
+		assertEquals(200, last("/lists/1.json").status);
+	}
+
+	/**
+     * Helper method: Returns a list pointing at the stub's list 1
+     */
+	private VocabularyList list() {
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(1);
+		list.setSize(500);
+		list.setType("vocabulary_list");
+		return list;
+	}
+
+	/**
+     * Helper method: Returns the validator the stub sends for a resource
+     */
+	private RestClient.Validator validator(String path) {
+		RestClient.Validator validator = new RestClient.Validator();
+		validator.path = path;
+		validator.etag = "\"list-1-2\"";
+		return validator;
+	}
+
+	/**
+     * Helper method: Returns the last request for a path
+     */
+	private StubServer.Request last(String path) {
+		List<StubServer.Request> requests = mServer.getRequests();
+		for (int i=requests.size()-1; i>=0; i--) {
+			if (requests.get(i).path.equals(path)) { return requests.get(i); }
+		}
+		throw new AssertionError("No request for " + path);
+	}
+}
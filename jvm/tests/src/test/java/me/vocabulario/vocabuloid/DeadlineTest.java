@@ -0,0 +1,126 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests retries, timeouts and deadlines of {@link RestClient RestClient} against a {@link StubServer StubServer}
+ * injecting errors and stalls. Every test ends with a successful request, so the shared circuit breaker never
+ * opens here (see {@link CircuitBreakerTest CircuitBreakerTest}).
+ */
+public class DeadlineTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 10, false);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		RestClient.clearDeadline();
+		mServer.setLatency("", 0);
+		new Client().get("/users/current.json");
+		mServer.stop();
+	}
+
+	@Test
+	public void sharedClientLeavesRetriesToRestClient() {
+		DefaultHttpRequestRetryHandler handler = (DefaultHttpRequestRetryHandler) ((DefaultHttpClient) SharedHttpClient.getInstance()).getHttpRequestRetryHandler();
+		assertEquals(0, handler.getRetryCount());
+		assertTrue(!handler.isRequestSentRetryEnabled());
+	}
+
+	@Test
+	public void retriesServerErrors() throws Exception {
+		mServer.failNext("/lists/1.json", 503, RestClient.MAX_RETRIES);
+		assertTrue(new Client().get("/lists/1.json").startsWith("{\"vocabulary_list\""));
+		assertEquals(RestClient.MAX_RETRIES + 1, mServer.getRequestCount("/lists/1.json"));
+	}
+
+	@Test
+	public void givesUpAfterMaxRetries() throws Exception {
+		mServer.failNext("/lists/1.json", 503, RestClient.MAX_RETRIES + 1);
+		try {
+			new Client().get("/lists/1.json");
+			fail("Request should have failed");
+		}
+		catch (HttpResponseException e) { assertEquals(503, e.getStatusCode()); }
+		assertEquals(RestClient.MAX_RETRIES + 1, mServer.getRequestCount("/lists/1.json"));
+	}
+
+	@Test
+	public void deadlineCutsStalledRequest() throws Exception {
+		mServer.setLatency("/lists/", 5000);
+		RestClient.setDeadline(1000);
+		long start = System.nanoTime();
+		try {
+			new Client().get("/lists/1.json");
+			fail("Request should have timed out");
+		}
+		catch (InterruptedIOException e) {}
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		assertTrue("Gave up after " + elapsed + " ms", elapsed >= 900 && elapsed < 2500);
+		assertEquals(1, mServer.getRequestCount("/lists/1.json"));
+	}
+
+	@Test
+	public void readTimeoutIsRetried() throws Exception {
+		mServer.setLatency("/lists/", 1500);
+		Client client = new Client();
+		client.setTimeouts(1000, 500);
+		long start = System.nanoTime();
+		try {
+			client.get("/lists/1.json");
+			fail("Request should have timed out");
+		}
+		catch (InterruptedIOException e) {}
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		assertEquals(RestClient.MAX_RETRIES + 1, mServer.getRequestCount("/lists/1.json"));
+		assertTrue("Gave up after " + elapsed + " ms", elapsed < (RestClient.MAX_RETRIES + 1) * 500 + RestClient.RETRY_BASE_DELAY * 3 + 1000);
+	}
+
+	@Test
+	public void noRequestAfterDeadline() throws Exception {
+		RestClient.setDeadline(0);
+		try {
+			new Client().get("/lists/1.json");
+			fail("Request should have been refused");
+		}
+		catch (InterruptedIOException e) {}
+		assertEquals(0, mServer.getRequestCount("/lists/1.json"));
+	}
+
+	/**
+	 * Client exposing GET requests
+	 */
+	private static class Client extends RestClient {
+		Client() {
+			super(sContext);
+		}
+
+		String get(String path) throws IOException {
+			return getString(path);
+		}
+	}
+}
@@ -0,0 +1,247 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link DeckPack DeckPack} and the payload of {@link VocabularyTable#toPack() VocabularyTable.toPack}: tables
+ * survive the round trip, damaged packs are rejected (and deleted) instead of being read, and
+ * {@link DeckStore DeckStore} drops the packs of lists it drops or merges changes into
+ */
+public class DeckPackTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+
+	@Before
+	public void setUp() {
+		DeckStore.getInstance(sContext).clear();
+	}
+
+	@Test
+	public void tableSurvivesRoundTrip() throws Exception {
+		VocabularyTable table = table(50);
+		assertSame(table, VocabularyTable.fromPack(sContext, table.toPack()));
+	}
+
+	@Test
+	public void emptyTableSurvivesRoundTrip() throws Exception {
+		VocabularyTable table = new VocabularyTable(sContext, 0);
+		table.trim();
+		VocabularyTable copy = VocabularyTable.fromPack(sContext, table.toPack());
+		assertEquals(0, copy.size());
+		DeckPack.write(sContext, 1, table);
+		assertEquals(0, DeckPack.read(sContext, 1).size());
+	}
+
+	@Test
+	public void inconsistentPayloadIsRejected() {
+		ByteBuffer payload = table(10).toPack();
+		payload.order(ByteOrder.LITTLE_ENDIAN).putInt(0, 1000000);
+		try {
+			VocabularyTable.fromPack(sContext, payload);
+			fail("Payload should have been rejected");
+		}
+		catch (IOException e) {}
+		ByteBuffer truncated = table(10).toPack();
+		truncated.limit(truncated.limit() - 3);
+		try {
+			VocabularyTable.fromPack(sContext, truncated);
+			fail("Truncated payload should have been rejected");
+		}
+		catch (IOException e) {}
+	}
+
+	@Test
+	public void packSurvivesRoundTrip() {
+		VocabularyTable table = table(2000);
+		DeckPack.write(sContext, 1, table);
+		assertTrue(file(1).exists());
+		assertTrue(!new File(file(1).getPath() + ".tmp").exists());
+		assertSame(table, DeckPack.read(sContext, 1));
+		assertEquals(null, DeckPack.read(sContext, 2));
+	}
+
+	@Test
+	public void flippedByteIsRejected() throws Exception {
+		DeckPack.write(sContext, 1, table(100));
+		long length = file(1).length();
+		for (long position : new long[] { 0, DeckPack.HEADER_SIZE + 4, length / 2, length - 1 }) {
+			DeckPack.write(sContext, 1, table(100));
+			RandomAccessFile file = new RandomAccessFile(file(1), "rw");
+			try {
+				file.seek(position);
+				int value = file.read();
+				file.seek(position);
+				file.write(value ^ 0x10);
+			}
+			finally { file.close(); }
+			assertEquals("Byte " + position + " flipped", null, DeckPack.read(sContext, 1));
+			assertTrue(!file(1).exists());
+		}
+	}
+
+	@Test
+	public void truncatedPackIsRejected() throws Exception {
+		for (long length : new long[] { 0, DeckPack.HEADER_SIZE - 1, DeckPack.HEADER_SIZE, 1000 }) {
+			DeckPack.write(sContext, 1, table(100));
+			RandomAccessFile file = new RandomAccessFile(file(1), "rw");
+			try { file.setLength(length); }
+			finally { file.close(); }
+			assertEquals("Truncated to " + length, null, DeckPack.read(sContext, 1));
+			assertTrue(!file(1).exists());
+		}
+	}
+
+	@Test
+	public void otherVersionIsRejected() throws Exception {
+		DeckPack.write(sContext, 1, table(100));
+		RandomAccessFile file = new RandomAccessFile(file(1), "rw");
+		try {
+			file.seek(4);
+			file.write(DeckPack.VERSION + 1);
+		}
+		finally { file.close(); }
+		assertEquals(null, DeckPack.read(sContext, 1));
+		assertTrue(!file(1).exists());
+	}
+
+	@Test
+	public void storeRebuildsMissingPack() {
+		DeckStore store = DeckStore.getInstance(sContext);
+		VocabularyList list = list(1, 100);
+		store.putVocabularies(list);
+		assertTrue(file(1).exists());
+		DeckPack.delete(sContext, 1);
+
+		VocabularyList stored = list(1, 0);
+		assertTrue(store.getVocabularies(sContext, stored));
+		assertSame(list.getTable(), stored.getTable());
+		assertTrue(file(1).exists());
+	}
+
+	@Test
+	public void changesDropPackUntilNextRead() {
+		DeckStore store = DeckStore.getInstance(sContext);
+		VocabularyList list = list(1, 100);
+		store.putVocabularies(list);
+		VocabularyTable changes = new VocabularyTable(sContext, 1);
+		changes.addVocabulary(1005, "changed", 0, null);
+		changes.setLanguage(StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+		int[] rows = new int[1];
+		list.setTable(list.getTable().merge(changes, new HashSet<Integer>(), rows));
+		store.putVocabularyChanges(list, rows);
+		assertTrue(!file(1).exists());
+
+		VocabularyList stored = list(1, 0);
+		assertTrue(store.getVocabularies(sContext, stored));
+		assertEquals("changed", stored.getTable().getWord(5));
+		assertSame(list.getTable(), stored.getTable());
+		assertTrue(file(1).exists());
+		assertSame(list.getTable(), DeckPack.read(sContext, 1));
+	}
+
+	@Test
+	public void removedListDropsPack() {
+		DeckStore store = DeckStore.getInstance(sContext);
+		VocabularyList first = list(1, 10), second = list(2, 10);
+		store.putLists(1, new VocabularyList[] { first, second }, null);
+		store.putVocabularies(first);
+		store.putVocabularies(second);
+		assertTrue(file(1).exists() && file(2).exists());
+
+		store.putLists(1, new VocabularyList[] { first }, null);
+		assertTrue(file(1).exists());
+		assertTrue(!file(2).exists());
+		assertTrue(!store.getVocabularies(sContext, list(2, 0)));
+	}
+
+	@Test
+	public void upgradeDropsPacks() {
+		DeckStore store = DeckStore.getInstance(sContext);
+		store.putVocabularies(list(1, 10));
+		assertTrue(file(1).exists());
+		store.onUpgrade(store.getWritableDatabase(), 6, 7);
+		assertTrue(!file(1).exists());
+		assertTrue(!store.getVocabularies(sContext, list(1, 0)));
+	}
+
+	/**
+     * Helper method: Returns a table with translated vocabularies (odd rows) and conjugated ones (even rows),
+     * including empty and non-ASCII strings
+     */
+	private static VocabularyTable table(int size) {
+		VocabularyTable table = new VocabularyTable(sContext, size);
+		for (int i=0; i<size; i++) {
+			table.addVocabulary(1000 + i, i == 3 ? "" : "word \u00f1 " + i, 0, null);
+			if (i % 2 == 1) {
+				for (int j=0; j<1+i%3; j++) { table.addTranslation(10000 + i * 10 + j, "palabra \u20ac " + i + "." + j, StubServer.LANGUAGE_TO_ID, StubServer.LANGUAGE_TO_NAME); }
+			}
+			else {
+				for (int j=0; j<6; j++) { table.addConjugation("habl" + j + " " + i); }
+			}
+		}
+		table.setLanguage(StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+		table.trim();
+		return table;
+	}
+
+	/**
+     * Helper method: Returns a list (with a generated table unless size is 0)
+     */
+	private static VocabularyList list(int id, int size) {
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(id);
+		list.setName("List " + id);
+		list.setSize(size);
+		list.setType("vocabulary_list");
+		list.setLanguageFromId(StubServer.LANGUAGE_FROM_ID);
+		list.setLanguageFromName(StubServer.LANGUAGE_FROM_NAME);
+		if (size > 0) { list.setTable(table(size)); }
+		return list;
+	}
+
+	/**
+     * Helper method: Returns the file holding the pack of a list
+     */
+	private static File file(int listId) {
+		return new File(new File(sContext.getFilesDir(), "decks"), listId + ".pack");
+	}
+
+	/**
+     * Helper method: Asserts that two tables hold the same vocabularies, translations and conjugations
+     */
+	private static void assertSame(VocabularyTable expected, VocabularyTable actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			assertEquals(expected.getId(i), actual.getId(i));
+			assertEquals(expected.getWord(i), actual.getWord(i));
+			assertEquals(expected.getLanguageId(i), actual.getLanguageId(i));
+			assertEquals(expected.getLanguageName(i), actual.getLanguageName(i));
+			assertEquals(expected.getTranslationEnd(i) - expected.getTranslationStart(i), actual.getTranslationEnd(i) - actual.getTranslationStart(i));
+			for (int t=expected.getTranslationStart(i), u=actual.getTranslationStart(i); t<expected.getTranslationEnd(i); t++, u++) {
+				assertEquals(expected.getTranslationId(t), actual.getTranslationId(u));
+				assertEquals(expected.getTranslationWord(t), actual.getTranslationWord(u));
+				assertEquals(expected.getTranslationLanguageName(t), actual.getTranslationLanguageName(u));
+			}
+			assertEquals(expected.getConjugationEnd(i) - expected.getConjugationStart(i), actual.getConjugationEnd(i) - actual.getConjugationStart(i));
+			for (int k=expected.getConjugationStart(i), l=actual.getConjugationStart(i); k<expected.getConjugationEnd(i); k++, l++) {
+				assertEquals(expected.getConjugation(k), actual.getConjugation(l));
+			}
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests delta sync of lists and vocabularies against {@link StubServer StubServer}: once stored with a change
+ * cursor, only the changes since are requested and merged into {@link DeckStore DeckStore}, deletions included.
+ * A cursor the server no longer knows gets a full response, which replaces the stored version.
+ */
+public class DeltaSyncTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 500, false);
+		mServer.addList(2, "Colours", 20, false);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void listRequestsChangesSinceCursor() {
+		VocabularyList list = list();
+		list.getRemoteData();
+		assertEquals(null, last("/lists/1.json").query);
+		String cursor = list.getCursor();
+		assertTrue(cursor != null);
+		mServer.putVocabulary(1, 100007);
+		mServer.putVocabulary(1, 100500);
+
+		VocabularyList again = list();
+		again.getRemoteData();
+		assertEquals("since=" + cursor, last("/lists/1.json").query);
+		assertTrue(!cursor.equals(again.getCursor()));
+		assertEquals(501, again.getVocabularyCount());
+		assertTrue(again.getVocabulary(7).getWord(), again.getVocabulary(7).getWord().startsWith("word 100007 ("));
+		assertTrue(!again.getVocabulary(7).getWord().equals(list.getVocabulary(7).getWord()));
+		assertEquals(listWords(1), words(again));
+
+		VocabularyList stored = list();
+		assertTrue(stored.getLocalData());
+		assertEquals(words(again), words(stored));
+		assertEquals(again.getCursor(), stored.getCursor());
+	}
+
+	@Test
+	public void deletedVocabulariesAreRemoved() {
+		list().getRemoteData();
+		mServer.deleteVocabulary(1, 100003);
+		mServer.deleteVocabulary(1, 100499);
+
+		VocabularyList again = list();
+		again.getRemoteData();
+		assertTrue(last("/lists/1.json").query != null);
+		assertEquals(498, again.getVocabularyCount());
+		for (String word : words(again)) { assertTrue(word, !word.startsWith("word 100003 (") && !word.startsWith("word 100499 (")); }
+
+		VocabularyList stored = list();
+		assertTrue(stored.getLocalData());
+		assertEquals(words(again), words(stored));
+	}
+
+	@Test
+	public void unknownCursorForcesFullResync() {
+		VocabularyList list = list();
+		list.getRemoteData();
+		String cursor = list.getCursor();
+		mServer.deleteVocabulary(1, 100003);
+		mServer.putVocabulary(1, 100010);
+		mServer.compact();
+
+		VocabularyList again = list();
+		again.getRemoteData();
+		assertEquals("since=" + cursor, last("/lists/1.json").query);
+		assertEquals(499, again.getVocabularyCount());
+		assertEquals(listWords(1), words(again));
+
+		mServer.putVocabulary(1, 100011);
+		VocabularyList next = list();
+		next.getRemoteData();
+		assertEquals("since=" + again.getCursor(), last("/lists/1.json").query);
+		assertEquals(listWords(1), words(next));
+	}
+
+	@Test
+	public void listsRequestChangesSinceCursor() {
+		User first = new User(sContext);
+		first.getRemoteData();
+		first.getRemoteLists();
+		assertEquals(null, last("/users/1/lists.json").query);
+		mServer.renameList(1, "Pets");
+		mServer.deleteList(2);
+		mServer.addList(3, "Numbers", 10, false);
+
+		User user = user();
+		assertTrue(user.getRemoteLists());
+		assertTrue(last("/users/1/lists.json").query.startsWith("since="));
+		assertEquals("Pets,Numbers", names(user.getLists()));
+
+		User stored = user();
+		assertTrue(stored.getLocalLists());
+		assertEquals("Pets,Numbers", names(stored.getLists()));
+	}
+
+	@Test
+	public void listsAreResyncedInFullAfterCompaction() {
+		User first = new User(sContext);
+		first.getRemoteData();
+		first.getRemoteLists();
+		mServer.deleteList(2);
+		mServer.compact();
+
+		User user = user();
+		user.getRemoteLists();
+		assertTrue(last("/users/1/lists.json").query.startsWith("since="));
+		assertEquals("Animals", names(user.getLists()));
+	}
+
+	/**
+     * Helper method: Returns a list pointing at the stub's list 1
+     */
+	private static VocabularyList list() {
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(1);
+		list.setSize(500);
+		list.setType("vocabulary_list");
+		return list;
+	}
+
+	/**
+     * Helper method: Returns the stub's user (stored by the first {@link User#getRemoteData() getRemoteData})
+     */
+	private static User user() {
+		User user = new User(sContext);
+		user.initialize(1, "stub", false);
+		return user;
+	}
+
+	/**
+     * Helper method: Returns the words of a list, sorted
+     */
+	private static List<String> words(VocabularyList list) {
+		List<String> words = new ArrayList<String>();
+		for (int i=0; i<list.getVocabularyCount(); i++) { words.add(list.getVocabulary(i).getWord()); }
+		Collections.sort(words);
+		return words;
+	}
+
+	/**
+     * Helper method: Returns the words the stub currently sends for a list, sorted
+     */
+	private List<String> listWords(int listId) {
+		List<String> words = new ArrayList<String>();
+		Matcher word = Pattern.compile("\"word\":\"(word [^\"]*)\"").matcher(mServer.getListJson(listId));
+		while (word.find()) { words.add(word.group(1)); }
+		Collections.sort(words);
+		return words;
+	}
+
+	/**
+     * Helper method: Returns the names of lists, comma-separated
+     */
+	private static String names(VocabularyList[] lists) {
+		StringBuilder names = new StringBuilder();
+		for (VocabularyList list : lists) { names.append(names.length() > 0 ? "," : "").append(list.getName()); }
+		return names.toString();
+	}
+
+	/**
+     * Helper method: Returns the last request for a path
+     */
+	private StubServer.Request last(String path) {
+		List<StubServer.Request> requests = mServer.getRequests();
+		for (int i=requests.size()-1; i>=0; i--) {
+			if (requests.get(i).path.equals(path)) { return requests.get(i); }
+		}
+		throw new AssertionError("No request for " + path);
+	}
+}
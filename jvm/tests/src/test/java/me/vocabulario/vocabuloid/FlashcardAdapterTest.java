@@ -0,0 +1,158 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import me.vocabulario.vocabuloid.stub.Heap;
+import me.vocabulario.vocabuloid.stub.StubContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * Tests {@link FlashcardAdapter FlashcardAdapter}, driving it the way a ViewPager does (keeping the current page
+ * and its neighbours alive while swiping)
+ */
+public class FlashcardAdapterTest {
+
+	private StubContext mContext;
+	private VocabularyList mList;
+
+	@Before
+	public void setUp() {
+		mContext = new StubContext();
+		mList = new VocabularyList(mContext);
+		mList.setLanguageFromName("English");
+		mList.setLanguageToName("Espa\u00f1ol");
+	}
+
+	@Test
+	public void bindsWordsAndResults() {
+		FlashcardAdapter adapter = adapter(3);
+		ViewGroup pager = new ViewGroup(mContext);
+		View front = (View) adapter.instantiateItem(pager, 2);
+		View back = (View) adapter.instantiateItem(pager, 3);
+		assertEquals("word 1", text(front, R.id.text));
+		assertEquals("English", text(front, R.id.heading));
+		assertEquals("2/3", text(front, R.id.page));
+		assertEquals("result 1", text(back, R.id.text));
+		assertEquals("Espa\u00f1ol", text(back, R.id.heading));
+	}
+
+	@Test
+	public void viewCountDoesNotDependOnListSize() {
+		for (int size : new int[] { 200, 2000, 20000 }) {
+			FlashcardAdapter adapter = adapter(size);
+			ViewGroup pager = new ViewGroup(mContext);
+			int inflated = LayoutInflater.getInflatedCount();
+			int maxAttached = swipe(adapter, pager);
+			inflated = LayoutInflater.getInflatedCount() - inflated;
+			assertTrue(size + " cards inflated " + inflated + " views", inflated <= 4);
+			assertTrue(maxAttached <= 3);
+		}
+	}
+
+	@Test
+	public void swipingAllocationDoesNotDependOnListSize() {
+		swipe(adapter(2000), new ViewGroup(mContext));
+		long[] perPage = new long[2];
+		int[] sizes = { 200, 20000 };
+		for (int i=0; i<sizes.length; i++) {
+			FlashcardAdapter adapter = adapter(sizes[i]);
+			long start = Heap.allocated();
+			swipe(adapter, new ViewGroup(mContext));
+			perPage[i] = (Heap.allocated() - start) / adapter.getCount();
+		}
+		assertTrue("Allocated " + perPage[1] + " bytes per page", perPage[1] < 1024);
+		assertTrue(perPage[1] <= perPage[0] * 2 + 64);
+	}
+
+	@Test
+	public void unshuffleRestoresDueOrder() {
+		FlashcardAdapter adapter = adapter(5);
+		adapter.setOrder(new int[] { 3, 1, 4 });
+		assertEquals("0 1 2 3 4", rows(adapter));
+		adapter.shuffle(42);
+		adapter.unshuffle();
+		assertEquals("3 1 4 0 2", rows(adapter));
+		for (int card=0; card<5; card++) { assertEquals(card, adapter.getCard(adapter.getRow(card))); }
+		adapter.shuffle(42);
+		String shuffled = rows(adapter);
+		adapter.shuffle(42);
+		assertEquals(shuffled, rows(adapter));
+	}
+
+	@Test
+	public void copyIsIndependent() {
+		FlashcardAdapter adapter = adapter(5);
+		adapter.setOrder(new int[] { 4, 3, 2, 1, 0 });
+		FlashcardAdapter copy = new FlashcardAdapter(mContext, adapter);
+		adapter.shuffle(42);
+		adapter.add(new int[] { 5 }, new String[] { "word 5" }, new String[] { "result 5" });
+		assertEquals("0 1 2 3 4", rows(copy));
+		assertEquals(-1, copy.getCard(5));
+		copy.unshuffle();
+		assertEquals("4 3 2 1 0", rows(copy));
+		assertEquals(0, copy.getCard(4));
+	}
+
+	/**
+     * Helper method: Returns the rows shown, card by card
+     */
+	private static String rows(FlashcardAdapter adapter) {
+		StringBuilder rows = new StringBuilder();
+		for (int card=0; card<adapter.getCount()/2; card++) { rows.append(card > 0 ? " " : "").append(adapter.getRow(card)); }
+		return rows.toString();
+	}
+
+	/**
+     * Helper method: Returns an adapter holding generated cards
+     */
+	private FlashcardAdapter adapter(int size) {
+		FlashcardAdapter adapter = new FlashcardAdapter(mContext, mList, size);
+		int[] rows = new int[size];
+		String[] words = new String[size];
+		String[] results = new String[size];
+		for (int i=0; i<size; i++) {
+			rows[i] = i;
+			words[i] = "word " + i;
+			results[i] = "result " + i;
+		}
+		adapter.add(rows, words, results);
+		return adapter;
+	}
+
+	/**
+     * Helper method: Swipes through all pages, keeping the current page and its neighbours attached
+     *
+     * @return Largest number of views attached at once
+     */
+	private static int swipe(FlashcardAdapter adapter, ViewGroup pager) {
+		int count = adapter.getCount();
+		Object[] pages = new Object[count];
+		pages[0] = adapter.instantiateItem(pager, 0);
+		pages[1] = adapter.instantiateItem(pager, 1);
+		int maxAttached = pager.getChildCount();
+		for (int current=1; current<count; current++) {
+			if (current >= 2) {
+				adapter.destroyItem(pager, current - 2, pages[current - 2]);
+				pages[current - 2] = null;
+			}
+			if (current + 1 < count) { pages[current + 1] = adapter.instantiateItem(pager, current + 1); }
+			maxAttached = Math.max(maxAttached, pager.getChildCount());
+		}
+		return maxAttached;
+	}
+
+	/**
+     * Helper method: Returns the text of a child of a card
+     */
+	private static String text(View card, int id) {
+		return ((TextView) card.findViewById(id)).getText().toString();
+	}
+}
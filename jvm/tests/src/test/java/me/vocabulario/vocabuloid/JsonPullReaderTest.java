@@ -0,0 +1,144 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+import me.vocabulario.vocabuloid.stub.Heap;
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests {@link JsonPullReader JsonPullReader} and compares streaming a large list into a
+ * {@link VocabularyTable VocabularyTable} with the old path (String, then JSONObject, then table)
+ */
+public class JsonPullReaderTest {
+
+	/** Number of vocabularies in the large fixture */
+	private static final int SIZE = 20000;
+	/** Large list payload (as received from the server) */
+	private static byte[] sPayload;
+	/** Context */
+	private static final StubContext sContext = new StubContext();
+
+	@BeforeClass
+	public static void createPayload() throws Exception {
+		StubServer server = new StubServer();
+		server.addList(1, "Large", SIZE, false);
+		sPayload = server.getListJson(1).getBytes("UTF-8");
+		server.stop();
+	}
+
+	@Test
+	public void readsTokens() throws Exception {
+		JsonPullReader reader = new JsonPullReader(new StringReader("{\"a\":[1,-2.5e3,true,null,\"x\\\"\\u00e9\\n\"],\"b\":{\"c\":{}}}"));
+		reader.beginObject();
+		assertEquals("a", reader.nextName());
+		reader.beginArray();
+		assertEquals(1, reader.nextInt());
+		assertEquals(JsonPullReader.Token.NUMBER, reader.peek());
+		assertEquals("-2.5e3", reader.nextString());
+		assertTrue(reader.nextBoolean());
+		assertEquals(JsonPullReader.Token.NULL, reader.peek());
+		reader.skipValue();
+		assertEquals("x\"\u00e9\n", reader.nextString());
+		reader.endArray();
+		assertEquals("b", reader.nextName());
+		reader.skipValue();
+		reader.endObject();
+		assertEquals(JsonPullReader.Token.END_DOCUMENT, reader.peek());
+		reader.close();
+	}
+
+	@Test
+	public void streamsSameVocabulariesAsJsonObject() throws Exception {
+		VocabularyTable streamed = stream();
+		VocabularyTable parsed = parse();
+		assertEquals(SIZE, streamed.size());
+		assertEquals(parsed.size(), streamed.size());
+		for (int i=0; i<SIZE; i++) {
+			assertEquals(parsed.getId(i), streamed.getId(i));
+			assertEquals(parsed.getWord(i), streamed.getWord(i));
+			assertEquals(new Vocabulary(parsed, i).getTranslationsAsFormattedString(0), new Vocabulary(streamed, i).getTranslationsAsFormattedString(0));
+		}
+	}
+
+	@Test
+	public void streamingAllocatesLessThanJsonObject() throws Exception {
+		for (int i=0; i<3; i++) { stream(); parse(); }
+		long start = Heap.allocated();
+		stream();
+		long streaming = Heap.allocated() - start;
+		start = Heap.allocated();
+		parse();
+		long parsing = Heap.allocated() - start;
+		assertTrue("Streaming allocated " + streaming + " bytes, JSONObject " + parsing, streaming * 2 < parsing);
+	}
+
+	@Test
+	public void streamingRetainsLessAtPeak() throws Exception {
+		long base = Heap.used();
+		VocabularyTable table = stream();
+		long streaming = Heap.used() - base;
+		assertEquals(SIZE, table.size());
+		table = null;
+		base = Heap.used();
+		String body = new String(sPayload, "UTF-8");
+		JSONObject json = new JSONObject(body);
+		long parsing = Heap.used() - base;
+		assertEquals(SIZE, json.getJSONObject("vocabulary_list").getJSONArray("vocabularies").length());
+		assertTrue("Streaming retained " + streaming + " bytes, JSONObject " + parsing, streaming * 2 < parsing);
+	}
+
+	/**
+     * Helper method: Streams the payload into a table (as {@link VocabularyList VocabularyList} does)
+     */
+	private static VocabularyTable stream() throws Exception {
+		JsonPullReader reader = new JsonPullReader(new InputStreamReader(new ByteArrayInputStream(sPayload), "UTF-8"));
+		VocabularyTable table = new VocabularyTable(sContext, SIZE);
+		reader.beginObject();
+		reader.nextName();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			if (reader.nextName().equals("vocabularies")) {
+				reader.beginArray();
+				while (reader.hasNext()) { table.read(reader); }
+				reader.endArray();
+			}
+			else { reader.skipValue(); }
+		}
+		reader.endObject();
+		reader.endObject();
+		reader.close();
+		table.setLanguage(StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+		return table;
+	}
+
+	/**
+     * Helper method: Reads the payload into a String, parses it into a JSONObject and fills a table from it
+     */
+	private static VocabularyTable parse() throws Exception {
+		JSONObject root = new JSONObject(new String(sPayload, "UTF-8")).getJSONObject("vocabulary_list");
+		JSONArray vocabularies = root.getJSONArray("vocabularies");
+		VocabularyTable table = new VocabularyTable(sContext, vocabularies.length());
+		for (int i=0; i<vocabularies.length(); i++) {
+			JSONObject vocabulary = vocabularies.getJSONObject(i);
+			table.addVocabulary(vocabulary.getInt("id"), vocabulary.getString("word"), StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+			JSONArray translations = vocabulary.getJSONArray("translation");
+			for (int j=0; j<translations.length(); j++) {
+				JSONObject translation = translations.getJSONObject(j);
+				JSONObject language = translation.getJSONObject("language");
+				table.addTranslation(translation.getInt("id"), translation.getString("word"), language.getInt("id"), language.getString("word"));
+			}
+		}
+		return table;
+	}
+}
@@ -0,0 +1,109 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import android.os.Looper;
+
+/**
+ * Tests that {@link RestClient RestClient} refuses to touch the network on the main looper, whichever model class
+ * the call comes from (the test thread plays the main thread)
+ */
+public class MainThreadTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		TenseCatalogue.reset();
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 100, false);
+		mServer.addList(2, "Verbs", 10, true);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		Looper.release();
+		mServer.stop();
+	}
+
+	@Test
+	public void noRequestLeavesTheMainLooper() throws Exception {
+		Looper.prepareMainLooper();
+		User user = new User(sContext);
+		user.getRemoteData();
+		user.getRemoteLists();
+		assertEquals(0, user.getLists().length);
+		VocabularyList list = list(1);
+		list.getRemoteData();
+		assertTrue(list.empty());
+		TenseCatalogue.getInstance(sContext).getTenses(1);
+		try {
+			new ReviewClient().post("/reviews.json", "{\"reviews\":[]}");
+			fail("POST on main looper");
+		}
+		catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Network request on main thread"));
+		}
+		try {
+			list(2).getVocabularyCount();
+			fail("Lazy load on main looper");
+		}
+		catch (IllegalStateException e) {
+			assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith("Network request on main thread"));
+		}
+		assertEquals(mServer.getRequests().toString(), 0, mServer.getRequests().size());
+	}
+
+	@Test
+	public void requestsGoThroughOffTheMainLooper() throws Exception {
+		User user = new User(sContext);
+		user.getRemoteData();
+		user.getRemoteLists();
+		assertEquals(2, user.getLists().length);
+		VocabularyList list = list(1);
+		list.getRemoteData();
+		assertEquals(100, list.getVocabularyCount());
+		assertEquals(3, TenseCatalogue.getInstance(sContext).getTenses(1).size());
+		new ReviewClient().post("/reviews.json", "{\"reviews\":[]}");
+		assertEquals(5, mServer.getRequests().size());
+	}
+
+	/**
+     * Helper method: Returns a list pointing at one of the stub's lists
+     */
+	private static VocabularyList list(int id) {
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(id);
+		list.setType(id == 2 ? "spanish_verb_list" : "vocabulary_list");
+		return list;
+	}
+
+	/**
+	 * Client exposing POST requests
+	 */
+	private static class ReviewClient extends RestClient {
+		ReviewClient() {
+			super(sContext);
+		}
+
+		@Override
+		protected void post(String path, String json) throws IOException {
+			super.post(path, json);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link Prefetcher Prefetcher} against {@link StubServer StubServer}: lists are stored in the background,
+ * and a list opened while it is prefetched (or queued) is left to the caller instead of being downloaded twice
+ */
+public class PrefetcherTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+	private Prefetcher mPrefetcher;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		mServer = new StubServer();
+		mServer.addList(1, "Animals", 2000, false);
+		mServer.addList(2, "Colours", 20, false);
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+		mPrefetcher = new Prefetcher(sContext);
+	}
+
+	@After
+	public void tearDown() {
+		mPrefetcher.stop();
+		mServer.stop();
+	}
+
+	@Test
+	public void storesListsNotAvailableOffline() throws Exception {
+		mPrefetcher.start(1, lists());
+		assertTrue(waitFor(1) && waitFor(2));
+		assertEquals(1, mServer.getRequestCount("/lists/1.json"));
+		assertEquals(1, mServer.getRequestCount("/lists/2.json"));
+	}
+
+	@Test
+	public void openedListIsLeftToCaller() throws Exception {
+		mServer.setLatency("/lists/", 500);
+		mPrefetcher.start(1, lists());
+		waitForRequests(Prefetcher.THREADS);
+		Prefetcher.cancel(1);
+		mServer.setLatency("/lists/", 0);
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(1);
+		list.getRemoteData();
+		assertEquals(2000, list.getVocabularyCount());
+		assertTrue(waitFor(2));
+		Thread.sleep(200);
+		assertEquals(2, mServer.getRequestCount("/lists/1.json"));
+		int completed = 0;
+		for (StubServer.Request request : mServer.getRequests()) {
+			if (request.path.equals("/lists/1.json") && request.status == 200) { completed++; }
+		}
+		assertEquals(1, completed);
+	}
+
+	@Test
+	public void queuedListIsSkippedOnceOpened() throws Exception {
+		mServer.addList(3, "Numbers", 20, false);
+		mServer.setLatency("/lists/", 300);
+		mPrefetcher.start(1, lists());
+		waitForRequests(Prefetcher.THREADS);
+		int queued = 0;
+		for (int id=1; id<=3; id++) {
+			if (mServer.getRequestCount("/lists/" + id + ".json") == 0) { queued = id; }
+		}
+		Prefetcher.cancel(queued);
+		for (int id=1; id<=3; id++) {
+			if (id != queued) { assertTrue(waitFor(id)); }
+		}
+		Thread.sleep(200);
+		assertEquals(0, mServer.getRequestCount("/lists/" + queued + ".json"));
+	}
+
+	/**
+     * Helper method: Returns the stub's lists, stored for user 1 (as Vocabuloid has them once loaded)
+     */
+	private static VocabularyList[] lists() {
+		User user = new User(sContext);
+		user.getRemoteData();
+		user.getRemoteLists();
+		return user.getLists();
+	}
+
+	/**
+     * Helper method: Waits (up to 5 seconds) for a number of requests to be in flight
+     */
+	private void waitForRequests(int count) throws InterruptedException {
+		for (int i=0; i<500 && mServer.getInFlightCount() < count; i++) { Thread.sleep(10); }
+		assertEquals(count, mServer.getInFlightCount());
+	}
+
+	/**
+     * Helper method: Waits (up to 10 seconds) for a list to be stored, along with its validator (stored last)
+     */
+	private static boolean waitFor(int listId) throws InterruptedException {
+		DeckStore store = DeckStore.getInstance(sContext);
+		for (int i=0; i<1000; i++) {
+			if (store.hasVocabularies(listId) && store.getValidator("/lists/" + listId + ".json") != null) { return true; }
+			Thread.sleep(10);
+		}
+		return false;
+	}
+}
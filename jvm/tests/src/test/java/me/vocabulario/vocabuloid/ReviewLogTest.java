@@ -0,0 +1,110 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the uploads of {@link ReviewLog ReviewLog} against {@link StubServer StubServer}
+ */
+public class ReviewLogTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		signOut();
+		mServer = new StubServer();
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void uploadsFullBatch() throws Exception {
+		signIn("alice");
+		review(1, ReviewLog.UPLOAD_BATCH);
+		await(ReviewLog.UPLOAD_BATCH);
+		assertEquals(0, ReviewLog.getInstance(sContext).getUnsentCount());
+		assertEquals(1, posts().size());
+		assertEquals(1, new JSONObject(mServer.getReviews().get(0)).getInt("vocabulary_id"));
+	}
+
+	@Test
+	public void uploadsWithCredentialsOfNewUser() throws Exception {
+		signIn("alice");
+		review(1, ReviewLog.UPLOAD_BATCH);
+		await(ReviewLog.UPLOAD_BATCH);
+		signOut();
+		signIn("bob");
+		review(2, ReviewLog.UPLOAD_BATCH);
+		await(2 * ReviewLog.UPLOAD_BATCH);
+		List<StubServer.Request> posts = posts();
+		assertEquals(2, posts.size());
+		assertEquals("alice", posts.get(0).token);
+		assertEquals("bob", posts.get(1).token);
+		assertEquals(2, new JSONObject(mServer.getReviews().get(ReviewLog.UPLOAD_BATCH)).getInt("vocabulary_id"));
+	}
+
+	/**
+     * Helper method: Appends reviews of a vocabulary
+     */
+	private static void review(int vocabularyId, int count) {
+		for (int i=0; i<count; i++) {
+			ReviewLog.getInstance(sContext).append(vocabularyId, Scheduler.GRADE_GOOD, System.currentTimeMillis());
+		}
+	}
+
+	/**
+     * Helper method: Waits until the stub has received a number of reviews and the log has recorded the upload
+     */
+	private void await(int reviews) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		while ((mServer.getReviews().size() < reviews || ReviewLog.getInstance(sContext).getUnsentCount() > 0) && System.currentTimeMillis() < end) {
+			Thread.sleep(20);
+		}
+		assertEquals(reviews, mServer.getReviews().size());
+	}
+
+	/**
+     * Helper method: Returns the uploads received by the stub
+     */
+	private List<StubServer.Request> posts() {
+		List<StubServer.Request> posts = new ArrayList<StubServer.Request>();
+		for (StubServer.Request request : mServer.getRequests()) {
+			if (request.method.equals("POST") && request.path.equals("/reviews.json")) { posts.add(request); }
+		}
+		return posts;
+	}
+
+	/**
+     * Helper method: Stores the access token of a user (as the OAuth flow does)
+     */
+	private void signIn(String user) {
+		sContext.getSharedPreferences(RestClient.PREFERENCES, 0).edit().putString("accessToken", user).putString("accessSecret", user + "-secret").commit();
+	}
+
+	/**
+     * Helper method: Signs out the way Vocabuloid.signOut does
+     */
+	private void signOut() {
+		sContext.getSharedPreferences(RestClient.PREFERENCES, 0).edit().remove("accessToken").remove("accessSecret").commit();
+		DeckStore.getInstance(sContext).clear();
+		ReviewLog.getInstance(sContext).clear();
+		TenseCatalogue.reset();
+	}
+}
@@ -0,0 +1,102 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the ordering of {@link Scheduler Scheduler} and that it stays responsive with 100k cards: the card due
+ * next can be read while reviews are being recorded, and reviewing doesn't get slower with the size of the list
+ */
+public class SchedulerTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		DeckStore.getInstance(sContext).clear();
+		ReviewLog.getInstance(sContext).clear();
+		mServer = new StubServer();
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void ordersOverdueThenNewThenLater() {
+		Scheduler scheduler = new Scheduler(sContext, table(5));
+		scheduler.restore(4, 1, 1, Scheduler.DEFAULT_EASE, 1);
+		scheduler.load(1);
+		assertEquals(4, scheduler.peek());
+		scheduler.review(4, Scheduler.GRADE_GOOD);
+		scheduler.review(0, Scheduler.GRADE_AGAIN);
+		int[] order = scheduler.getOrder();
+		assertEquals(1, order[0]);
+		assertEquals(1, scheduler.peek());
+		assertTrue(scheduler.isDue(1));
+		assertTrue(!scheduler.isDue(0));
+		assertEquals(0, order[3]);
+		assertEquals(4, order[4]);
+	}
+
+	@Test
+	public void staysResponsiveWith100kCards() throws Exception {
+		double[] perReview = new double[2];
+		int[] sizes = { 1000, 100000 };
+		for (int s=0; s<sizes.length; s++) {
+			long start = System.nanoTime();
+			final Scheduler scheduler = new Scheduler(sContext, table(sizes[s]));
+			scheduler.load(1);
+			long loaded = System.nanoTime() - start;
+			final int reviews = 500;
+			final int step = sizes[s] / reviews;
+			Thread reviewer = new Thread() {
+				@Override
+				public void run() {
+					for (int i=0; i<reviews; i++) { scheduler.review(i * step, i % 3 == 0 ? Scheduler.GRADE_AGAIN : Scheduler.GRADE_GOOD); }
+				}
+			};
+			start = System.nanoTime();
+			reviewer.start();
+			long maxPeek = 0;
+			while (reviewer.isAlive()) {
+				long before = System.nanoTime();
+				scheduler.isDue(scheduler.peek());
+				maxPeek = Math.max(maxPeek, System.nanoTime() - before);
+			}
+			reviewer.join();
+			perReview[s] = (System.nanoTime() - start) / 1e6 / reviews;
+			start = System.nanoTime();
+			int[] order = scheduler.getOrder();
+			long ordered = System.nanoTime() - start;
+			assertEquals(sizes[s], order.length);
+			assertEquals(1, order[0]);
+			assertTrue(!scheduler.isDue(order[sizes[s] - 1]));
+			assertTrue("peek blocked for " + maxPeek / 1000 + " us", maxPeek < 50000000L);
+			assertTrue("order took " + ordered / 1000000 + " ms", ordered < 2000000000L);
+			assertTrue("load took " + loaded / 1000000 + " ms", loaded < 2000000000L);
+		}
+		assertTrue("Review took " + perReview[1] + " ms with 100k cards, " + perReview[0] + " ms with 1k", perReview[1] < perReview[0] * 3 + 1);
+	}
+
+	/**
+     * Helper method: Returns a table of generated vocabularies
+     */
+	private static VocabularyTable table(int size) {
+		VocabularyTable table = new VocabularyTable(sContext, size);
+		for (int i=0; i<size; i++) { table.addVocabulary(100001 + i, "word " + i, 0, null); }
+		table.setLanguage(StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+		return table;
+	}
+}
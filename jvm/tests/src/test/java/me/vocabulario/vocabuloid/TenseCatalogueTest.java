@@ -0,0 +1,125 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link TenseCatalogue TenseCatalogue} against {@link StubServer StubServer}, and the tense a verb list
+ * selects from it (also while it is streamed)
+ */
+public class TenseCatalogueTest {
+
+	/** Context (shared, as the singletons under test keep the first one they get) */
+	private static final StubContext sContext = new StubContext();
+	private StubServer mServer;
+
+	@Before
+	public void setUp() throws Exception {
+		signOut();
+		mServer = new StubServer();
+		RestClient.setBaseUrl(mServer.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void loadsTensesOncePerLanguage() {
+		signIn("alice");
+		Hashtable<Integer,String> tenses = TenseCatalogue.getInstance(sContext).getTenses(1);
+		assertEquals(3, tenses.size());
+		assertEquals("Presente", tenses.get(1));
+		TenseCatalogue.getInstance(sContext).getTenses(1);
+		assertEquals(1, mServer.getRequestCount("/tenses.json"));
+	}
+
+	@Test
+	public void resetDropsCachedTenses() {
+		signIn("alice");
+		TenseCatalogue before = TenseCatalogue.getInstance(sContext);
+		before.getTenses(1);
+		signOut();
+		signIn("bob");
+		TenseCatalogue after = TenseCatalogue.getInstance(sContext);
+		assertNotSame(before, after);
+		assertEquals(3, after.getTenses(1).size());
+		assertEquals(2, mServer.getRequestCount("/tenses.json"));
+		assertEquals("alice", mServer.getRequests().get(0).token);
+		assertEquals("bob", mServer.getRequests().get(1).token);
+	}
+
+	@Test
+	public void verbListSelectsFirstTenseUnlessOneIsPicked() {
+		signIn("alice");
+		VocabularyList list = verbList();
+		assertEquals(null, list.getTo());
+		list.getTenses();
+		assertEquals(1, list.getSelectedTenseId());
+		assertEquals("Presente", list.getTo());
+
+		VocabularyList picked = verbList();
+		picked.setSelectedTense(2);
+		picked.getTenses();
+		assertEquals(2, picked.getSelectedTenseId());
+		assertEquals(picked.getTenses().get(2), picked.getTo());
+	}
+
+	@Test
+	public void streamedVerbCardsHaveHeadings() {
+		signIn("alice");
+		mServer.addList(2, "Verbs", 2 * VocabularyList.BATCH_SIZE, true);
+		final VocabularyList list = new VocabularyList(sContext);
+		list.setId(2);
+		final ArrayList<String> headings = new ArrayList<String>();
+		list.setOnBatchLoadedListener(new VocabularyList.OnBatchLoadedListener() {
+			public void onBatchLoaded(Vocabulary[] batch) {
+				headings.add(list.getTo());
+			}
+		});
+		list.getRemoteData();
+		assertEquals(2, headings.size());
+		assertEquals("Presente", headings.get(0));
+		assertEquals("Presente", headings.get(1));
+		assertEquals(1, mServer.getRequestCount("/tenses.json"));
+	}
+
+	/**
+     * Helper method: Returns a verb list (as opened from Search, without a tense)
+     */
+	private static VocabularyList verbList() {
+		VocabularyList list = new VocabularyList(sContext);
+		list.setId(2);
+		list.setType("spanish_verb_list");
+		list.setLanguageFromId(1);
+		return list;
+	}
+
+	/**
+     * Helper method: Stores the access token of a user (as the OAuth flow does)
+     */
+	private void signIn(String user) {
+		sContext.getSharedPreferences(RestClient.PREFERENCES, 0).edit().putString("accessToken", user).putString("accessSecret", user + "-secret").commit();
+	}
+
+	/**
+     * Helper method: Signs out the way Vocabuloid.signOut does
+     */
+	private void signOut() {
+		sContext.getSharedPreferences(RestClient.PREFERENCES, 0).edit().remove("accessToken").remove("accessSecret").commit();
+		DeckStore.getInstance(sContext).clear();
+		ReviewLog.getInstance(sContext).clear();
+		TenseCatalogue.reset();
+	}
+}
@@ -0,0 +1,194 @@
+package me.vocabulario.vocabuloid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+
+import me.vocabulario.vocabuloid.stub.Heap;
+import me.vocabulario.vocabuloid.stub.StubContext;
+import me.vocabulario.vocabuloid.stub.StubServer;
+
+import org.junit.Test;
+
+import android.content.Context;
+
+/**
+ * Tests {@link VocabularyTable VocabularyTable} and compares its heap size at 10k and 100k vocabularies with the
+ * object-per-vocabulary layout it replaced
+ */
+public class VocabularyTableTest {
+
+	private final StubContext mContext = new StubContext();
+
+	@Test
+	public void readsVocabulariesAndTranslations() throws Exception {
+		VocabularyTable table = read(payload(3, false));
+		assertEquals(3, table.size());
+		assertEquals(100001, table.getId(1));
+		assertEquals(StubServer.word(100001, 2), table.getWord(1));
+		assertEquals(StubServer.LANGUAGE_FROM_NAME, table.getLanguageName(1));
+		assertEquals(3, table.getTranslationEnd(1) - table.getTranslationStart(1));
+		int translation = table.getTranslationStart(1);
+		assertEquals(1000010, table.getTranslationId(translation));
+		assertEquals(StubServer.LANGUAGE_TO_ID, table.getTranslationLanguageId(translation));
+		assertEquals(StubServer.LANGUAGE_TO_NAME, table.getTranslationLanguageName(translation));
+		assertEquals("palabra \u00f1 100001.0\npalabra \u00f1 100001.1\npalabra \u00f1 100001.2", new Vocabulary(table, 1).getTranslationsAsFormattedString(0));
+	}
+
+	@Test
+	public void readsConjugations() throws Exception {
+		VocabularyTable table = read(payload(2, true));
+		assertEquals(6, table.getConjugationEnd(1) - table.getConjugationStart(1));
+		assertTrue(new Vocabulary(table, 1).getConjugationsAsFormattedString(0), new Vocabulary(table, 1).getConjugationsAsFormattedString(0).startsWith("yo - habla100001\n"));
+		assertEquals(0, table.getTranslationEnd(1) - table.getTranslationStart(1));
+	}
+
+	@Test
+	public void mergesChangesAndDeletions() throws Exception {
+		VocabularyTable table = read(payload(5, false));
+		VocabularyTable changes = new VocabularyTable(mContext, 2);
+		changes.addVocabulary(100001, "changed", 0, null);
+		changes.addTranslation(1, "cambiado", StubServer.LANGUAGE_TO_ID, StubServer.LANGUAGE_TO_NAME);
+		changes.addVocabulary(100009, "added", 0, null);
+		changes.setLanguage(StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+		int[] rows = new int[2];
+		VocabularyTable merged = table.merge(changes, new HashSet<Integer>(Collections.singleton(100003)), rows);
+		assertEquals(5, merged.size());
+		assertEquals("changed", merged.getWord(rows[0]));
+		assertEquals("cambiado", new Vocabulary(merged, rows[0]).getTranslationsAsFormattedString(0));
+		assertEquals("added", merged.getWord(rows[1]));
+		for (int i=0; i<merged.size(); i++) { assertTrue(merged.getId(i) != 100003); }
+	}
+
+	@Test
+	public void heapSizeAt10kAnd100k() throws Exception {
+		for (int size : new int[] { 10000, 100000 }) {
+			byte[] payload = payload(size, false);
+			long base = Heap.used();
+			VocabularyTable table = read(payload);
+			long columnar = Heap.used() - base;
+			assertEquals(size, table.size());
+			table = null;
+			base = Heap.used();
+			ArrayList<OldVocabulary> objects = readObjects(payload);
+			long objectPerVocabulary = Heap.used() - base;
+			assertEquals(size, objects.size());
+			objects = null;
+			assertTrue("Table takes " + columnar + " bytes, objects " + objectPerVocabulary, columnar * 10 < objectPerVocabulary * 6);
+		}
+	}
+
+	/**
+     * Helper method: Returns the payload of a generated list
+     */
+	private static byte[] payload(int size, boolean verbs) throws Exception {
+		StubServer server = new StubServer();
+		try {
+			server.addList(1, "List", size, verbs);
+			return server.getListJson(1).getBytes("UTF-8");
+		}
+		finally { server.stop(); }
+	}
+
+	/**
+     * Helper method: Streams the vocabularies of a payload into a table
+     */
+	private VocabularyTable read(byte[] payload) throws Exception {
+		JsonPullReader reader = open(payload);
+		VocabularyTable table = new VocabularyTable(mContext, 16);
+		while (reader.hasNext()) { table.read(reader); }
+		reader.close();
+		table.setLanguage(StubServer.LANGUAGE_FROM_ID, StubServer.LANGUAGE_FROM_NAME);
+		table.trim();
+		return table;
+	}
+
+	/**
+     * Helper method: Streams the vocabularies of a payload into one object per vocabulary and translation (the
+     * layout before VocabularyTable)
+     */
+	private ArrayList<OldVocabulary> readObjects(byte[] payload) throws Exception {
+		JsonPullReader reader = open(payload);
+		ArrayList<OldVocabulary> vocabularies = new ArrayList<OldVocabulary>();
+		while (reader.hasNext()) {
+			OldVocabulary vocabulary = new OldVocabulary(mContext);
+			vocabulary.type = "Vocabulary";
+			vocabulary.languageId = StubServer.LANGUAGE_FROM_ID;
+			vocabulary.languageName = new String(StubServer.LANGUAGE_FROM_NAME);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("id")) { vocabulary.id = reader.nextInt(); }
+				else if (name.equals("word")) { vocabulary.word = reader.nextString(); }
+				else if (name.equals("translation")) {
+					ArrayList<OldVocabulary> translations = new ArrayList<OldVocabulary>();
+					reader.beginArray();
+					while (reader.hasNext()) {
+						OldVocabulary translation = new OldVocabulary(mContext);
+						translation.type = "Vocabulary";
+						reader.beginObject();
+						while (reader.hasNext()) {
+							String key = reader.nextName();
+							if (key.equals("id")) { translation.id = reader.nextInt(); }
+							else if (key.equals("word")) { translation.word = reader.nextString(); }
+							else if (key.equals("language")) {
+								reader.beginObject();
+								while (reader.hasNext()) {
+									if (reader.nextName().equals("id")) { translation.languageId = reader.nextInt(); }
+									else { translation.languageName = reader.nextString(); }
+								}
+								reader.endObject();
+							}
+							else { reader.skipValue(); }
+						}
+						reader.endObject();
+						translations.add(translation);
+					}
+					reader.endArray();
+					vocabulary.translations = translations.toArray(new OldVocabulary[translations.size()]);
+				}
+				else { reader.skipValue(); }
+			}
+			reader.endObject();
+			vocabularies.add(vocabulary);
+		}
+		reader.close();
+		return vocabularies;
+	}
+
+	/**
+     * Helper method: Opens a reader positioned inside the vocabularies array of a payload
+     */
+	private static JsonPullReader open(byte[] payload) throws Exception {
+		JsonPullReader reader = new JsonPullReader(new InputStreamReader(new ByteArrayInputStream(payload), "UTF-8"));
+		reader.beginObject();
+		reader.nextName();
+		reader.beginObject();
+		while (!reader.nextName().equals("vocabularies")) { reader.skipValue(); }
+		reader.beginArray();
+		return reader;
+	}
+
+	/**
+	 * Fields of a Vocabulary before VocabularyTable (one object per vocabulary and translation)
+	 */
+	private static class OldVocabulary {
+		Context context;
+		int id;
+		String word;
+		String type;
+		int languageId;
+		String languageName;
+		OldVocabulary[] translations;
+		String[] conjugation;
+
+		OldVocabulary(Context context) {
+			this.context = context;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import android.content.Context;
+
+/**
+ * Binary copy of the {@link VocabularyTable VocabularyTable} of a stored list ("decks/listId.pack" in the files
+ * directory), so opening a deck maps one file instead of querying and merging three tables in {@link DeckStore
+ * DeckStore}. The database stays the source of truth: packs are rewritten whenever a list is stored in full,
+ * dropped when changes are merged into it and rebuilt from the database if missing, outdated or corrupt.
+ *
+ * Layout (little-endian): magic "VDPK", format version, payload length, CRC32 of payload, payload (see
+ * {@link VocabularyTable#toPack() VocabularyTable.toPack}).
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class DeckPack {
+
+	/** Magic number at the start of every pack ("VDPK") */
+	static final int MAGIC = 0x4B504456;
+	/** Format version (packs with a different version are rebuilt) */
+	static final int VERSION = 1;
+	/** Size of header in bytes */
+	static final int HEADER_SIZE = 16;
+	/** Name of directory holding packs */
+	private static final String DIRECTORY = "decks";
+
+	private DeckPack() {}
+
+	/**
+     * Writes the pack of a list (replacing an existing one atomically)
+     *
+     * @param ctx Context needed for accessing the files directory
+     * @param listId Id of list
+     * @param table Complete table of list
+     */
+	public static void write(Context ctx, int listId, VocabularyTable table) {
+		File file = getFile(ctx, listId);
+		File temp = new File(file.getPath() + ".tmp");
+		try {
+			file.getParentFile().mkdirs();
+			ByteBuffer payload = table.toPack();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(payload.remaining()).putInt((int) checksum(payload.duplicate()));
+			header.flip();
+			FileOutputStream out = new FileOutputStream(temp);
+			try {
+				FileChannel channel = out.getChannel();
+				while (header.hasRemaining()) { channel.write(header); }
+				while (payload.hasRemaining()) { channel.write(payload); }
+				out.getFD().sync();
+			}
+			finally { out.close(); }
+			if (!temp.renameTo(file)) { throw new IOException("Couldn't rename " + temp); }
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			temp.delete();
+		}
+	}
+
+	/**
+     * Reads the pack of a list. The file is memory-mapped, words are decoded when first accessed.
+     *
+     * @param ctx Context needed for accessing the files directory
+     * @param listId Id of list
+     * @return Table of list, or null if there's no valid pack (an invalid one is deleted)
+     */
+	public static VocabularyTable read(Context ctx, int listId) {
+		File file = getFile(ctx, listId);
+		if (!file.exists()) { return null; }
+		try {
+			FileInputStream in = new FileInputStream(file);
+			MappedByteBuffer buffer;
+			try {
+				FileChannel channel = in.getChannel();
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			finally { in.close(); }
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) { throw new IOException("Not a deck pack: " + file); }
+			int version = buffer.getInt();
+			if (version != VERSION) { throw new IOException("Unsupported deck pack version " + version + ": " + file); }
+			int length = buffer.getInt();
+			int crc = buffer.getInt();
+			if (length != buffer.remaining()) { throw new IOException("Truncated deck pack: " + file); }
+			ByteBuffer payload = buffer.slice();
+			if ((int) checksum(payload.duplicate()) != crc) { throw new IOException("Corrupt deck pack: " + file); }
+			return VocabularyTable.fromPack(ctx, payload);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			file.delete();
+			return null;
+		}
+	}
+
+	/**
+     * Deletes the pack of a list (if any)
+     *
+     * @param ctx Context needed for accessing the files directory
+     * @param listId Id of list
+     */
+	public static void delete(Context ctx, int listId) {
+		getFile(ctx, listId).delete();
+	}
+
+	/**
+     * Deletes all packs
+     *
+     * @param ctx Context needed for accessing the files directory
+     */
+	public static void clear(Context ctx) {
+		File[] files = new File(ctx.getFilesDir(), DIRECTORY).listFiles();
+		if (files == null) { return; }
+		for (File file : files) { file.delete(); }
+	}
+
+	/**
+     * Helper method: Returns the file holding the pack of a list
+     */
+	private static File getFile(Context ctx, int listId) {
+		return new File(new File(ctx.getFilesDir(), DIRECTORY), listId + ".pack");
+	}
+
+	/**
+     * Helper method: Computes the CRC32 of the remaining bytes of a buffer (in chunks, as mapped buffers have no
+     * backing array)
+     */
+	private static long checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[8192];
+		while (buffer.hasRemaining()) {
+			int length = Math.min(chunk.length, buffer.remaining());
+			buffer.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		return crc.getValue();
+	}
+}
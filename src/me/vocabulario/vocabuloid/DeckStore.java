@@ -0,0 +1,666 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * On-device store for users, lists, vocabularies (including translations and conjugations) and tenses. Models
+ * read from here first, so decks open without waiting for (or needing) the network. Remote data is only used
+ * to refresh the store. Stored vocabularies are indexed for {@link #search(String) search} (see
+ * {@link SearchIndex SearchIndex}). The vocabularies of each list are also kept as a {@link DeckPack DeckPack}, which
+ * is what decks open from.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class DeckStore extends SQLiteOpenHelper {
+
+	/** File name of database */
+	private static final String DATABASE_NAME = "vocabuloid.db";
+	/** Schema version */
+	private static final int DATABASE_VERSION = 7;
+	/** Shared instance (created on first use) */
+	private static DeckStore sInstance;
+	/** Application context (needed for deck packs) */
+	private final Context mContext;
+
+	/**
+     * Returns the shared store
+     *
+     * @param ctx Context needed for opening the database
+     */
+	public static synchronized DeckStore getInstance(Context ctx) {
+		if (sInstance == null) {
+			sInstance = new DeckStore(ctx.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+     * Initializes store
+     *
+     * @param ctx Application context
+     */
+	private DeckStore(Context ctx) {
+		super(ctx, DATABASE_NAME, null, DATABASE_VERSION);
+		mContext = ctx;
+	}
+
+	/**
+     * Creates schema
+     *
+     * @param db Database (inherited)
+     */
+	@Override
+	public void onCreate(SQLiteDatabase db) {
+		db.execSQL("CREATE TABLE users (id INTEGER PRIMARY KEY, name TEXT, admin INTEGER, lists_cursor TEXT)");
+		db.execSQL("CREATE TABLE lists (id INTEGER PRIMARY KEY, user_id INTEGER, position INTEGER, name TEXT, type TEXT, size INTEGER, " +
+				"language_from_id INTEGER, language_from_name TEXT, language_to_id INTEGER, language_to_name TEXT, loaded INTEGER DEFAULT 0, cursor TEXT, opened_at INTEGER DEFAULT 0)");
+		db.execSQL("CREATE INDEX lists_user ON lists (user_id, position)");
+		db.execSQL("CREATE TABLE vocabularies (list_id INTEGER, position INTEGER, id INTEGER, word TEXT, language_id INTEGER, language_name TEXT, " +
+				"PRIMARY KEY (list_id, position))");
+		db.execSQL("CREATE TABLE translations (list_id INTEGER, vocabulary_position INTEGER, position INTEGER, id INTEGER, word TEXT, " +
+				"language_id INTEGER, language_name TEXT, PRIMARY KEY (list_id, vocabulary_position, position))");
+		db.execSQL("CREATE TABLE conjugations (list_id INTEGER, vocabulary_position INTEGER, position INTEGER, text TEXT, " +
+				"PRIMARY KEY (list_id, vocabulary_position, position))");
+		db.execSQL("CREATE TABLE terms (term TEXT, list_id INTEGER, vocabulary_position INTEGER, PRIMARY KEY (term, list_id, vocabulary_position))");
+		db.execSQL("CREATE TABLE tenses (language_id INTEGER, id INTEGER, name TEXT, fetched_at INTEGER, PRIMARY KEY (language_id, id))");
+		db.execSQL("CREATE TABLE validators (path TEXT PRIMARY KEY, etag TEXT, last_modified TEXT, length INTEGER, body TEXT)");
+		db.execSQL("CREATE TABLE IF NOT EXISTS reviews (vocabulary_id INTEGER PRIMARY KEY, repetitions INTEGER, interval INTEGER, ease REAL, due INTEGER)");
+	}
+
+	/**
+     * Upgrades schema. Apart from review state (which only exists on the device), the store only caches remote
+     * data, so it is simply rebuilt (deck packs included).
+     *
+     * @param db Database (inherited)
+     * @param oldVersion Old schema version (inherited)
+     * @param newVersion New schema version (inherited)
+     */
+	@Override
+	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+		for (String table : new String[] { "users", "lists", "vocabularies", "translations", "conjugations", "terms", "tenses", "validators" }) {
+			db.execSQL("DROP TABLE IF EXISTS " + table);
+		}
+		DeckPack.clear(mContext);
+		onCreate(db);
+	}
+
+	/**
+     * Stores user as the current user (keeping the change cursor of its lists)
+     *
+     * @param user User to store
+     */
+	public synchronized void putUser(User user) {
+		SQLiteDatabase db = getWritableDatabase();
+		db.beginTransaction();
+		try {
+			db.execSQL("DELETE FROM users WHERE id <> ?", new Object[] { user.getId() });
+			db.execSQL("INSERT OR IGNORE INTO users (id) VALUES (?)", new Object[] { user.getId() });
+			db.execSQL("UPDATE users SET name = ?, admin = ? WHERE id = ?", new Object[] { user.getName(), user.getAdmin() != null && user.getAdmin() ? 1 : 0, user.getId() });
+			db.setTransactionSuccessful();
+		}
+		finally { db.endTransaction(); }
+	}
+
+	/**
+     * Loads the current user into the passed object
+     *
+     * @param user User to initialize
+     * @return false if no user is stored
+     */
+	public synchronized boolean getUser(User user) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT id, name, admin FROM users LIMIT 1", null);
+		try {
+			if (!c.moveToFirst()) { return false; }
+			user.initialize(c.getInt(0), c.getString(1), c.getInt(2) != 0);
+			return true;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Replaces the stored lists of a user. Lists that no longer exist are dropped along with their vocabularies
+     * (and deck packs), details only known from a full fetch (target language, offline availability) are kept.
+     *
+     * @param userId Id of owning user
+     * @param lists Lists to store
+     * @param cursor Change cursor of the lists (or null)
+     */
+	public synchronized void putLists(int userId, VocabularyList[] lists, String cursor) {
+		SQLiteDatabase db = getWritableDatabase();
+		ArrayList<Integer> removed = new ArrayList<Integer>();
+		db.beginTransaction();
+		try {
+			db.execSQL("UPDATE users SET lists_cursor = ? WHERE id = ?", new Object[] { cursor, userId });
+			db.execSQL("UPDATE lists SET user_id = -1 WHERE user_id = ?", new Object[] { userId });
+			SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO lists (id) VALUES (?)");
+			SQLiteStatement update = db.compileStatement("UPDATE lists SET user_id = ?, position = ?, name = ?, type = ?, size = ?, " +
+					"language_from_id = ?, language_from_name = ? WHERE id = ?");
+			for (int i=0; i<lists.length; i++) {
+				VocabularyList list = lists[i];
+				insert.bindLong(1, list.getId());
+				insert.execute();
+				update.bindLong(1, userId);
+				update.bindLong(2, i);
+				bindString(update, 3, list.getName());
+				update.bindString(4, list.isVerbList() ? "VerbList" : "VocabularyList");
+				update.bindLong(5, list.getSize());
+				update.bindLong(6, list.getLanguageFromId());
+				bindString(update, 7, list.getLanguageFromName());
+				update.bindLong(8, list.getId());
+				update.execute();
+			}
+			insert.close();
+			update.close();
+			Cursor c = db.rawQuery("SELECT id FROM lists WHERE user_id = -1", null);
+			try {
+				while (c.moveToNext()) { removed.add(c.getInt(0)); }
+			}
+			finally { c.close(); }
+			db.execSQL("DELETE FROM lists WHERE user_id = -1");
+			for (String table : new String[] { "vocabularies", "translations", "conjugations", "terms" }) {
+				db.execSQL("DELETE FROM " + table + " WHERE list_id NOT IN (SELECT id FROM lists)");
+			}
+			db.setTransactionSuccessful();
+		}
+		finally { db.endTransaction(); }
+		for (int listId : removed) { DeckPack.delete(mContext, listId); }
+	}
+
+	/**
+     * Returns the stored lists of a user (without vocabularies)
+     *
+     * @param ctx Context passed on to the list objects
+     * @param userId Id of owning user
+     * @return Lists, or null if none are stored
+     */
+	public synchronized VocabularyList[] getLists(Context ctx, int userId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT id, name, type, size, language_from_id, language_from_name, language_to_id, language_to_name " +
+				"FROM lists WHERE user_id = ? ORDER BY position", new String[] { String.valueOf(userId) });
+		try {
+			if (c.getCount() == 0) { return null; }
+			VocabularyList[] lists = new VocabularyList[c.getCount()];
+			for (int i=0; c.moveToNext(); i++) {
+				VocabularyList list = new VocabularyList(ctx);
+				list.setId(c.getInt(0));
+				list.setName(c.getString(1));
+				list.setSize(c.getInt(3));
+				list.setLanguageFromId(c.getInt(4));
+				list.setLanguageFromName(c.getString(5));
+				list.setLanguageToId(c.getInt(6));
+				list.setLanguageToName(c.getString(7));
+				list.setType(c.getString(2).equals("VerbList") ? "_verb_list" : "_vocabulary_list");
+				lists[i] = list;
+			}
+			return lists;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Returns the ids of the stored lists of a user, most recently opened first (then in list order)
+     *
+     * @param userId Id of owning user
+     */
+	public synchronized int[] getListsByUse(int userId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT id FROM lists WHERE user_id = ? ORDER BY opened_at DESC, position",
+				new String[] { String.valueOf(userId) });
+		try {
+			int[] ids = new int[c.getCount()];
+			for (int i=0; c.moveToNext(); i++) { ids[i] = c.getInt(0); }
+			return ids;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Records that a list has been opened (see {@link #getListsByUse(int) getListsByUse})
+     *
+     * @param listId Id of list
+     * @param openedAt Time the list was opened (in ms)
+     */
+	public synchronized void putOpened(int listId, long openedAt) {
+		getWritableDatabase().execSQL("UPDATE lists SET opened_at = ? WHERE id = ?", new Object[] { openedAt, listId });
+	}
+
+	/**
+     * Returns the change cursor of the stored lists of a user
+     *
+     * @param userId Id of owning user
+     * @return Cursor, or null if the lists haven't been stored with one
+     */
+	public synchronized String getListsCursor(int userId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT lists_cursor FROM users WHERE id = ?", new String[] { String.valueOf(userId) });
+		try {
+			return c.moveToFirst() ? c.getString(0) : null;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Returns the change cursor of the stored vocabularies of a list
+     *
+     * @param listId Id of list
+     * @return Cursor, or null if the vocabularies haven't been stored with one
+     */
+	public synchronized String getCursor(int listId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT cursor FROM lists WHERE id = ? AND loaded = 1", new String[] { String.valueOf(listId) });
+		try {
+			return c.moveToFirst() ? c.getString(0) : null;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Determines whether the vocabularies of a list are available offline
+     *
+     * @param listId Id of list
+     */
+	public synchronized boolean hasVocabularies(int listId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT loaded FROM lists WHERE id = ?", new String[] { String.valueOf(listId) });
+		try {
+			return c.moveToFirst() && c.getInt(0) != 0;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Stores a list including all of its vocabularies, translations and conjugations, (re)indexes it for search and
+     * rewrites its deck pack
+     *
+     * @param list Fully loaded list
+     */
+	public synchronized void putVocabularies(VocabularyList list) {
+		SQLiteDatabase db = getWritableDatabase();
+		VocabularyTable vocabularies = list.getTable();
+		DeckPack.delete(mContext, list.getId());
+		db.beginTransaction();
+		try {
+			for (String table : new String[] { "vocabularies", "translations", "conjugations", "terms" }) {
+				db.execSQL("DELETE FROM " + table + " WHERE list_id = ?", new Object[] { list.getId() });
+			}
+			putListDetails(db, list);
+			VocabularyWriter writer = new VocabularyWriter(db, list.getId(), vocabularies);
+			for (int i=0; i<vocabularies.size(); i++) { writer.insert(i); }
+			writer.close();
+			db.setTransactionSuccessful();
+		}
+		finally { db.endTransaction(); }
+		DeckPack.write(mContext, list.getId(), vocabularies);
+	}
+
+	/**
+     * Stores changed rows of a stored list (delta sync). Only the given rows are rewritten, so the cost depends on
+     * the number of changes rather than the size of the list. The deck pack is dropped rather than rewritten (it
+     * is rebuilt the next time the list is opened). Rows must not have moved (use
+     * {@link #putVocabularies(VocabularyList) putVocabularies} after deletions).
+     *
+     * @param list Fully loaded list
+     * @param rows Rows changed or added
+     */
+	public synchronized void putVocabularyChanges(VocabularyList list, int[] rows) {
+		SQLiteDatabase db = getWritableDatabase();
+		VocabularyTable vocabularies = list.getTable();
+		DeckPack.delete(mContext, list.getId());
+		db.beginTransaction();
+		try {
+			putListDetails(db, list);
+			VocabularyWriter writer = new VocabularyWriter(db, list.getId(), vocabularies);
+			for (int row : rows) {
+				db.execSQL("DELETE FROM vocabularies WHERE list_id = ? AND position = ?", new Object[] { list.getId(), row });
+				for (String table : new String[] { "translations", "conjugations", "terms" }) {
+					db.execSQL("DELETE FROM " + table + " WHERE list_id = ? AND vocabulary_position = ?", new Object[] { list.getId(), row });
+				}
+				writer.insert(row);
+			}
+			writer.close();
+			db.setTransactionSuccessful();
+		}
+		finally { db.endTransaction(); }
+	}
+
+	/**
+     * Loads the stored vocabularies (and list details) into the passed list. Vocabularies are mapped from the deck
+     * pack of the list; without a valid pack, vocabularies, translations and conjugations are read with three cursors
+     * ordered by position and merged into one {@link VocabularyTable VocabularyTable}, and the pack is rebuilt.
+     *
+     * @param ctx Context passed on to the vocabulary table
+     * @param list List to fill (id must be set)
+     * @return false if the list isn't available offline
+     */
+	public synchronized boolean getVocabularies(Context ctx, VocabularyList list) {
+		SQLiteDatabase db = getReadableDatabase();
+		String[] listId = new String[] { String.valueOf(list.getId()) };
+		Cursor c = db.rawQuery("SELECT name, type, size, language_from_id, language_from_name, language_to_id, language_to_name, cursor " +
+				"FROM lists WHERE id = ? AND loaded = 1", listId);
+		try {
+			if (!c.moveToFirst()) { return false; }
+			list.setName(c.getString(0));
+			list.setSize(c.getInt(2));
+			list.setLanguageFromId(c.getInt(3));
+			list.setLanguageFromName(c.getString(4));
+			list.setLanguageToId(c.getInt(5));
+			list.setLanguageToName(c.getString(6));
+			list.setType(c.getString(1).equals("VerbList") ? "_verb_list" : "_vocabulary_list");
+			list.setCursor(c.getString(7));
+		}
+		finally { c.close(); }
+
+		VocabularyTable vocabularies = DeckPack.read(ctx, list.getId());
+		if (vocabularies != null) {
+			list.setTable(vocabularies);
+			return true;
+		}
+		vocabularies = new VocabularyTable(ctx, list.getSize());
+		c = db.rawQuery("SELECT id, word, language_id, language_name FROM vocabularies WHERE list_id = ? ORDER BY position", listId);
+		Cursor t = db.rawQuery("SELECT vocabulary_position, id, word, language_id, language_name FROM translations WHERE list_id = ? " +
+				"ORDER BY vocabulary_position, position", listId);
+		Cursor k = db.rawQuery("SELECT vocabulary_position, text FROM conjugations WHERE list_id = ? ORDER BY vocabulary_position, position", listId);
+		try {
+			boolean hasTranslation = t.moveToFirst();
+			boolean hasConjugation = k.moveToFirst();
+			for (int i=0; c.moveToNext(); i++) {
+				vocabularies.addVocabulary(c.getInt(0), c.getString(1), c.getInt(2), c.getString(3));
+				while (hasTranslation && t.getInt(0) <= i) {
+					if (t.getInt(0) == i) { vocabularies.addTranslation(t.getInt(1), t.getString(2), t.getInt(3), t.getString(4)); }
+					hasTranslation = t.moveToNext();
+				}
+				while (hasConjugation && k.getInt(0) <= i) {
+					if (k.getInt(0) == i) { vocabularies.addConjugation(k.getString(1)); }
+					hasConjugation = k.moveToNext();
+				}
+			}
+		}
+		finally {
+			c.close();
+			t.close();
+			k.close();
+		}
+		vocabularies.trim();
+		list.setTable(vocabularies);
+		DeckPack.write(mContext, list.getId(), vocabularies);
+		return true;
+	}
+
+	/**
+     * Searches all stored vocabularies. Every term of the query must be the prefix of a term of the vocabulary, its
+     * translations or conjugations (ignoring case and diacritics).
+     *
+     * @param query Text entered by the user
+     * @return Up to {@link SearchIndex#MAX_RESULTS MAX_RESULTS} vocabularies, ordered by word
+     */
+	public synchronized SearchIndex.Result[] search(String query) {
+		ArrayList<String> terms = SearchIndex.getTerms(query);
+		if (terms.isEmpty()) { return new SearchIndex.Result[0]; }
+		StringBuilder sql = new StringBuilder("SELECT v.list_id, l.name, l.size, v.position, v.word FROM (");
+		String[] args = new String[terms.size() * 2];
+		for (int i=0; i<terms.size(); i++) {
+			if (i > 0) { sql.append(" INTERSECT "); }
+			sql.append("SELECT list_id, vocabulary_position FROM terms WHERE term >= ? AND term < ?");
+			args[i * 2] = terms.get(i);
+			args[i * 2 + 1] = SearchIndex.getUpperBound(terms.get(i));
+		}
+		sql.append(") m JOIN vocabularies v ON v.list_id = m.list_id AND v.position = m.vocabulary_position " +
+				"JOIN lists l ON l.id = v.list_id ORDER BY v.word LIMIT " + SearchIndex.MAX_RESULTS);
+		Cursor c = getReadableDatabase().rawQuery(sql.toString(), args);
+		try {
+			SearchIndex.Result[] results = new SearchIndex.Result[c.getCount()];
+			for (int i=0; c.moveToNext(); i++) {
+				SearchIndex.Result result = new SearchIndex.Result();
+				result.listId = c.getInt(0);
+				result.listName = c.getString(1);
+				result.listSize = c.getInt(2);
+				result.position = c.getInt(3);
+				result.word = c.getString(4);
+				results[i] = result;
+			}
+			return results;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Stores the review state of a vocabulary
+     *
+     * @param vocabularyId Id of vocabulary
+     * @param repetitions Number of successful reviews in a row
+     * @param interval Current interval (in days)
+     * @param ease Ease factor
+     * @param due Due time (in ms)
+     */
+	public synchronized void putReview(int vocabularyId, int repetitions, int interval, float ease, long due) {
+		getWritableDatabase().execSQL("INSERT OR REPLACE INTO reviews (vocabulary_id, repetitions, interval, ease, due) VALUES (?, ?, ?, ?, ?)",
+				new Object[] { vocabularyId, repetitions, interval, ease, due });
+	}
+
+	/**
+     * Loads the review state of all stored vocabularies of a list into a scheduler
+     *
+     * @param listId Id of list
+     * @param scheduler Scheduler to fill (rows are vocabulary positions)
+     */
+	public synchronized void getReviews(int listId, Scheduler scheduler) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT v.position, r.repetitions, r.interval, r.ease, r.due FROM vocabularies v " +
+				"JOIN reviews r ON r.vocabulary_id = v.id WHERE v.list_id = ?", new String[] { String.valueOf(listId) });
+		try {
+			while (c.moveToNext()) {
+				scheduler.restore(c.getInt(0), c.getInt(1), c.getInt(2), c.getFloat(3), c.getLong(4));
+			}
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Replaces the stored tenses of a language
+     *
+     * @param languageId Id of language
+     * @param tenses Tense names by id
+     * @param fetchedAt Time the tenses were fetched from the server
+     */
+	public synchronized void putTenses(int languageId, Hashtable<Integer,String> tenses, long fetchedAt) {
+		SQLiteDatabase db = getWritableDatabase();
+		db.beginTransaction();
+		try {
+			db.execSQL("DELETE FROM tenses WHERE language_id = ?", new Object[] { languageId });
+			for (Map.Entry<Integer,String> tense : tenses.entrySet()) {
+				db.execSQL("INSERT INTO tenses (language_id, id, name, fetched_at) VALUES (?, ?, ?, ?)", new Object[] { languageId, tense.getKey(), tense.getValue(), fetchedAt });
+			}
+			db.setTransactionSuccessful();
+		}
+		finally { db.endTransaction(); }
+	}
+
+	/**
+     * Returns the stored tenses of a language
+     *
+     * @param languageId Id of language
+     * @return Tense names by id, or null if none are stored
+     */
+	public synchronized Hashtable<Integer,String> getTenses(int languageId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT id, name FROM tenses WHERE language_id = ?", new String[] { String.valueOf(languageId) });
+		try {
+			if (c.getCount() == 0) { return null; }
+			Hashtable<Integer,String> tenses = new Hashtable<Integer,String>();
+			while (c.moveToNext()) { tenses.put(c.getInt(0), c.getString(1)); }
+			return tenses;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Returns the time the stored tenses of a language were fetched from the server
+     *
+     * @param languageId Id of language
+     * @return Time in ms, or 0 if no tenses are stored
+     */
+	public synchronized long getTensesFetchedAt(int languageId) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT MIN(fetched_at) FROM tenses WHERE language_id = ?", new String[] { String.valueOf(languageId) });
+		try {
+			return c.moveToFirst() && !c.isNull(0) ? c.getLong(0) : 0;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Stores HTTP cache validators (and body) of a resource
+     *
+     * @param validator Validator to store
+     */
+	public synchronized void putValidator(RestClient.Validator validator) {
+		getWritableDatabase().execSQL("INSERT OR REPLACE INTO validators (path, etag, last_modified, length, body) VALUES (?, ?, ?, ?, ?)",
+				new Object[] { validator.path, validator.etag, validator.lastModified, validator.length, validator.body });
+	}
+
+	/**
+     * Returns HTTP cache validators of a resource
+     *
+     * @param path Relative path to resource
+     * @return Validator, or null if none is stored
+     */
+	public synchronized RestClient.Validator getValidator(String path) {
+		Cursor c = getReadableDatabase().rawQuery("SELECT etag, last_modified, length, body FROM validators WHERE path = ?", new String[] { path });
+		try {
+			if (!c.moveToFirst()) { return null; }
+			RestClient.Validator validator = new RestClient.Validator();
+			validator.path = path;
+			validator.etag = c.getString(0);
+			validator.lastModified = c.getString(1);
+			validator.length = c.getLong(2);
+			validator.body = c.getString(3);
+			return validator;
+		}
+		finally { c.close(); }
+	}
+
+	/**
+     * Removes HTTP cache validators of a resource
+     *
+     * @param path Relative path to resource
+     */
+	public synchronized void removeValidator(String path) {
+		getWritableDatabase().execSQL("DELETE FROM validators WHERE path = ?", new Object[] { path });
+	}
+
+	/**
+     * Removes all stored data (called on sign out)
+     */
+	public synchronized void clear() {
+		SQLiteDatabase db = getWritableDatabase();
+		for (String table : new String[] { "users", "lists", "vocabularies", "translations", "conjugations", "terms", "tenses", "validators", "reviews" }) {
+			db.execSQL("DELETE FROM " + table);
+		}
+		DeckPack.clear(mContext);
+	}
+
+	/**
+     * Helper method: Stores the details of a list and marks it available offline
+     */
+	private static void putListDetails(SQLiteDatabase db, VocabularyList list) {
+		db.execSQL("INSERT OR IGNORE INTO lists (id) VALUES (?)", new Object[] { list.getId() });
+		db.execSQL("UPDATE lists SET name = ?, type = ?, size = ?, language_from_id = ?, language_from_name = ?, language_to_id = ?, " +
+				"language_to_name = ?, loaded = 1, cursor = ? WHERE id = ?", new Object[] { list.getName(), list.isVerbList() ? "VerbList" : "VocabularyList",
+				list.getSize(), list.getLanguageFromId(), list.getLanguageFromName(), list.getLanguageToId(), list.getLanguageToName(), list.getCursor(),
+				list.getId() });
+	}
+
+	/**
+     * Helper method: Binds a String that may be null
+     */
+	private static void bindString(SQLiteStatement statement, int index, String value) {
+		if (value == null) { statement.bindNull(index); }
+		else { statement.bindString(index, value); }
+	}
+
+	/**
+	 * Compiled statements inserting rows of a {@link VocabularyTable VocabularyTable} (with translations,
+	 * conjugations and search terms) into the store
+	 */
+	private static class VocabularyWriter {
+		/** Id of list */
+		private final int listId;
+		/** Vocabularies to insert */
+		private final VocabularyTable vocabularies;
+		/** Statements inserting vocabularies, translations, conjugations and terms */
+		private final SQLiteStatement vocabulary, translation, conjugation, term;
+		/** Terms of the vocabulary being inserted */
+		private final HashSet<String> terms = new HashSet<String>();
+
+		/**
+	     * Compiles statements
+	     *
+	     * @param db Database (in a transaction)
+	     * @param listId Id of list
+	     * @param vocabularies Vocabularies to insert
+	     */
+		VocabularyWriter(SQLiteDatabase db, int listId, VocabularyTable vocabularies) {
+			this.listId = listId;
+			this.vocabularies = vocabularies;
+			vocabulary = db.compileStatement("INSERT INTO vocabularies (list_id, position, id, word, language_id, language_name) VALUES (?, ?, ?, ?, ?, ?)");
+			translation = db.compileStatement("INSERT INTO translations (list_id, vocabulary_position, position, id, word, language_id, language_name) " +
+					"VALUES (?, ?, ?, ?, ?, ?, ?)");
+			conjugation = db.compileStatement("INSERT INTO conjugations (list_id, vocabulary_position, position, text) VALUES (?, ?, ?, ?)");
+			term = db.compileStatement("INSERT INTO terms (term, list_id, vocabulary_position) VALUES (?, ?, ?)");
+		}
+
+		/**
+	     * Inserts a vocabulary at its row
+	     *
+	     * @param i Row of vocabulary
+	     */
+		void insert(int i) {
+			terms.clear();
+			terms.addAll(SearchIndex.getTerms(vocabularies.getWord(i)));
+			vocabulary.bindLong(1, listId);
+			vocabulary.bindLong(2, i);
+			vocabulary.bindLong(3, vocabularies.getId(i));
+			bindString(vocabulary, 4, vocabularies.getWord(i));
+			vocabulary.bindLong(5, vocabularies.getLanguageId(i));
+			bindString(vocabulary, 6, vocabularies.getLanguageName(i));
+			vocabulary.executeInsert();
+			int start = vocabularies.getTranslationStart(i);
+			for (int j=start; j<vocabularies.getTranslationEnd(i); j++) {
+				translation.bindLong(1, listId);
+				translation.bindLong(2, i);
+				translation.bindLong(3, j - start);
+				translation.bindLong(4, vocabularies.getTranslationId(j));
+				bindString(translation, 5, vocabularies.getTranslationWord(j));
+				translation.bindLong(6, vocabularies.getTranslationLanguageId(j));
+				bindString(translation, 7, vocabularies.getTranslationLanguageName(j));
+				translation.executeInsert();
+				terms.addAll(SearchIndex.getTerms(vocabularies.getTranslationWord(j)));
+			}
+			start = vocabularies.getConjugationStart(i);
+			for (int j=start; j<vocabularies.getConjugationEnd(i); j++) {
+				conjugation.bindLong(1, listId);
+				conjugation.bindLong(2, i);
+				conjugation.bindLong(3, j - start);
+				bindString(conjugation, 4, vocabularies.getConjugation(j));
+				conjugation.executeInsert();
+				terms.addAll(SearchIndex.getTerms(vocabularies.getConjugation(j)));
+			}
+			for (String t : terms) {
+				term.bindString(1, t);
+				term.bindLong(2, listId);
+				term.bindLong(3, i);
+				term.executeInsert();
+			}
+		}
+
+		/** Releases statements */
+		void close() {
+			vocabulary.close();
+			translation.close();
+			conjugation.close();
+			term.close();
+		}
+	}
+}
@@ -1,41 +1,60 @@
 package me.vocabulario.vocabuloid;
 
-import java.util.Enumeration;
-import java.util.Hashtable;
-
 import me.vocabulario.vocabuloid.R;
 
 import android.app.Activity;
 import android.app.Dialog;
 import android.app.ProgressDialog;
+import android.content.DialogInterface;
 import android.os.AsyncTask;
 import android.os.Bundle;
-import android.view.Gravity;
+import android.support.v4.view.ViewPager;
 import android.view.KeyEvent;
-import android.view.MotionEvent;
-import android.view.ViewGroup;
-import android.view.animation.AccelerateInterpolator;
-import android.view.animation.Animation;
-import android.view.animation.TranslateAnimation;
-import android.widget.LinearLayout;
-import android.widget.TextView;
-import android.widget.ViewFlipper;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.Window;
 
 /**
  * Flashcard is the heart of the Vocabuloid application. It loads vocabularies and their translations from vocabulario.me
- * and displays them as flippable flash cards. 
+ * and displays them as flippable flash cards (see {@link FlashcardAdapter FlashcardAdapter}). Cards due for review
+ * come first, and grading a card reschedules it (see {@link Scheduler Scheduler}).
+ *
+ * A loaded deck is handed over to the new instance on configuration changes (see {@link Deck Deck}), so rotating
+ * doesn't load or format it again. After the process has been killed, the deck is loaded again (usually from
+ * {@link DeckStore DeckStore}) and the current card and shuffle order are restored from the saved instance state.
  *
  * @author Ulf Moehring
  * @version 0.3
  */
 public class Flashcard extends Activity {
 
-	/** Container for the individual flash cards */
-	private ViewFlipper mCardholder;
-	/** Old touch value when flipping to next flash card */
-	private float mOldTouchValue;
+	/** Container for the individual flash cards (swiping is handled by the pager) */
+	private ViewPager mCardholder;
+	/** Adapter holding the cards (created with the first batch) */
+	private FlashcardAdapter mAdapter;
+	/** Review scheduler for the current list (set once the list is fully loaded) */
+	private Scheduler mScheduler;
+	/** List being studied */
+	private VocabularyList mList;
+	/** Task loading the list (or null once done) */
+	private LoadVocabularies mLoader;
+	/** Row of the card to show first (e.g. a search result), or -1 */
+	private int mJumpTo = -1;
+	/** Seed to shuffle cards with once loaded (restored after the process has been killed), or 0 */
+	private long mShuffleSeed;
+	/** Whether the deck has been handed over to the next instance (so it mustn't be cancelled) */
+	private boolean mRetained;
 	/** Name for progress dialog shown when loading vocabularies */
 	public static final int DIALOG_LOADING_VOCABULARIES = 0;
+	/** Time (in ms) loading a list from the server may take overall, including retries */
+	private static final long LOAD_DEADLINE = 60000;
+	/** Key for the row of the current card in the saved instance state */
+	private static final String STATE_ROW = "me.vocabulario.vocabuloid.row";
+	/** Key for the shuffle seed in the saved instance state (0 if not shuffled) */
+	private static final String STATE_SEED = "me.vocabulario.vocabuloid.seed";
 	/** Progress dialog object */
 	ProgressDialog mProgressDialog;
 	/** Numbers of vocabularies in current list */
@@ -49,14 +68,158 @@ public class Flashcard extends Activity {
     @Override
     public void onCreate(Bundle savedInstanceState) {
     	super.onCreate(savedInstanceState);
+    	requestWindowFeature(Window.FEATURE_PROGRESS);
     	setContentView(R.layout.flashcard);
     	int listId = this.getIntent().getExtras().getInt("me.vocabulario.vocabuloid.listId");
     	listSize = this.getIntent().getExtras().getInt("me.vocabulario.vocabuloid.listSize");
     	int tenseId = this.getIntent().getExtras().getInt("me.vocabulario.vocabuloid.tenseId");
-        VocabularyList list = new VocabularyList(this);
-        list.setId(listId);
-        if (tenseId > 0) { list.setSelectedTense(tenseId); }
-        new LoadVocabularies().execute(list);
+    	mJumpTo = this.getIntent().getExtras().getInt("me.vocabulario.vocabuloid.position", -1);
+        for (int id : new int[] { R.id.grade_again, R.id.grade_good, R.id.grade_easy }) {
+        	findViewById(id).setOnClickListener(mGradeListener);
+        }
+        Deck deck = (Deck) getLastNonConfigurationInstance();
+        if (deck != null) {
+        	mList = deck.list;
+        	mScheduler = deck.scheduler;
+        	mAdapter = new FlashcardAdapter(this, deck.adapter);
+        	mCardholder = (ViewPager)findViewById(R.id.cardholder);
+        	mCardholder.setAdapter(mAdapter);
+        	mCardholder.setCurrentItem(deck.page);
+        	enableGrading();
+        	return;
+        }
+        if (savedInstanceState != null && savedInstanceState.containsKey(STATE_ROW)) {
+        	mJumpTo = savedInstanceState.getInt(STATE_ROW);
+        	mShuffleSeed = savedInstanceState.getLong(STATE_SEED);
+        }
+        mList = new VocabularyList(getApplicationContext());
+        mList.setId(listId);
+        if (tenseId > 0) { mList.setSelectedTense(tenseId); }
+        mLoader = new LoadVocabularies();
+        mLoader.execute(mList);
+    }
+    
+    /** 
+     * Called before the activity is recreated for a configuration change. Hands a fully loaded deck over to the
+     * new instance (a deck still loading is loaded again).
+     *
+     * @return {@link Deck Deck}, or null
+     */
+    @Override
+    public Object onRetainNonConfigurationInstance() {
+    	if (mScheduler == null || mAdapter == null) { return null; }
+    	mRetained = true;
+    	return new Deck(mList, mScheduler, mAdapter, mCardholder.getCurrentItem());
+    }
+    
+    /** 
+     * Called before the activity may be killed. Saves the row of the current card and the shuffle seed (the deck
+     * itself is loaded again).
+     *
+     * @param outState Bundle to save to (inherited)
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+    	super.onSaveInstanceState(outState);
+    	if (mAdapter == null || mAdapter.getCount() == 0) { return; }
+    	outState.putInt(STATE_ROW, mAdapter.getRow(mCardholder.getCurrentItem() / 2));
+    	outState.putLong(STATE_SEED, mAdapter.isShuffled() ? mAdapter.getSeed() : 0);
+    }
+    
+    /** 
+     * Called when the activity is destroyed. Stops loading (aborting any request in flight), unless the deck has
+     * been handed over to the next instance.
+     */
+    @Override
+    protected void onDestroy() {
+    	if (!mRetained) { cancelLoading(); }
+    	super.onDestroy();
+    }
+    
+    /** 
+     * Helper method: Enables the grade buttons (once the deck is fully loaded)
+     */
+    private void enableGrading() {
+    	for (int id : new int[] { R.id.grade_again, R.id.grade_good, R.id.grade_easy }) {
+			findViewById(id).setEnabled(true);
+		}
+    }
+    
+    /** 
+     * Helper method: Cancels {@link LoadVocabularies LoadVocabularies} and {@link RefreshVocabularies RefreshVocabularies},
+     * aborting the download and stopping the parser
+     */
+    private void cancelLoading() {
+    	if (mLoader != null) {
+    		mLoader.cancel(false);
+    		mLoader = null;
+    	}
+    	mList.cancel();
+    }
+    
+    /** 
+     * Called when user grades the current card. Records the review (see {@link ReviewCard ReviewCard}) and
+     * moves on to the next card.
+     */
+    private OnClickListener mGradeListener = new OnClickListener() {
+    	public void onClick(View v) {
+    		if (mScheduler == null || mAdapter == null) { return; }
+    		int card = mCardholder.getCurrentItem() / 2;
+    		int grade = Scheduler.GRADE_GOOD;
+    		if (v.getId() == R.id.grade_again) { grade = Scheduler.GRADE_AGAIN; }
+    		if (v.getId() == R.id.grade_easy) { grade = Scheduler.GRADE_EASY; }
+    		new ReviewCard().execute(mAdapter.getRow(card), grade);
+    		if ((card + 1) * 2 < mAdapter.getCount()) { mCardholder.setCurrentItem((card + 1) * 2); }
+    	}
+    };
+    
+    /** 
+     * Called when user hits the phone's menu button. Displays menu/flashcard.xml
+     *
+     * @param Menu Default menu information (inherited)
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        MenuInflater inflater = getMenuInflater();
+        inflater.inflate(R.menu.flashcard, menu);
+        return true;
+    }
+    
+    /** 
+     * Called before the menu is shown. Offers shuffling once all cards are loaded, and going back to due order
+     * once shuffled.
+     *
+     * @param Menu Default menu information (inherited)
+     */
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+    	boolean shuffled = mAdapter != null && mAdapter.isShuffled();
+    	menu.findItem(R.id.shuffle).setVisible(mScheduler != null && !shuffled);
+    	menu.findItem(R.id.unshuffle).setVisible(mScheduler != null && shuffled);
+    	return true;
+    }
+    
+    /** 
+     * Called when user selects one menu item. Shuffles cards (with a new seed) or restores due order, starting
+     * over with the first card.
+     *
+     * @param MenuItem Selected menu item (inherited)
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+    	if (mScheduler == null) { return false; }
+    	switch (item.getItemId()) {
+    		case R.id.shuffle:
+    			mAdapter.shuffle(System.currentTimeMillis());
+    			break;
+    		case R.id.unshuffle:
+    			mAdapter.unshuffle();
+    			break;
+    		default:
+    			return super.onOptionsItemSelected(item);
+    	}
+    	mCardholder.setCurrentItem(0);
+    	return true;
     }
     
     /** 
@@ -73,6 +236,13 @@ public class Flashcard extends Activity {
 				mProgressDialog.setProgressStyle(ProgressDialog.STYLE_SPINNER);
 				mProgressDialog.setMessage(this.getString(R.string.message_dialog_loading_vocabularies));
 				mProgressDialog.setCancelable(true);
+				mProgressDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+					public void onCancel(DialogInterface dialog) {
+						cancelLoading();
+						setResult(RESULT_OK);
+						finish();
+					}
+				});
 				mProgressDialog.show();
 				return mProgressDialog;
 			default:
@@ -81,13 +251,14 @@ public class Flashcard extends Activity {
 	}
 
     /** 
-     * Called when user hits the back button. Quits activity with RESULT_OK.
+     * Called when user hits the back button. Stops loading and quits activity with RESULT_OK.
      *
      * @param keyCode Key hit by user (inherited)
      * @param keyEvent Key event (inherited)
      */
     public boolean onKeyDown(int keyCode, KeyEvent event) {
         if (keyCode == KeyEvent.KEYCODE_BACK) {
+        	cancelLoading();
         	setResult(RESULT_OK);
        	 	finish();
             return true;
@@ -95,175 +266,252 @@ public class Flashcard extends Activity {
         return super.onKeyDown(keyCode, event);
     }
     
-    /** 
-     * Called when user flips the flash card. Shows previous or next flash card, depending on the user motion.
-     *
-     * @param touchevent User gesture (inherited)
-     */
-    public boolean onTouchEvent(MotionEvent touchevent) {
-    	switch (touchevent.getAction()) {
-        	case MotionEvent.ACTION_DOWN: {
-        		mOldTouchValue = touchevent.getX();
-                break;
-            }
-            case MotionEvent.ACTION_UP: {
-            	float currentX = touchevent.getX();
-                if (mOldTouchValue < currentX) {
-                	mCardholder.setInAnimation(inFromLeftAnimation());
-                	mCardholder.setOutAnimation(outToRightAnimation());
-                	mCardholder.showPrevious();
-                }
-                if (mOldTouchValue > currentX) {
-                	mCardholder.setInAnimation(inFromRightAnimation());
-                	mCardholder.setOutAnimation(outToLeftAnimation());
-                	mCardholder.showNext();
-               }
-               break;
-            }
-        }
-    	return false;
-    }
-    
-    /** 
-     * Helper method: Called by {@link LoadVocabularies LoadVocabularies} task to render output as flash cards.
-     *
-     * @param heading Language of the vocabulary, translations or conjugation
-     * @param text Formatted string, containing vocabulary, translations or conjugation
-     */
-    private void renderFlashcard(String heading, String text, String page) {
-    	LinearLayout content = new LinearLayout(this);
-    	content.setGravity(Gravity.FILL_VERTICAL | Gravity.CENTER_HORIZONTAL);
-    	content.setOrientation(LinearLayout.VERTICAL);
-
-    	TextView pageLabel = new TextView(this);
-    	pageLabel.setGravity(Gravity.RIGHT);
-    	pageLabel.setPadding(0, 10, 20, 75);
-    	pageLabel.setTextAppearance(this, R.style.FlashcardPageNumber);
-        pageLabel.setText(page);
-        content.addView(pageLabel, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
-    	
-    	TextView headingLabel = new TextView(this);
-    	headingLabel.setGravity(Gravity.CENTER_HORIZONTAL);
-        headingLabel.setTextAppearance(this, R.style.FlashcardHeading);
-        headingLabel.setText(heading);
-        content.addView(headingLabel, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
-        
-        TextView textLabel = new TextView(this);
-        textLabel.setGravity(Gravity.CENTER_HORIZONTAL);
-        textLabel.setTextAppearance(this, R.style.FlashcardFont);
-        textLabel.setText(text);
-        content.addView(textLabel, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
-        
-        mCardholder.addView(content, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.FILL_PARENT));
-    }
-    
-    /** 
-     * Helper method: Called by {@link onTouchEvent(MotionEvent touchevent) onTouchEvent} to animate switching flash cards.
-     */
-    private Animation inFromRightAnimation() {
-    	Animation inFromRight = new TranslateAnimation(
-    			Animation.RELATIVE_TO_PARENT,  +1.0f, Animation.RELATIVE_TO_PARENT,  0.0f,
-    			Animation.RELATIVE_TO_PARENT,  0.0f, Animation.RELATIVE_TO_PARENT,   0.0f
-    	);
-    	inFromRight.setDuration(500);
-    	inFromRight.setInterpolator(new AccelerateInterpolator());
-    	return inFromRight;
-    }
-    
-    /** 
-     * Helper method: Called by {@link onTouchEvent(MotionEvent touchevent) onTouchEvent} to animate switching flash cards.
-     */
-    private Animation outToLeftAnimation() {
-    	Animation outtoLeft = new TranslateAnimation(
-    			Animation.RELATIVE_TO_PARENT,  0.0f, Animation.RELATIVE_TO_PARENT,  -1.0f,
-    			Animation.RELATIVE_TO_PARENT,  0.0f, Animation.RELATIVE_TO_PARENT,   0.0f
-    	);
-    	outtoLeft.setDuration(500);
-    	outtoLeft.setInterpolator(new AccelerateInterpolator());
-    	return outtoLeft;
-    }
-    
-    /** 
-     * Helper method: Called by {@link onTouchEvent(MotionEvent touchevent) onTouchEvent} to animate switching flash cards.
-     */
-    private Animation inFromLeftAnimation() {
-    	Animation inFromLeft = new TranslateAnimation(
-    			Animation.RELATIVE_TO_PARENT,  -1.0f, Animation.RELATIVE_TO_PARENT,  0.0f,
-    			Animation.RELATIVE_TO_PARENT,  0.0f, Animation.RELATIVE_TO_PARENT,   0.0f
-    	);
-    	inFromLeft.setDuration(500);
-    	inFromLeft.setInterpolator(new AccelerateInterpolator());
-    	return inFromLeft;
-    }
-    
-    /** 
-     * Helper method: Called by {@link onTouchEvent(MotionEvent touchevent) onTouchEvent} to animate switching flash cards.
-     */
-    private Animation outToRightAnimation() {
-    	Animation outtoRight = new TranslateAnimation(
-    			Animation.RELATIVE_TO_PARENT,  0.0f, Animation.RELATIVE_TO_PARENT,  +1.0f,
-    			Animation.RELATIVE_TO_PARENT,  0.0f, Animation.RELATIVE_TO_PARENT,   0.0f
-    	);
-    	outtoRight.setDuration(500);
-    	outtoRight.setInterpolator(new AccelerateInterpolator());
-    	return outtoRight;
-    }
-    
     /**
      * Asynchronous task used by {@link Flashcard Flashcard} to execute the lengthy task of loading vocabularies and
-     * their translations from vocabulario.me
+     * their translations from vocabulario.me. Cards are handed to the UI in batches while the list is streamed in,
+     * so studying can start as soon as the first batch has been parsed.
      *
      * @author Ulf Moehring
-     * @version 0.2
+     * @version 0.3
      */
- 	class LoadVocabularies extends AsyncTask<VocabularyList, Void, Hashtable<String,String>> {
+ 	class LoadVocabularies extends AsyncTask<VocabularyList, Batch, Boolean> implements VocabularyList.OnBatchLoadedListener {
  		
  		/** List to flash cards out of  */
  		private VocabularyList list;
+ 		/** Whether list was loaded from {@link DeckStore DeckStore} */
+ 		private boolean stored;
+ 		/** Number of vocabularies handed to the UI so far (loading thread only) */
+ 		private int published;
+ 		/** Scheduler created once the list is fully loaded */
+ 		private Scheduler scheduler;
+ 		/** Time loading started (System.nanoTime()) */
+ 		private long start;
 
- 		/** Set up {@link ProgressDialog ProgressDialog} before executing self  */
+ 		/** Set up {@link ProgressDialog ProgressDialog} and progress bar before executing self  */
 		@Override
 		protected void onPreExecute() {
 			super.onPreExecute();
+			start = System.nanoTime();
 			showDialog(DIALOG_LOADING_VOCABULARIES);
+			setProgressBarVisibility(true);
+			setProgress(0);
 		}
 		
 		/** 
-	     * Main method: Load vocabularies and their translations into a {@link Hashtable Hashtable}
+	     * Main method: Load vocabularies and format their translations or conjugations. Uses {@link DeckStore DeckStore}
+	     * if the list is available offline, otherwise streams the list from the server batch by batch (taking over from
+	     * a {@link Prefetcher Prefetcher} fetching it). Vocabularies not yet handed to the UI follow in
+	     * {@link Scheduler Scheduler} order (due cards first).
 	     *
 	     * @param lists VocabularyList to use (currently only one) 
 	     */
 		@Override
-		protected Hashtable<String,String> doInBackground(VocabularyList... lists) {
+		protected Boolean doInBackground(VocabularyList... lists) {
+			RestClient.setDeadline(LOAD_DEADLINE);
 			try {
 				this.list = lists[0];
-				Hashtable<String,String> data = new Hashtable<String,String>();
-				Vocabulary[] vocabularies = list.getVocabularies();
-				for(int i=0; i<vocabularies.length; i++) {
-					data.put(vocabularies[i].getWord(), vocabularies[i].getResultAsFormattedString(list.getSelector(), list.isVerbList()));
+				DeckStore.getInstance(Flashcard.this).putOpened(list.getId(), System.currentTimeMillis());
+				Prefetcher.cancel(list.getId());
+				if (list.getLocalData()) { stored = true; }
+				else {
+					list.setOnBatchLoadedListener(this);
+					list.getRemoteData();
+					list.setOnBatchLoadedListener(null);
 				}
-				return data;
+				if (isCancelled() || list.empty()) { return false; }
+				if (list.isVerbList()) { list.getTenses(); }
+				scheduler = new Scheduler(getApplicationContext(), list.getTable());
+				scheduler.load(list.getId());
+				if (isCancelled()) { return false; }
+				int[] order = scheduler.getOrder();
+				int[] rows = new int[order.length - published];
+				Vocabulary[] rest = new Vocabulary[rows.length];
+				for (int i=0, j=0; i<order.length; i++) {
+					if (order[i] < published) { continue; }
+					rows[j] = order[i];
+					rest[j++] = list.getVocabulary(order[i]);
+				}
+				publish(rows, rest);
+				return true;
+			}
+			catch (Exception e) { e.printStackTrace(); return false; }
+			finally { RestClient.clearDeadline(); }
+		}
+		
+		/** 
+	     * Formats a batch of vocabularies and hands it to the UI thread
+	     *
+	     * @param batch Vocabularies parsed since the last batch
+	     */
+		public void onBatchLoaded(Vocabulary[] batch) {
+			if (isCancelled()) { return; }
+			int[] rows = new int[batch.length];
+			for (int i=0; i<batch.length; i++) { rows[i] = published + i; }
+			publish(rows, batch);
+		}
+		
+		/** 
+	     * Helper method: Formats vocabularies and hands them to the UI thread
+	     *
+	     * @param rows Rows of the vocabularies
+	     * @param vocabularies Vocabularies to format
+	     */
+		private void publish(int[] rows, Vocabulary[] vocabularies) {
+			Batch batch = new Batch(rows, new String[rows.length], new String[rows.length]);
+			for (int i=0; i<rows.length; i++) {
+				batch.words[i] = vocabularies[i].getWord();
+				batch.results[i] = vocabularies[i].getResultAsFormattedString(list.getSelector(), list.isVerbList());
+			}
+			published += rows.length;
+			publishProgress(batch);
+		}
+		
+		/** 
+	     * Appends a batch of cards in main thread. The first batch replaces the {@link ProgressDialog ProgressDialog}
+	     * with the cards, later ones advance the progress bar.
+	     *
+	     * @param batch Rows, words and formatted results
+	     */
+		@Override
+		protected void onProgressUpdate(Batch... batch) {
+			if (isCancelled()) { return; }
+			long render = System.nanoTime();
+			boolean first = mAdapter == null;
+			if (mAdapter == null) {
+				dismissDialog(DIALOG_LOADING_VOCABULARIES);
+				mAdapter = new FlashcardAdapter(Flashcard.this, list, listSize);
+				mCardholder = (ViewPager)findViewById(R.id.cardholder);
+				mCardholder.setAdapter(mAdapter);
+			}
+			mAdapter.add(batch[0].rows, batch[0].words, batch[0].results);
+			if (mJumpTo >= 0 && mShuffleSeed == 0 && mAdapter.getCard(mJumpTo) >= 0) {
+				mCardholder.setCurrentItem(mAdapter.getCard(mJumpTo) * 2);
+				mJumpTo = -1;
 			}
-			catch (Exception e) { e.printStackTrace(); return null; }
+			if (listSize > 0) { setProgress(Math.min(mAdapter.getCount() / 2 * 10000 / listSize, 9999)); }
+			Metrics.time("render Flashcard.batch", render);
+			if (first) { Metrics.time("load Flashcard.first_card", start); }
 		}
 		
 		/** 
-	     * Takes end result from {@link doInBackground(VocabularyList... lists) doInBackground(...)} and updates
-	     * UI in main thread. Also dismisses {@link ProgressDialog ProgressDialog} when done.
+	     * Finishes loading in main thread: hides the progress bar, fixes the page labels (by counting the cards
+	     * added, as the list must not be loaded from here), hands the due order to the adapter (restored when
+	     * unshuffling) and enables grading if all cards could be loaded, and kicks off
+	     * {@link RefreshVocabularies RefreshVocabularies} if stored data was shown.
 	     *
-	     * @param result Hastable generated by main method
+	     * @param success Whether any vocabularies could be loaded
 	     */
 		@Override
-		protected void onPostExecute(Hashtable<String,String> result) {
-			dismissDialog(DIALOG_LOADING_VOCABULARIES);
-			mCardholder = (ViewFlipper)findViewById(R.id.cardholder);
-			int i = 1;
-			for (Enumeration<String> e = result.keys() ; e.hasMoreElements() ;) {
-				String key = e.nextElement();
-				renderFlashcard(list.getFrom(), key, i + "/" + result.size());
-				renderFlashcard(list.getTo(), result.get(key), i + "/" + result.size());
-				i++;
-		    }
+		protected void onPostExecute(Boolean success) {
+			mLoader = null;
+			setProgressBarVisibility(false);
+			if (mAdapter == null) {
+				dismissDialog(DIALOG_LOADING_VOCABULARIES);
+				return;
+			}
+			Metrics.time("load Flashcard.list", start);
+			if (success) {
+				mAdapter.setSize(mAdapter.getCount() / 2);
+				mAdapter.setOrder(scheduler.getOrder());
+				mScheduler = scheduler;
+				enableGrading();
+				if (mShuffleSeed != 0) {
+					mAdapter.shuffle(mShuffleSeed);
+					mShuffleSeed = 0;
+					if (mJumpTo >= 0 && mAdapter.getCard(mJumpTo) >= 0) { mCardholder.setCurrentItem(mAdapter.getCard(mJumpTo) * 2); }
+					mJumpTo = -1;
+				}
+			}
+			if (stored && RestClient.isOnline(Flashcard.this)) { new RefreshVocabularies().execute(list); }
 		}
 	}
-}
\ No newline at end of file
+ 	
+ 	/**
+     * Asynchronous task used by {@link Flashcard Flashcard} to refresh a list in {@link DeckStore DeckStore}
+     * in the background, after its stored version has been displayed
+     *
+     * @author Ulf Moehring
+     * @version 0.3
+     */
+ 	class RefreshVocabularies extends AsyncTask<VocabularyList, Void, Void> {
+ 		
+ 		/** 
+	     * Main method: Fetch list from server (which updates {@link DeckStore DeckStore})
+	     *
+	     * @param lists VocabularyList to refresh
+	     */
+		@Override
+		protected Void doInBackground(VocabularyList... lists) {
+			RestClient.setDeadline(LOAD_DEADLINE);
+			try {
+				lists[0].getRemoteData();
+			}
+			finally { RestClient.clearDeadline(); }
+			return null;
+		}
+ 	}
+	
+	/**
+     * Asynchronous task used by {@link Flashcard Flashcard} to record a review with the {@link Scheduler Scheduler}
+     * (which stores it in {@link DeckStore DeckStore})
+     *
+     * @author Ulf Moehring
+     * @version 0.3
+     */
+ 	class ReviewCard extends AsyncTask<Integer, Void, Void> {
+ 		
+ 		/** 
+	     * Main method: Reschedule card
+	     *
+	     * @param params Row of vocabulary and grade
+	     */
+		@Override
+		protected Void doInBackground(Integer... params) {
+			try {
+				mScheduler.review(params[0], params[1]);
+			}
+			catch (Exception e) { e.printStackTrace(); }
+			return null;
+		}
+ 	}
+ 	
+ 	/**
+ 	 * Loaded deck handed over to the next instance on configuration changes. List and scheduler use the
+ 	 * application context; the old adapter is only used by the next instance to take over its cards.
+ 	 */
+ 	static class Deck {
+ 		/** List being studied */
+ 		final VocabularyList list;
+ 		/** Review scheduler of list */
+ 		final Scheduler scheduler;
+ 		/** Adapter holding the formatted cards (in the order shown) */
+ 		final FlashcardAdapter adapter;
+ 		/** Page shown */
+ 		final int page;
+ 		
+ 		Deck(VocabularyList list, Scheduler scheduler, FlashcardAdapter adapter, int page) {
+ 			this.list = list;
+ 			this.scheduler = scheduler;
+ 			this.adapter = adapter;
+ 			this.page = page;
+ 		}
+ 	}
+ 	
+ 	/**
+ 	 * Formatted cards handed from {@link LoadVocabularies LoadVocabularies} to the UI thread
+ 	 */
+ 	static class Batch {
+ 		/** Rows of the vocabularies */
+ 		final int[] rows;
+ 		/** Words (1st flash card) */
+ 		final String[] words;
+ 		/** Formatted translations or conjugations (2nd flash card) */
+ 		final String[] results;
+ 		
+ 		Batch(int[] rows, String[] words, String[] results) {
+ 			this.rows = rows;
+ 			this.words = words;
+ 			this.results = results;
+ 		}
+ 	}
+}
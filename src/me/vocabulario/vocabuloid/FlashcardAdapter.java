@@ -0,0 +1,248 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import me.vocabulario.vocabuloid.R;
+
+import android.content.Context;
+import android.support.v4.view.PagerAdapter;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * Pager adapter backing the flash cards in {@link Flashcard Flashcard}. Each vocabulary yields two pages (word,
+ * then translations or conjugation). Views are only created for the pages the ViewPager keeps alive (the
+ * current card and its neighbours) and are recycled as the user swipes, so the number of views doesn't
+ * depend on the size of the list. Cards can be appended while the rest of the list is still loading.
+ *
+ * Cards are addressed by index in O(1). The order they are shown in is a permutation of the order they were added
+ * in, so shuffling (with a seed, to make the order reproducible) only rearranges ints and rebinds the live pages.
+ * Unshuffling restores the due order set with {@link #setOrder(int[]) setOrder} (until then, the order of adding).
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class FlashcardAdapter extends PagerAdapter {
+
+	/** Inflater for card layout */
+	private final LayoutInflater mInflater;
+	/** List providing the headings of both flash cards */
+	private final VocabularyList mList;
+	/** Rows (in the list's {@link VocabularyTable VocabularyTable}) of the vocabularies shown */
+	private int[] mRows = new int[64];
+	/** Words (1st flash card) */
+	private final ArrayList<String> mWords = new ArrayList<String>();
+	/** Formatted translations or conjugations (2nd flash card) */
+	private final ArrayList<String> mResults = new ArrayList<String>();
+	/** Index (in order of adding) of the vocabulary shown on each card */
+	private int[] mOrder = new int[64];
+	/** Card showing each row (-1 for rows not added yet) */
+	private int[] mCards = new int[0];
+	/** Indices (in order of adding) of the vocabularies in due order, or null if not set */
+	private int[] mDue;
+	/** Seed of current shuffle */
+	private long mSeed;
+	/** Whether cards are shuffled */
+	private boolean mShuffled;
+	/** Expected number of vocabularies (used for page labels while loading) */
+	private int mSize;
+	/** Card views no longer attached to the pager */
+	private final ArrayList<View> mRecycled = new ArrayList<View>();
+
+	/**
+     * Initializes adapter
+     *
+     * @param ctx Context needed for inflating card views
+     * @param list List providing the headings (may still be loading)
+     * @param size Expected number of vocabularies
+     */
+	public FlashcardAdapter(Context ctx, VocabularyList list, int size) {
+		mInflater = LayoutInflater.from(ctx);
+		mList = list;
+		mSize = size;
+	}
+
+	/**
+     * Initializes adapter showing the cards of another one (in the same order), e.g. one created by an activity
+     * before a configuration change. Cards are taken over without formatting them again; views aren't.
+     *
+     * @param ctx Context needed for inflating card views
+     * @param from Adapter to take cards from (shouldn't be used any more)
+     */
+	public FlashcardAdapter(Context ctx, FlashcardAdapter from) {
+		mInflater = LayoutInflater.from(ctx);
+		mList = from.mList;
+		mRows = Arrays.copyOf(from.mRows, from.mRows.length);
+		mWords.addAll(from.mWords);
+		mResults.addAll(from.mResults);
+		mOrder = Arrays.copyOf(from.mOrder, from.mOrder.length);
+		mCards = Arrays.copyOf(from.mCards, from.mCards.length);
+		mDue = from.mDue == null ? null : Arrays.copyOf(from.mDue, from.mDue.length);
+		mSeed = from.mSeed;
+		mShuffled = from.mShuffled;
+		mSize = from.mSize;
+	}
+
+	/**
+     * Appends cards and refreshes the pages currently shown
+     *
+     * @param rows Rows of the vocabularies
+     * @param words Words (1st flash card)
+     * @param results Formatted translations or conjugations (2nd flash card)
+     */
+	public void add(int[] rows, String[] words, String[] results) {
+		if (mWords.size() + rows.length > mRows.length) {
+			int length = Math.max(mRows.length * 2, mWords.size() + rows.length);
+			mRows = Arrays.copyOf(mRows, length);
+			mOrder = Arrays.copyOf(mOrder, length);
+		}
+		for (int i=0; i<words.length; i++) {
+			int index = mWords.size();
+			if (rows[i] >= mCards.length) {
+				int length = mCards.length;
+				mCards = Arrays.copyOf(mCards, Math.max(length * 2, rows[i] + 1));
+				Arrays.fill(mCards, length, mCards.length, -1);
+			}
+			mRows[index] = rows[i];
+			mOrder[index] = index;
+			mCards[rows[i]] = index;
+			mWords.add(words[i]);
+			mResults.add(results[i]);
+		}
+		notifyDataSetChanged();
+	}
+
+	/**
+     * Sets the final number of vocabularies once loading has finished
+     *
+     * @param size Number of vocabularies
+     */
+	public void setSize(int size) {
+		mSize = size;
+		notifyDataSetChanged();
+	}
+
+	/**
+     * Sets the due order restored by {@link #unshuffle() unshuffle}, e.g. the {@link Scheduler Scheduler}'s order
+     * once loading has finished. Cards already shown keep their places until then, so the card the user is looking
+     * at doesn't move. Cards not included keep the order they were added in, after those included.
+     *
+     * @param rows Rows of the vocabularies, due cards first
+     */
+	public void setOrder(int[] rows) {
+		int[] indices = new int[mCards.length];
+		Arrays.fill(indices, -1);
+		for (int i=0; i<mWords.size(); i++) { indices[mRows[i]] = i; }
+		mDue = new int[mWords.size()];
+		int count = 0;
+		for (int row : rows) {
+			if (row < indices.length && indices[row] >= 0) {
+				mDue[count++] = indices[row];
+				indices[row] = -1;
+			}
+		}
+		for (int i=0; i<mWords.size(); i++) {
+			if (indices[mRows[i]] >= 0) { mDue[count++] = i; }
+		}
+	}
+
+	/**
+     * Shuffles the cards added so far (cards added later are appended in order)
+     *
+     * @param seed Seed for the random order (the same seed yields the same order)
+     */
+	public void shuffle(long seed) {
+		unshuffle();
+		Random random = new Random(seed);
+		for (int i=mWords.size()-1; i>0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = mOrder[i];
+			mOrder[i] = mOrder[j];
+			mOrder[j] = swap;
+			mCards[mRows[mOrder[i]]] = i;
+			mCards[mRows[mOrder[j]]] = j;
+		}
+		mSeed = seed;
+		mShuffled = true;
+		notifyDataSetChanged();
+	}
+
+	/**
+     * Restores the due order set with {@link #setOrder(int[]) setOrder}, or the order the cards were added in if
+     * none was set (cards added after setting it follow in the order they were added in)
+     */
+	public void unshuffle() {
+		int due = mDue == null ? 0 : mDue.length;
+		for (int i=0; i<mWords.size(); i++) {
+			mOrder[i] = i < due ? mDue[i] : i;
+			mCards[mRows[mOrder[i]]] = i;
+		}
+		mShuffled = false;
+		notifyDataSetChanged();
+	}
+
+	/** Returns whether cards are shuffled */
+	public boolean isShuffled() { return mShuffled; }
+
+	/** Returns seed of the current shuffle */
+	public long getSeed() { return mSeed; }
+
+	/** Returns row of the vocabulary shown on a card (two pages per card) */
+	public int getRow(int card) { return mRows[mOrder[card]]; }
+
+	/** Returns card showing a row, or -1 if the row hasn't been added (yet) */
+	public int getCard(int row) { return row < mCards.length ? mCards[row] : -1; }
+
+	/** Returns number of pages (two per vocabulary) */
+	@Override
+	public int getCount() {
+		return mWords.size() * 2;
+	}
+
+	/** Forces the (at most three) live pages to be rebound on changes, as headings and labels change while loading */
+	@Override
+	public int getItemPosition(Object object) {
+		return POSITION_NONE;
+	}
+
+	/**
+     * Binds a (recycled or newly inflated) card view to a page and attaches it to the pager
+     *
+     * @param container ViewPager (inherited)
+     * @param position Page number (inherited)
+     */
+	@Override
+	public Object instantiateItem(ViewGroup container, int position) {
+		View card = mRecycled.isEmpty() ? mInflater.inflate(R.layout.card, container, false) : mRecycled.remove(mRecycled.size() - 1);
+		int index = mOrder[position / 2];
+		boolean front = position % 2 == 0;
+		((TextView) card.findViewById(R.id.page)).setText((position / 2 + 1) + "/" + Math.max(mSize, mWords.size()));
+		((TextView) card.findViewById(R.id.heading)).setText(front ? mList.getFrom() : mList.getTo());
+		((TextView) card.findViewById(R.id.text)).setText(front ? mWords.get(index) : mResults.get(index));
+		container.addView(card);
+		return card;
+	}
+
+	/**
+     * Detaches a card view from the pager and keeps it for reuse
+     *
+     * @param container ViewPager (inherited)
+     * @param position Page number (inherited)
+     * @param object Card view (inherited)
+     */
+	@Override
+	public void destroyItem(ViewGroup container, int position, Object object) {
+		View card = (View) object;
+		container.removeView(card);
+		mRecycled.add(card);
+	}
+
+	@Override
+	public boolean isViewFromObject(View view, Object object) {
+		return view == object;
+	}
+}
@@ -0,0 +1,333 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull-style JSON reader working directly on a character stream. Mirrors the API of
+ * android.util.JsonReader (which requires API level 11), so responses can be turned into model objects
+ * while they are downloaded, without building an intermediate String or org.json tree.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class JsonPullReader implements Closeable {
+
+	/** Token types returned by {@link #peek() peek} */
+	public enum Token { BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+	/** Scope: inside an empty array */
+	private static final int EMPTY_ARRAY = 1;
+	/** Scope: inside an array with at least one value */
+	private static final int NONEMPTY_ARRAY = 2;
+	/** Scope: inside an object, expecting a name */
+	private static final int EMPTY_OBJECT = 3;
+	/** Scope: inside an object, name read and value expected */
+	private static final int DANGLING_NAME = 4;
+	/** Scope: inside an object with at least one member */
+	private static final int NONEMPTY_OBJECT = 5;
+	/** Scope: top level */
+	private static final int DOCUMENT = 6;
+
+	/** Underlying character stream */
+	private final Reader in;
+	/** Read buffer */
+	private final char[] buffer = new char[4096];
+	/** Position in buffer */
+	private int pos;
+	/** Number of valid chars in buffer */
+	private int limit;
+	/** Scope stack */
+	private int[] stack = new int[32];
+	/** Size of scope stack */
+	private int stackSize;
+	/** Peeked token (or null) */
+	private Token token;
+	/** Value of peeked name, string, number or boolean token */
+	private String value;
+	/** Reusable builder for string literals */
+	private final StringBuilder literal = new StringBuilder();
+
+	/**
+     * Initializes reader
+     *
+     * @param in Character stream to read from
+     */
+	public JsonPullReader(Reader in) {
+		this.in = in;
+		stack[stackSize++] = DOCUMENT;
+	}
+
+	/** Consumes the next token, asserting it is the beginning of an array */
+	public void beginArray() throws IOException {
+		expect(Token.BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+
+	/** Consumes the next token, asserting it is the end of the current array */
+	public void endArray() throws IOException {
+		expect(Token.END_ARRAY);
+		stackSize--;
+	}
+
+	/** Consumes the next token, asserting it is the beginning of an object */
+	public void beginObject() throws IOException {
+		expect(Token.BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+
+	/** Consumes the next token, asserting it is the end of the current object */
+	public void endObject() throws IOException {
+		expect(Token.END_OBJECT);
+		stackSize--;
+	}
+
+	/** Returns true if the current array or object has another element */
+	public boolean hasNext() throws IOException {
+		Token next = peek();
+		return next != Token.END_OBJECT && next != Token.END_ARRAY && next != Token.END_DOCUMENT;
+	}
+
+	/** Returns the next property name */
+	public String nextName() throws IOException {
+		expect(Token.NAME);
+		return value;
+	}
+
+	/** Returns the next string value (numbers and booleans are returned as their literal) */
+	public String nextString() throws IOException {
+		Token next = peek();
+		if (next != Token.STRING && next != Token.NUMBER && next != Token.BOOLEAN) { throw syntaxError("Expected a string but was " + next); }
+		token = null;
+		return value;
+	}
+
+	/** Returns the next int value */
+	public int nextInt() throws IOException {
+		try {
+			return (int) Double.parseDouble(nextString());
+		}
+		catch (NumberFormatException e) { throw syntaxError("Expected an int"); }
+	}
+
+	/** Returns the next boolean value */
+	public boolean nextBoolean() throws IOException {
+		expect(Token.BOOLEAN);
+		return "true".equals(value);
+	}
+
+	/** Consumes the next null literal */
+	public void nextNull() throws IOException {
+		expect(Token.NULL);
+	}
+
+	/** Skips the next value, including nested arrays and objects */
+	public void skipValue() throws IOException {
+		int depth = 0;
+		do {
+			Token next = peek();
+			token = null;
+			if (next == Token.BEGIN_ARRAY) { push(EMPTY_ARRAY); depth++; }
+			else if (next == Token.BEGIN_OBJECT) { push(EMPTY_OBJECT); depth++; }
+			else if (next == Token.END_ARRAY || next == Token.END_OBJECT) { stackSize--; depth--; }
+			else if (next == Token.END_DOCUMENT) { throw syntaxError("Unexpected end of document"); }
+		} while (depth > 0);
+	}
+
+	/** Returns the type of the next token without consuming it */
+	public Token peek() throws IOException {
+		if (token != null) { return token; }
+		int scope = stack[stackSize - 1];
+		int c;
+		switch (scope) {
+			case EMPTY_ARRAY:
+				stack[stackSize - 1] = NONEMPTY_ARRAY;
+				c = nextNonWhitespace();
+				if (c == ']') { return token = Token.END_ARRAY; }
+				pos--;
+				return readValue();
+			case NONEMPTY_ARRAY:
+				c = nextNonWhitespace();
+				if (c == ']') { return token = Token.END_ARRAY; }
+				if (c != ',') { throw syntaxError("Unterminated array"); }
+				return readValue();
+			case EMPTY_OBJECT:
+			case NONEMPTY_OBJECT:
+				c = nextNonWhitespace();
+				if (c == '}') { return token = Token.END_OBJECT; }
+				if (scope == NONEMPTY_OBJECT) {
+					if (c != ',') { throw syntaxError("Unterminated object"); }
+					c = nextNonWhitespace();
+				}
+				if (c != '"') { throw syntaxError("Expected name"); }
+				value = readString();
+				if (nextNonWhitespace() != ':') { throw syntaxError("Expected ':'"); }
+				stack[stackSize - 1] = DANGLING_NAME;
+				return token = Token.NAME;
+			case DANGLING_NAME:
+				stack[stackSize - 1] = NONEMPTY_OBJECT;
+				return readValue();
+			default:
+				if (fill()) {
+					c = nextNonWhitespaceOrEnd();
+					if (c != -1) { pos--; return readValue(); }
+				}
+				return token = Token.END_DOCUMENT;
+		}
+	}
+
+	/** Closes the underlying stream */
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+     * Helper method: Reads a value token (literal, string or start of a nested structure)
+     */
+	private Token readValue() throws IOException {
+		int c = nextNonWhitespace();
+		switch (c) {
+			case '{': return token = Token.BEGIN_OBJECT;
+			case '[': return token = Token.BEGIN_ARRAY;
+			case '"':
+				value = readString();
+				return token = Token.STRING;
+			default:
+				pos--;
+				value = readLiteral();
+				if (value.length() == 0) { throw syntaxError("Expected value"); }
+				if ("null".equals(value)) { return token = Token.NULL; }
+				if ("true".equals(value) || "false".equals(value)) { return token = Token.BOOLEAN; }
+				return token = Token.NUMBER;
+		}
+	}
+
+	/**
+     * Helper method: Reads a quoted string, the opening quote having been consumed
+     */
+	private String readString() throws IOException {
+		literal.setLength(0);
+		while (true) {
+			int start = pos;
+			while (pos < limit) {
+				char c = buffer[pos++];
+				if (c == '"') {
+					literal.append(buffer, start, pos - start - 1);
+					return literal.toString();
+				}
+				if (c == '\\') {
+					literal.append(buffer, start, pos - start - 1);
+					literal.append(readEscape());
+					start = pos;
+				}
+			}
+			literal.append(buffer, start, pos - start);
+			if (!fill()) { throw syntaxError("Unterminated string"); }
+		}
+	}
+
+	/**
+     * Helper method: Reads an escape sequence, the backslash having been consumed
+     */
+	private char readEscape() throws IOException {
+		char c = nextChar();
+		switch (c) {
+			case 'u':
+				int result = 0;
+				for (int i = 0; i < 4; i++) {
+					result = (result << 4) + Character.digit(nextChar(), 16);
+				}
+				return (char) result;
+			case 't': return '\t';
+			case 'b': return '\b';
+			case 'n': return '\n';
+			case 'r': return '\r';
+			case 'f': return '\f';
+			default: return c;
+		}
+	}
+
+	/**
+     * Helper method: Reads an unquoted literal (number, true, false, null)
+     */
+	private String readLiteral() throws IOException {
+		literal.setLength(0);
+		while (pos < limit || fill()) {
+			char c = buffer[pos];
+			if (c == ',' || c == ']' || c == '}' || c == ':' || c == ' ' || c == '\t' || c == '\n' || c == '\r') { break; }
+			literal.append(c);
+			pos++;
+		}
+		return literal.toString();
+	}
+
+	/**
+     * Helper method: Consumes the next token, failing if it isn't of the expected type
+     */
+	private void expect(Token expected) throws IOException {
+		Token next = peek();
+		if (next != expected) { throw syntaxError("Expected " + expected + " but was " + next); }
+		token = null;
+	}
+
+	/**
+     * Helper method: Pushes a new scope
+     */
+	private void push(int scope) {
+		if (stackSize == stack.length) {
+			int[] grown = new int[stackSize * 2];
+			System.arraycopy(stack, 0, grown, 0, stackSize);
+			stack = grown;
+		}
+		stack[stackSize++] = scope;
+	}
+
+	/**
+     * Helper method: Returns the next character, failing at end of input
+     */
+	private char nextChar() throws IOException {
+		if (pos == limit && !fill()) { throw syntaxError("Unexpected end of input"); }
+		return buffer[pos++];
+	}
+
+	/**
+     * Helper method: Returns the next non-whitespace character, failing at end of input
+     */
+	private int nextNonWhitespace() throws IOException {
+		int c = nextNonWhitespaceOrEnd();
+		if (c == -1) { throw syntaxError("Unexpected end of input"); }
+		return c;
+	}
+
+	/**
+     * Helper method: Returns the next non-whitespace character or -1 at end of input
+     */
+	private int nextNonWhitespaceOrEnd() throws IOException {
+		while (pos < limit || fill()) {
+			char c = buffer[pos++];
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') { return c; }
+		}
+		return -1;
+	}
+
+	/**
+     * Helper method: Refills the buffer, returns false at end of input
+     */
+	private boolean fill() throws IOException {
+		if (pos < limit) { return true; }
+		pos = 0;
+		limit = 0;
+		int read = in.read(buffer, 0, buffer.length);
+		if (read <= 0) { return false; }
+		limit = read;
+		return true;
+	}
+
+	/**
+     * Helper method: Creates an exception for malformed input
+     */
+	private IOException syntaxError(String message) {
+		return new IOException(message);
+	}
+}
@@ -0,0 +1,218 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+/**
+ * Process-wide registry of request and load pipeline metrics. Values are recorded into named histograms (count,
+ * min, max, mean and p50/p95/p99), which can be queried in-process or dumped to a file to compare builds.
+ *
+ * Names used by the app (endpoints are paths with numeric ids replaced by ":id" and without query):
+ * "latency METHOD endpoint" (ms until response headers), "bytes endpoint" (bytes on the wire), "decoded endpoint"
+ * (bytes after decompression), "decode endpoint" (ms spent decompressing), "parse endpoint" (ms), "objects endpoint"
+ * (objects parsed), "errors endpoint" (failed requests), "load Activity.step" (ms from start of loading) and
+ * "render Activity.step" (ms spent on the UI thread).
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class Metrics {
+
+	/** Histograms by name */
+	private static final HashMap<String,Histogram> sHistograms = new HashMap<String,Histogram>();
+
+	private Metrics() {}
+
+	/**
+     * Records a value
+     *
+     * @param name Name of metric
+     * @param value Value (ms, bytes or count)
+     */
+	public static void record(String name, long value) {
+		get(name).record(value);
+	}
+
+	/**
+     * Records the time elapsed since start (in ms)
+     *
+     * @param name Name of metric
+     * @param start Start time as returned by System.nanoTime()
+     */
+	public static void time(String name, long start) {
+		record(name, (System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+     * Returns a histogram, creating it if necessary
+     *
+     * @param name Name of metric
+     */
+	public static Histogram get(String name) {
+		synchronized (sHistograms) {
+			Histogram histogram = sHistograms.get(name);
+			if (histogram == null) {
+				histogram = new Histogram(name);
+				sHistograms.put(name, histogram);
+			}
+			return histogram;
+		}
+	}
+
+	/** Returns names of all recorded metrics (sorted) */
+	public static String[] getNames() {
+		ArrayList<String> names;
+		synchronized (sHistograms) { names = new ArrayList<String>(sHistograms.keySet()); }
+		Collections.sort(names);
+		return names.toArray(new String[names.size()]);
+	}
+
+	/** Drops all recorded values */
+	public static void reset() {
+		synchronized (sHistograms) { sHistograms.clear(); }
+	}
+
+	/**
+     * Writes all metrics to a file (one line per metric, tab separated, with a header line)
+     *
+     * @param file File to write (overwritten)
+     */
+	public static void dump(File file) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write("name\tcount\tmin\tmean\tp50\tp95\tp99\tmax\n");
+			for (String name : getNames()) {
+				writer.write(get(name) + "\n");
+			}
+		}
+		finally { writer.close(); }
+	}
+
+	/**
+     * Returns the endpoint of a request uri: path without scheme, host and query, numeric ids replaced by ":id"
+     *
+     * @param uri Request uri or path
+     */
+	public static String endpoint(String uri) {
+		int start = uri.indexOf("://");
+		if (start >= 0) {
+			start = uri.indexOf('/', start + 3);
+			uri = start < 0 ? "/" : uri.substring(start);
+		}
+		int query = uri.indexOf('?');
+		if (query >= 0) { uri = uri.substring(0, query); }
+		return uri.replaceAll("/\\d+(?=/|\\.|$)", "/:id");
+	}
+
+	/**
+	 * Histogram with log-linear buckets (8 per power of two, so percentiles are within 12.5% of the actual value)
+	 */
+	public static class Histogram {
+
+		/** Number of sub-buckets per power of two (log2) */
+		private static final int SUB_BITS = 3;
+		/** Values below this are counted exactly */
+		private static final int LINEAR = 2 << SUB_BITS;
+		/** Name of metric */
+		private final String name;
+		/** Bucket counts */
+		private final long[] buckets = new long[LINEAR + (64 - SUB_BITS - 2) * (1 << SUB_BITS)];
+		/** Number of values */
+		private long count;
+		/** Sum of values */
+		private long sum;
+		/** Smallest value */
+		private long min = Long.MAX_VALUE;
+		/** Largest value */
+		private long max;
+
+		/**
+	     * Initializes empty histogram
+	     *
+	     * @param name Name of metric
+	     */
+		Histogram(String name) {
+			this.name = name;
+		}
+
+		/**
+	     * Records a value (negative values are counted as 0)
+	     *
+	     * @param value Value
+	     */
+		public synchronized void record(long value) {
+			value = Math.max(value, 0);
+			buckets[bucket(value)]++;
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		/** Returns name of metric */
+		public String getName() { return name; }
+
+		/** Returns number of recorded values */
+		public synchronized long getCount() { return count; }
+
+		/** Returns sum of recorded values */
+		public synchronized long getSum() { return sum; }
+
+		/** Returns smallest recorded value (0 if empty) */
+		public synchronized long getMin() { return count == 0 ? 0 : min; }
+
+		/** Returns largest recorded value */
+		public synchronized long getMax() { return max; }
+
+		/** Returns mean of recorded values */
+		public synchronized double getMean() { return count == 0 ? 0 : (double) sum / count; }
+
+		/**
+	     * Returns (an upper bound of) the value below which the given share of values falls
+	     *
+	     * @param percentile Percentile (0 to 100)
+	     */
+		public synchronized long getPercentile(double percentile) {
+			if (count == 0) { return 0; }
+			long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+			long seen = 0;
+			for (int i=0; i<buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= rank) { return Math.min(upperBound(i), max); }
+			}
+			return max;
+		}
+
+		/** Returns tab separated summary (name, count, min, mean, p50, p95, p99, max) */
+		@Override
+		public synchronized String toString() {
+			return name + "\t" + count + "\t" + getMin() + "\t" + Math.round(getMean()) + "\t" + getPercentile(50) + "\t" +
+					getPercentile(95) + "\t" + getPercentile(99) + "\t" + max;
+		}
+
+		/**
+	     * Helper method: Returns the bucket of a value
+	     */
+		private static int bucket(long value) {
+			if (value < LINEAR) { return (int) value; }
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+			return LINEAR + (exponent - SUB_BITS - 1) * (1 << SUB_BITS) + sub;
+		}
+
+		/**
+	     * Helper method: Returns the largest value falling into a bucket
+	     */
+		private static long upperBound(int bucket) {
+			if (bucket < LINEAR) { return bucket; }
+			int exponent = (bucket - LINEAR) / (1 << SUB_BITS) + SUB_BITS + 1;
+			long sub = (bucket - LINEAR) % (1 << SUB_BITS);
+			long bound = (1L << exponent) + ((sub + 1) << (exponent - SUB_BITS)) - 1;
+			return bound < 0 ? Long.MAX_VALUE : bound;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Build;
+
+/**
+ * Warms up {@link DeckStore DeckStore} after the lists of a user have been loaded: lists not yet available offline
+ * are fetched in the background on a small pool, most recently opened first, so opening them later doesn't wait
+ * for the network. Stops as soon as memory runs low or the network is (or becomes) metered. A list opened while
+ * it is being (or waiting to be) prefetched is left to {@link Flashcard Flashcard} (see {@link #cancel(int) cancel}),
+ * so it isn't downloaded twice.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class Prefetcher {
+
+	/** Number of lists fetched at the same time */
+	public static final int THREADS = 2;
+	/** Time (in ms) fetching one list may take */
+	public static final long DEADLINE = 60000;
+	/** Share of the maximum heap in use above which prefetching stops */
+	private static final double MAX_HEAP_USE = 0.75;
+
+	/** Context shared across application */
+	private final Context mContext;
+	/** Pool fetching the lists */
+	private final ThreadPoolExecutor mExecutor;
+	/** Lists being fetched (so they can be cancelled) */
+	private final ArrayList<VocabularyList> mRunning = new ArrayList<VocabularyList>();
+	/** Prefetchers running (there is at most one, but the previous one may still be finishing a list) */
+	private static final ArrayList<Prefetcher> sInstances = new ArrayList<Prefetcher>();
+	/** Ids of lists opened since prefetching started (not fetched any more) */
+	private static final HashSet<Integer> sOpened = new HashSet<Integer>();
+	/** Whether prefetching has been stopped */
+	private volatile boolean mStopped;
+
+	/**
+     * Initializes prefetcher (nothing is fetched until {@link #start(int, VocabularyList[]) start} is called)
+     *
+     * @param ctx Context needed for accessing shared resources
+     */
+	public Prefetcher(Context ctx) {
+		mContext = ctx.getApplicationContext();
+		mExecutor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Prefetcher");
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		}, new ThreadPoolExecutor.DiscardPolicy());
+		mExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+     * Queues all lists of a user that aren't available offline, most recently opened first
+     *
+     * @param userId Id of user owning the lists
+     * @param lists Lists of user
+     */
+	public void start(final int userId, VocabularyList[] lists) {
+		final int[] ids = new int[lists.length];
+		for (int i=0; i<lists.length; i++) { ids[i] = lists[i].getId(); }
+		synchronized (sInstances) {
+			sOpened.clear();
+			sInstances.add(this);
+		}
+		mExecutor.execute(new Runnable() {
+			public void run() {
+				if (mStopped) { return; }
+				DeckStore store = DeckStore.getInstance(mContext);
+				for (int id : store.getListsByUse(userId)) {
+					if (contains(ids, id) && !store.hasVocabularies(id)) { mExecutor.execute(new Fetch(id)); }
+				}
+			}
+		});
+	}
+
+	/**
+     * Stops prefetching: drops queued lists and aborts the ones being fetched. Lists already stored are kept.
+     */
+	public void stop() {
+		mStopped = true;
+		mExecutor.shutdownNow();
+		synchronized (mRunning) {
+			for (VocabularyList list : mRunning) { list.cancel(); }
+		}
+		synchronized (sInstances) { sInstances.remove(this); }
+	}
+
+	/**
+     * Called when a list is about to be loaded for showing it: aborts prefetching it, if it is being fetched, and
+     * drops it from the lists still queued. The caller loads the list itself (streaming it, so the first cards show
+     * up early) instead of waiting for the prefetch.
+     *
+     * @param listId Id of list
+     */
+	public static void cancel(int listId) {
+		synchronized (sInstances) {
+			sOpened.add(listId);
+			for (Prefetcher prefetcher : sInstances) {
+				synchronized (prefetcher.mRunning) {
+					for (VocabularyList list : prefetcher.mRunning) {
+						if (list.getId() == listId) { list.cancel(); }
+					}
+				}
+			}
+		}
+	}
+
+	/**
+     * Helper method: Determines whether prefetching may go on (not stopped, enough memory, unmetered network)
+     */
+	private boolean mayContinue() {
+		if (mStopped) { return false; }
+		Runtime runtime = Runtime.getRuntime();
+		if (runtime.totalMemory() - runtime.freeMemory() > runtime.maxMemory() * MAX_HEAP_USE) { return false; }
+		return isUnmetered(mContext);
+	}
+
+	/**
+     * Determines whether the device is online on an unmetered network (Wi-Fi or similar)
+     *
+     * @param ctx Context needed for accessing the connectivity service
+     */
+	public static boolean isUnmetered(Context ctx) {
+		ConnectivityManager cm = (ConnectivityManager) ctx.getSystemService(Context.CONNECTIVITY_SERVICE);
+		NetworkInfo network = cm.getActiveNetworkInfo();
+		if (network == null || !network.isConnected()) { return false; }
+		if (Build.VERSION.SDK_INT >= 16) { return !cm.isActiveNetworkMetered(); }
+		return network.getType() == ConnectivityManager.TYPE_WIFI;
+	}
+
+	/**
+     * Helper method: Determines whether an array contains a value
+     */
+	private static boolean contains(int[] array, int value) {
+		for (int element : array) {
+			if (element == value) { return true; }
+		}
+		return false;
+	}
+
+	/**
+	 * Fetches one list into {@link DeckStore DeckStore}. The list object is dropped afterwards, so only the stored
+	 * copy is kept.
+	 */
+	class Fetch implements Runnable {
+
+		/** Id of list to fetch */
+		private final int id;
+
+		/**
+	     * Initializes task
+	     *
+	     * @param id Id of list to fetch
+	     */
+		Fetch(int id) {
+			this.id = id;
+		}
+
+		public void run() {
+			if (!mayContinue()) {
+				stop();
+				return;
+			}
+			VocabularyList list = new VocabularyList(mContext);
+			list.setId(id);
+			synchronized (sInstances) {
+				if (sOpened.contains(id)) { return; }
+				synchronized (mRunning) {
+					if (mStopped) { return; }
+					mRunning.add(list);
+				}
+			}
+			long start = System.nanoTime();
+			RestClient.setDeadline(DEADLINE);
+			try {
+				list.getRemoteData();
+				Metrics.time("load Prefetcher.list", start);
+			}
+			finally {
+				RestClient.clearDeadline();
+				synchronized (mRunning) { mRunning.remove(list); }
+			}
+		}
+	}
+}
@@ -1,9 +1,24 @@
 package me.vocabulario.vocabuloid;
 
-import org.apache.http.client.ResponseHandler;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.BasicResponseHandler;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.util.EntityUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
@@ -11,24 +26,74 @@ import me.vocabulario.vocabuloid.R;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.os.Looper;
 import oauth.signpost.commonshttp.CommonsHttpOAuthConsumer;
 
 /**
- * Abstract base class for communicating with the vocabulario.me web service. 
+ * Abstract base class for communicating with the vocabulario.me web service. All instances share one pooled
+ * connection manager (see {@link SharedHttpClient SharedHttpClient}). GET requests are revalidated using
+ * ETag / Last-Modified validators kept in {@link DeckStore DeckStore} (except for paths with a query).
+ *
+ * Delta sync: resources supporting it return a change cursor in an X-Change-Cursor header. Passing that cursor back
+ * as "?since=" asks for the changes since; a server that honours the parameter marks the response with
+ * "X-Delta: true", otherwise the full resource is returned (see {@link #getChangeCursor() getChangeCursor}).
+ *
+ * Every request has a connect and a read timeout, both cut down to what is left of the deadline of the current
+ * user action (see {@link #setDeadline(long) setDeadline}). Failed GET requests (I/O errors and 5xx) are retried
+ * with jittered exponential backoff. After {@link CircuitBreaker#FAILURE_THRESHOLD FAILURE_THRESHOLD} failures in a
+ * row, requests fail right away until the {@link CircuitBreaker CircuitBreaker} lets a trial request through.
+ * A client can be {@link #cancel() cancelled}, aborting its request in flight and failing all further ones.
  *
  * @author Ulf Moehring
  * @version 0.3
  */
 public abstract class RestClient {
 
+	/** Default connect timeout (in ms) */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	/** Default read timeout (in ms), i.e. longest time without receiving data */
+	public static final int DEFAULT_READ_TIMEOUT = 20000;
+	/** Number of times a failed GET request is retried */
+	public static final int MAX_RETRIES = 2;
+	/** Base delay (in ms) before the first retry (doubles with every retry) */
+	public static final long RETRY_BASE_DELAY = 500;
+	/** Longest delay (in ms) before a retry */
+	public static final long RETRY_MAX_DELAY = 4000;
 	/** Context shared across application */
 	protected Context mContext;
 	/** Common preferences store */
-	private static final String PREFERENCES = "VOCABULOID_PREFERENCES";
+	protected static final String PREFERENCES = "VOCABULOID_PREFERENCES";
 	/** OAuth consumer for communication with remote service */
 	private CommonsHttpOAuthConsumer mConsumer;
-	/** Base url of remote service */
-	private String mBaseUrl;
+	/** Base url replacing R.string.base_url for all clients (e.g. a local stand-in server), or null */
+	private static volatile String sBaseUrl;
+	/** Validator of the last streamed response, stored once the caller has processed the body */
+	private Validator mPendingValidator;
+	/** Number of GET requests answered with 200 */
+	private static final AtomicLong sModified = new AtomicLong();
+	/** Number of GET requests answered with 304 */
+	private static final AtomicLong sNotModified = new AtomicLong();
+	/** Number of body bytes not transferred thanks to 304 responses */
+	private static final AtomicLong sBytesSaved = new AtomicLong();
+	/** Deadline (System.nanoTime()) of the user action running on the current thread, or null */
+	private static final ThreadLocal<Long> sDeadline = new ThreadLocal<Long>();
+	/** Breaker shared by all clients (they all talk to the same server) */
+	private static final CircuitBreaker sBreaker = new CircuitBreaker();
+	/** Source of retry jitter */
+	private static final Random sRandom = new Random();
+	/** Connect timeout (in ms) of this client */
+	private int mConnectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	/** Read timeout (in ms) of this client */
+	private int mReadTimeout = DEFAULT_READ_TIMEOUT;
+	/** Request currently being sent or read (null once its response has been read or released) */
+	private volatile HttpRequestBase mRequest;
+	/** Whether the client has been cancelled */
+	private volatile boolean mCancelled;
+	/** Change cursor of the last GET response (or null) */
+	private String mChangeCursor;
+	/** Whether the last GET response was a delta */
+	private boolean mDelta;
 	
 	/** 
      * Initializes RESTful connection
@@ -37,10 +102,88 @@ public abstract class RestClient {
      */
 	public RestClient(Context ctx) {
 		mContext = ctx;
-		mBaseUrl = mContext.getString(R.string.base_url);
 		mConsumer = new CommonsHttpOAuthConsumer(mContext.getString(R.string.consumer_key), mContext.getString(R.string.consumer_secret));
-		SharedPreferences settings = mContext.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
-		mConsumer.setTokenWithSecret(settings.getString("accessToken",null), settings.getString("accessSecret",null));
+	}
+	
+	/** 
+     * Returns base url of remote service (R.string.base_url unless replaced by {@link #setBaseUrl(String) setBaseUrl})
+     *
+     * @param ctx Context needed for accessing resources
+     */
+	public static String getBaseUrl(Context ctx) {
+		String baseUrl = sBaseUrl;
+		return baseUrl != null ? baseUrl : ctx.getString(R.string.base_url);
+	}
+	
+	/** 
+     * Points all clients (including OAuth) at another server, e.g. a local stand-in for load tests. Takes effect
+     * with the next request.
+     *
+     * @param baseUrl Base url without trailing slash, or null to use R.string.base_url again
+     */
+	public static void setBaseUrl(String baseUrl) {
+		sBaseUrl = baseUrl;
+	}
+	
+	/** 
+     * Sets the timeouts of all further requests of this client
+     *
+     * @param connect Connect timeout (in ms)
+     * @param read Read timeout (in ms), i.e. longest time without receiving data
+     */
+	public void setTimeouts(int connect, int read) {
+		mConnectTimeout = connect;
+		mReadTimeout = read;
+	}
+	
+	/** 
+     * Cancels the client: aborts the request in flight (closing its connection, so reading the response fails
+     * right away) and makes all further requests fail with an InterruptedIOException. May be called from any
+     * thread, including the main thread.
+     */
+	public void cancel() {
+		mCancelled = true;
+		final HttpRequestBase request = mRequest;
+		if (request == null) { return; }
+		new Thread("RestClient-abort") {
+			@Override
+			public void run() { request.abort(); }
+		}.start();
+	}
+	
+	/** 
+     * Determines whether the client has been cancelled (long running parsers should check this regularly)
+     */
+	public boolean isCancelled() {
+		return mCancelled;
+	}
+	
+	/** 
+     * Sets a deadline for all requests made on the current thread (e.g. by one AsyncTask), until
+     * {@link #clearDeadline() clearDeadline} is called. Requests (including retries) started after the deadline
+     * fail with an InterruptedIOException; timeouts of requests before are cut down to the time left.
+     *
+     * @param timeout Time (in ms) the user action may take from now
+     */
+	public static void setDeadline(long timeout) {
+		sDeadline.set(System.nanoTime() + timeout * 1000000);
+	}
+	
+	/** 
+     * Removes the deadline of the current thread
+     */
+	public static void clearDeadline() {
+		sDeadline.remove();
+	}
+	
+	/** 
+     * Checks if device is currently online
+     *
+     * @param ctx Context needed for accessing the connectivity service
+     */
+	public static boolean isOnline(Context ctx) {
+		ConnectivityManager cm = (ConnectivityManager) ctx.getSystemService(Context.CONNECTIVITY_SERVICE);
+		return cm.getActiveNetworkInfo() != null && cm.getActiveNetworkInfo().isConnectedOrConnecting();
 	}
 	
 	/** 
@@ -49,14 +192,13 @@ public abstract class RestClient {
      * @param path Relative path to resource
      */
 	protected JSONArray getCollection(String path) {
-		HttpGet request = new HttpGet(mBaseUrl + path);
-		DefaultHttpClient httpclient = new DefaultHttpClient();
-		ResponseHandler<String> handler = new BasicResponseHandler();
 		try {
-			mConsumer.sign(request);
-			String result = httpclient.execute(request, handler);
+			String result = getString(path);
 			if (result != "") {
+				long start = System.nanoTime();
 				JSONArray json = new JSONArray(result);
+				Metrics.time("parse " + Metrics.endpoint(path), start);
+				Metrics.record("objects " + Metrics.endpoint(path), json.length());
 				return json;
 			}
 		}
@@ -70,18 +212,396 @@ public abstract class RestClient {
      * @param path Relative path to resource
      */
 	protected JSONObject getObject(String path) {
-		HttpGet request = new HttpGet(mBaseUrl + path);
-		DefaultHttpClient httpclient = new DefaultHttpClient();
-		ResponseHandler<String> handler = new BasicResponseHandler();
 		try {
-			mConsumer.sign(request);
-			String result = httpclient.execute(request, handler);
+			String result = getString(path);
 			if (result != "") {
+				long start = System.nanoTime();
 				JSONObject json = new JSONObject(result);
+				Metrics.time("parse " + Metrics.endpoint(path), start);
+				Metrics.record("objects " + Metrics.endpoint(path), 1);
 				return json;
 			}
 		}
 		catch (Exception e) { e.printStackTrace(); }
 		return null;
 	}
+
+	/** 
+     * Execute a GET request and return the response body. If the stored copy is still valid (304), it is
+     * returned instead.
+     *
+     * @param path Relative path to resource
+     */
+	protected String getString(String path) throws IOException {
+		DeckStore store = DeckStore.getInstance(mContext);
+		Validator validator = store.getValidator(path);
+		if (validator != null && validator.body == null) { validator = null; }
+		HttpResponse response = execute(path, validator);
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+			return validator.body;
+		}
+		String body;
+		try {
+			body = EntityUtils.toString(response.getEntity(), "UTF-8");
+		}
+		finally { mRequest = null; }
+		Validator fresh = getValidator(path, response, body.length());
+		if (fresh != null && path.indexOf('?') < 0) {
+			fresh.body = body;
+			store.putValidator(fresh);
+		}
+		return body;
+	}
+	
+	/** 
+     * Execute a GET request and return a pull reader on the response body, so the payload can be parsed
+     * while it is downloaded. Callers must close the returned reader to release the connection, and call
+     * {@link #storeValidator() storeValidator} once the body has been processed successfully.
+     *
+     * @param path Relative path to resource
+     * @return Reader, or null if the resource hasn't changed since the last call to storeValidator
+     */
+	protected JsonPullReader getStream(String path) throws IOException {
+		Validator validator = DeckStore.getInstance(mContext).getValidator(path);
+		HttpResponse response = execute(path, validator);
+		if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+			return null;
+		}
+		HttpEntity entity = response.getEntity();
+		mPendingValidator = path.indexOf('?') < 0 ? getValidator(path, response, entity.getContentLength()) : null;
+		return new JsonPullReader(new InputStreamReader(new FilterInputStream(entity.getContent()) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				}
+				finally { mRequest = null; }
+			}
+		}, "UTF-8"));
+	}
+	
+	/** 
+     * Stores the validator of the last response returned by {@link #getStream(String) getStream}, so the next
+     * request for the resource is conditional
+     */
+	protected void storeValidator() {
+		if (mPendingValidator != null) {
+			DeckStore.getInstance(mContext).putValidator(mPendingValidator);
+			mPendingValidator = null;
+		}
+	}
+	
+	/** 
+     * Drops the validator of a resource, forcing the next request to fetch the full body
+     *
+     * @param path Relative path to resource
+     */
+	protected void removeValidator(String path) {
+		DeckStore.getInstance(mContext).removeValidator(path);
+	}
+	
+	/** 
+     * Execute a POST request with a JSON body. Fails on any status other than 2xx.
+     *
+     * @param path Relative path to resource
+     * @param json Request body
+     */
+	protected void post(String path, String json) throws IOException {
+		HttpPost request = new HttpPost(getBaseUrl(mContext) + path);
+		StringEntity body = new StringEntity(json, "UTF-8");
+		body.setContentType("application/json");
+		request.setEntity(body);
+		HttpResponse response = send(request, path);
+		release(response);
+		int status = response.getStatusLine().getStatusCode();
+		if (status < 200 || status >= 300) {
+			Metrics.record("errors " + Metrics.endpoint(path), 1);
+			throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+		}
+	}
+	
+	/** Returns the change cursor sent with the last GET response (null if the resource doesn't support delta sync) */
+	protected String getChangeCursor() { return mChangeCursor; }
+	
+	/** Determines whether the last GET response only holds the changes since the cursor passed as "?since=" */
+	protected boolean isDelta() { return mDelta; }
+	
+	/** Returns number of GET requests that transferred a full body */
+	public static long getModifiedCount() { return sModified.get(); }
+	
+	/** Returns number of GET requests that were answered with 304 Not Modified */
+	public static long getNotModifiedCount() { return sNotModified.get(); }
+	
+	/** Returns (approximate) number of body bytes saved by 304 responses */
+	public static long getBytesSaved() { return sBytesSaved.get(); }
+	
+	/** 
+     * Helper method: Executes a (conditional) GET request. Fails on any status other than 200 or 304.
+     *
+     * @param path Relative path to resource
+     * @param validator Validator of stored copy (or null)
+     */
+	private HttpResponse execute(String path, Validator validator) throws IOException {
+		HttpResponse response = null;
+		for (int attempt=0; response == null; attempt++) {
+			HttpGet request = new HttpGet(getBaseUrl(mContext) + path);
+			if (validator != null) {
+				if (validator.etag != null) { request.addHeader("If-None-Match", validator.etag); }
+				if (validator.lastModified != null) { request.addHeader("If-Modified-Since", validator.lastModified); }
+			}
+			try {
+				response = send(request, path);
+				if (response.getStatusLine().getStatusCode() >= 500 && attempt < MAX_RETRIES) {
+					release(response);
+					response = null;
+				}
+			}
+			catch (CircuitOpenException e) { throw e; }
+			catch (InterruptedIOException e) {
+				if (attempt >= MAX_RETRIES || isPastDeadline() || mCancelled) { throw e; }
+			}
+			catch (IOException e) {
+				if (attempt >= MAX_RETRIES || mCancelled) { throw e; }
+			}
+			if (response == null) {
+				Metrics.record("retries " + Metrics.endpoint(path), 1);
+				backoff(attempt);
+			}
+		}
+		HttpEntity entity = response.getEntity();
+		int status = response.getStatusLine().getStatusCode();
+		Header cursor = response.getFirstHeader("X-Change-Cursor");
+		Header delta = response.getFirstHeader("X-Delta");
+		mChangeCursor = cursor == null ? null : cursor.getValue();
+		mDelta = delta != null && delta.getValue().equals("true");
+		if (status == HttpStatus.SC_NOT_MODIFIED && validator != null) {
+			release(response);
+			sNotModified.incrementAndGet();
+			sBytesSaved.addAndGet(validator.length);
+			return response;
+		}
+		if (status >= 300 || entity == null) {
+			release(response);
+			Metrics.record("errors " + Metrics.endpoint(path), 1);
+			throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+		}
+		sModified.incrementAndGet();
+		return response;
+	}
+	
+	/** 
+     * Helper method: Signs and executes a request through the {@link SharedHttpClient SharedHttpClient}, recording
+     * its latency (see {@link Metrics Metrics}). Refuses to run on the main thread, after the deadline of the
+     * current thread or while the circuit breaker is open. The access token is read from the preferences for every
+     * request, so long-lived clients (like {@link ReviewLog ReviewLog}) sign with the account currently signed in.
+     *
+     * @param request Request to send
+     * @param path Relative path to resource (for error messages)
+     */
+	private HttpResponse send(HttpRequestBase request, String path) throws IOException {
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			throw new IllegalStateException("Network request on main thread: " + path);
+		}
+		if (mCancelled) { throw new InterruptedIOException("Request cancelled: " + path); }
+		long left = getTimeLeft();
+		if (left <= 0) {
+			Metrics.record("errors " + Metrics.endpoint(path), 1);
+			throw new InterruptedIOException("Deadline exceeded before request: " + path);
+		}
+		HttpConnectionParams.setConnectionTimeout(request.getParams(), (int) Math.min(mConnectTimeout, left));
+		HttpConnectionParams.setSoTimeout(request.getParams(), (int) Math.min(mReadTimeout, left));
+		HttpClient httpclient = SharedHttpClient.getInstance();
+		try {
+			SharedPreferences settings = mContext.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+			synchronized (mConsumer) {
+				mConsumer.setTokenWithSecret(settings.getString("accessToken",null), settings.getString("accessSecret",null));
+				mConsumer.sign(request);
+			}
+		}
+		catch (Exception e) { throw new IOException(e.getMessage()); }
+		String endpoint = Metrics.endpoint(path);
+		if (!sBreaker.allowRequest()) {
+			Metrics.record("rejected " + endpoint, 1);
+			throw new CircuitOpenException(path);
+		}
+		long start = System.nanoTime();
+		mRequest = request;
+		if (mCancelled) { request.abort(); }
+		HttpResponse response = null;
+		try {
+			response = httpclient.execute(request);
+			Metrics.time("latency " + request.getMethod() + " " + endpoint, start);
+			if (response.getStatusLine().getStatusCode() >= 500) { sBreaker.onFailure(); }
+			else { sBreaker.onSuccess(); }
+			return response;
+		}
+		catch (IOException e) {
+			if (mCancelled) {
+				sBreaker.onCancelled();
+				Metrics.record("cancelled " + endpoint, 1);
+				throw new InterruptedIOException("Request cancelled: " + path);
+			}
+			sBreaker.onFailure();
+			Metrics.record("errors " + endpoint, 1);
+			throw e;
+		}
+		catch (RuntimeException e) {
+			sBreaker.onFailure();
+			throw e;
+		}
+		finally {
+			if (response == null) { mRequest = null; }
+		}
+	}
+	
+	/** 
+     * Helper method: Discards the body of a response (releasing its connection) and forgets the request, so a later
+     * {@link #cancel() cancel} doesn't abort it
+     *
+     * @param response Response to release
+     */
+	private void release(HttpResponse response) throws IOException {
+		try {
+			HttpEntity entity = response.getEntity();
+			if (entity != null) { entity.consumeContent(); }
+		}
+		finally { mRequest = null; }
+	}
+	
+	/** 
+     * Helper method: Returns the time (in ms) left until the deadline of the current thread (Long.MAX_VALUE if none)
+     */
+	private static long getTimeLeft() {
+		Long deadline = sDeadline.get();
+		return deadline == null ? Long.MAX_VALUE : (deadline - System.nanoTime()) / 1000000;
+	}
+	
+	/** 
+     * Helper method: Determines whether the deadline of the current thread has passed
+     */
+	private static boolean isPastDeadline() {
+		return getTimeLeft() <= 0;
+	}
+	
+	/** 
+     * Helper method: Waits before a retry, a random time up to RETRY_BASE_DELAY * 2^attempt (capped at
+     * RETRY_MAX_DELAY and the deadline), so clients failing together don't retry together
+     *
+     * @param attempt Number of the failed attempt (starting with 0)
+     */
+	private static void backoff(int attempt) throws IOException {
+		long cap = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << attempt);
+		long delay;
+		synchronized (sRandom) { delay = (long) (sRandom.nextDouble() * cap); }
+		delay = Math.min(delay, getTimeLeft());
+		try {
+			if (delay > 0) { Thread.sleep(delay); }
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting to retry");
+		}
+	}
+	
+	/** 
+     * Helper method: Extracts validators from a response
+     *
+     * @param path Relative path to resource
+     * @param response Response with status 200
+     * @param length Length of response body (if known)
+     * @return Validator, or null if the response carries neither ETag nor Last-Modified
+     */
+	private static Validator getValidator(String path, HttpResponse response, long length) {
+		Header etag = response.getFirstHeader("ETag");
+		Header lastModified = response.getFirstHeader("Last-Modified");
+		if (etag == null && lastModified == null) { return null; }
+		Validator validator = new Validator();
+		validator.path = path;
+		validator.etag = etag == null ? null : etag.getValue();
+		validator.lastModified = lastModified == null ? null : lastModified.getValue();
+		validator.length = Math.max(length, 0);
+		return validator;
+	}
+	
+	/** 
+	 * Circuit breaker shared by all clients. Opens after FAILURE_THRESHOLD failed requests in a row and rejects
+	 * requests for OPEN_TIME ms, then lets a single trial request through (half open): if it succeeds the breaker
+	 * closes, otherwise it stays open for another OPEN_TIME ms.
+	 */
+	static class CircuitBreaker {
+		/** Number of failures in a row that opens the breaker */
+		public static final int FAILURE_THRESHOLD = 5;
+		/** Time (in ms) the breaker stays open */
+		public static final long OPEN_TIME = 30000;
+		/** Number of failures in a row */
+		private int failures;
+		/** Time (System.nanoTime()) the breaker was opened */
+		private long openedAt;
+		/** Whether the breaker is open */
+		private boolean open;
+		/** Whether a trial request is running (half open) */
+		private boolean trial;
+
+		/** Determines whether a request may be sent (and if so, counts it as trial request while half open) */
+		synchronized boolean allowRequest() {
+			if (!open) { return true; }
+			if (trial || System.nanoTime() - openedAt < OPEN_TIME * 1000000) { return false; }
+			trial = true;
+			return true;
+		}
+
+		/** Records a successful request, closing the breaker */
+		synchronized void onSuccess() {
+			failures = 0;
+			open = false;
+			trial = false;
+		}
+
+		/** Records a cancelled request, which says nothing about the server (a trial request is repeated) */
+		synchronized void onCancelled() {
+			trial = false;
+		}
+
+		/** Records a failed request, opening the breaker if the threshold is reached or the trial request failed */
+		synchronized void onFailure() {
+			failures++;
+			if (trial || failures >= FAILURE_THRESHOLD) {
+				open = true;
+				openedAt = System.nanoTime();
+				trial = false;
+			}
+		}
+	}
+	
+	/** 
+	 * Thrown instead of sending a request while the {@link CircuitBreaker CircuitBreaker} is open
+	 */
+	public static class CircuitOpenException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		/**
+	     * Initializes exception
+	     *
+	     * @param path Relative path to rejected resource
+	     */
+		public CircuitOpenException(String path) {
+			super("Server unavailable, not sending request: " + path);
+		}
+	}
+	
+	/** 
+	 * Cache validators (and optionally the body) of a GET response
+	 */
+	public static class Validator {
+		/** Relative path to resource */
+		public String path;
+		/** Value of ETag header */
+		public String etag;
+		/** Value of Last-Modified header */
+		public String lastModified;
+		/** Length of response body */
+		public long length;
+		/** Response body (only kept for small JSON responses) */
+		public String body;
+	}
 }
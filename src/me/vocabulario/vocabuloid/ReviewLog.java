@@ -0,0 +1,297 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Append-only log of review events, uploaded to vocabulario.me in batches. Events are buffered and synced to disk
+ * every {@link #SYNC_BATCH SYNC_BATCH} events (or {@link #SYNC_DELAY SYNC_DELAY} ms after the first unsynced one).
+ * A background uploader posts them to /reviews.json in batches of up to {@link #UPLOAD_BATCH UPLOAD_BATCH},
+ * so the radio wakes up once per batch rather than once per answer. Every event carries a unique id, so a batch
+ * resent after a failed or interrupted upload is not counted twice. The log is truncated once everything has been
+ * uploaded.
+ *
+ * Log format: one line per event, "id vocabulary_id grade reviewed_at" (tab separated, ASCII only).
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class ReviewLog extends RestClient {
+
+	/** File name of log (in the application's files directory) */
+	private static final String FILE_NAME = "reviews.log";
+	/** Preference holding the offset up to which the log has been uploaded */
+	private static final String UPLOADED = "reviewLogUploaded";
+	/** Number of events after which the log is synced to disk */
+	public static final int SYNC_BATCH = 20;
+	/** Time (in ms) after which unsynced events are synced to disk */
+	public static final long SYNC_DELAY = 5000;
+	/** Maximum number of events per upload (an upload is started as soon as that many are waiting) */
+	public static final int UPLOAD_BATCH = 50;
+	/** Time (in ms) between regular uploads of waiting events */
+	public static final long UPLOAD_INTERVAL = 15 * 60 * 1000L;
+	/** Delay (in ms) before retrying a failed upload (doubles with every failure up to UPLOAD_INTERVAL) */
+	public static final long RETRY_DELAY = 30000;
+	/** Shared instance (created on first use) */
+	private static ReviewLog sInstance;
+
+	/** Log file */
+	private final File mFile;
+	/** Preferences holding the upload offset */
+	private final SharedPreferences mSettings;
+	/** Thread syncing and uploading the log */
+	private final ScheduledExecutorService mExecutor;
+	/** Stream appending to the log */
+	private FileOutputStream mStream;
+	/** Buffered writer on mStream */
+	private BufferedWriter mWriter;
+	/** Number of events written but not yet synced */
+	private int mUnsynced;
+	/** Number of events not yet uploaded */
+	private int mUnsent;
+	/** Pending delayed sync (or null) */
+	private ScheduledFuture<?> mSync;
+	/** Whether an upload is scheduled or running */
+	private boolean mUploading;
+	/** Delay before the next retry */
+	private long mRetryDelay = RETRY_DELAY;
+	/** Incremented whenever the log is cleared (so a running upload doesn't move the offset of a new log) */
+	private int mGeneration;
+
+	/**
+     * Returns the shared log, starting the uploader on first call
+     *
+     * @param ctx Context needed for assessing shared resources
+     */
+	public static synchronized ReviewLog getInstance(Context ctx) {
+		if (sInstance == null) {
+			sInstance = new ReviewLog(ctx.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+     * Initializes log and uploader
+     *
+     * @param ctx Application context
+     */
+	private ReviewLog(Context ctx) {
+		super(ctx);
+		mFile = new File(ctx.getFilesDir(), FILE_NAME);
+		mSettings = ctx.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+		mExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ReviewLog");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			open(true);
+			mUnsent = countUnsent();
+		}
+		catch (IOException e) { e.printStackTrace(); }
+		mExecutor.scheduleWithFixedDelay(new Runnable() {
+			public void run() { scheduleUpload(0); }
+		}, RETRY_DELAY, UPLOAD_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+     * Appends a review event to the log
+     *
+     * @param vocabularyId Id of reviewed vocabulary
+     * @param grade Grade given (see {@link Scheduler Scheduler})
+     * @param reviewedAt Time of review (in ms)
+     */
+	public synchronized void append(int vocabularyId, int grade, long reviewedAt) {
+		try {
+			if (mWriter == null) { open(true); }
+			mWriter.write(UUID.randomUUID() + "\t" + vocabularyId + "\t" + grade + "\t" + reviewedAt + "\n");
+			mUnsynced++;
+			mUnsent++;
+			if (mUnsynced >= SYNC_BATCH) { sync(); }
+			else if (mSync == null) {
+				mSync = mExecutor.schedule(new Runnable() {
+					public void run() { sync(); }
+				}, SYNC_DELAY, TimeUnit.MILLISECONDS);
+			}
+		}
+		catch (IOException e) { e.printStackTrace(); }
+		if (mUnsent >= UPLOAD_BATCH) { scheduleUpload(0); }
+	}
+
+	/**
+     * Writes buffered events to disk and waits until they are synced
+     */
+	public synchronized void sync() {
+		if (mSync != null) {
+			mSync.cancel(false);
+			mSync = null;
+		}
+		if (mWriter == null || mUnsynced == 0) { return; }
+		try {
+			mWriter.flush();
+			mStream.getFD().sync();
+			mUnsynced = 0;
+		}
+		catch (IOException e) { e.printStackTrace(); }
+	}
+
+	/**
+     * Drops all events, uploaded or not (called on sign out)
+     */
+	public synchronized void clear() {
+		try {
+			open(false);
+		}
+		catch (IOException e) { e.printStackTrace(); }
+		mSettings.edit().putLong(UPLOADED, 0).commit();
+		mUnsynced = 0;
+		mUnsent = 0;
+		mGeneration++;
+	}
+
+	/** Returns number of events not yet uploaded */
+	public synchronized int getUnsentCount() { return mUnsent; }
+
+	/**
+     * Helper method: Schedules an upload on the log's thread unless one is already pending
+     *
+     * @param delay Delay (in ms)
+     */
+	private synchronized void scheduleUpload(long delay) {
+		if (mUploading || mUnsent == 0) { return; }
+		mUploading = true;
+		mExecutor.schedule(new Runnable() {
+			public void run() { upload(); }
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+     * Helper method: Uploads waiting events batch by batch (log thread only). Retries with growing delay on failure.
+     */
+	private void upload() {
+		while (true) {
+			long start, end;
+			int generation;
+			JSONArray batch = new JSONArray();
+			synchronized (this) {
+				if (mUnsent == 0 || !isOnline(mContext)) {
+					mUploading = false;
+					return;
+				}
+				sync();
+				start = mSettings.getLong(UPLOADED, 0);
+				generation = mGeneration;
+				try {
+					end = read(start, batch);
+				}
+				catch (Exception e) {
+					e.printStackTrace();
+					mUploading = false;
+					return;
+				}
+				if (batch.length() == 0) {
+					mUnsent = 0;
+					mUploading = false;
+					return;
+				}
+			}
+			try {
+				JSONObject body = new JSONObject();
+				body.put("reviews", batch);
+				post("/reviews.json", body.toString());
+			}
+			catch (Exception e) {
+				e.printStackTrace();
+				long delay = mRetryDelay;
+				mRetryDelay = Math.min(mRetryDelay * 2, UPLOAD_INTERVAL);
+				synchronized (this) { mUploading = false; }
+				scheduleUpload(delay);
+				return;
+			}
+			mRetryDelay = RETRY_DELAY;
+			synchronized (this) {
+				if (generation != mGeneration) { continue; }
+				mUnsent = Math.max(0, mUnsent - batch.length());
+				if (end >= mFile.length() && mUnsynced == 0) {
+					try {
+						open(false);
+						end = 0;
+					}
+					catch (IOException e) { e.printStackTrace(); }
+				}
+				mSettings.edit().putLong(UPLOADED, end).commit();
+			}
+		}
+	}
+
+	/**
+     * Helper method: Reads up to {@link #UPLOAD_BATCH UPLOAD_BATCH} events from the log
+     *
+     * @param start Offset of first event
+     * @param batch Array to add the events to
+     * @return Offset after the last event read
+     */
+	private long read(long start, JSONArray batch) throws Exception {
+		RandomAccessFile file = new RandomAccessFile(mFile, "r");
+		try {
+			file.seek(start);
+			String line;
+			while (batch.length() < UPLOAD_BATCH && (line = file.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if (fields.length < 4) { continue; }
+				JSONObject review = new JSONObject();
+				review.put("id", fields[0]);
+				review.put("vocabulary_id", Integer.parseInt(fields[1]));
+				review.put("grade", Integer.parseInt(fields[2]));
+				review.put("reviewed_at", Long.parseLong(fields[3]));
+				batch.put(review);
+			}
+			return file.getFilePointer();
+		}
+		finally { file.close(); }
+	}
+
+	/**
+     * Helper method: Counts the events after the upload offset
+     */
+	private int countUnsent() throws IOException {
+		if (!mFile.exists()) { return 0; }
+		RandomAccessFile file = new RandomAccessFile(mFile, "r");
+		try {
+			file.seek(Math.min(mSettings.getLong(UPLOADED, 0), file.length()));
+			int count = 0;
+			while (file.readLine() != null) { count++; }
+			return count;
+		}
+		finally { file.close(); }
+	}
+
+	/**
+     * Helper method: (Re)opens the log for appending
+     *
+     * @param append False to truncate the log
+     */
+	private void open(boolean append) throws IOException {
+		if (mWriter != null) { mWriter.close(); }
+		mStream = new FileOutputStream(mFile, append);
+		mWriter = new BufferedWriter(new OutputStreamWriter(mStream, "US-ASCII"));
+	}
+}
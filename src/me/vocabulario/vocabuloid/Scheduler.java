@@ -0,0 +1,229 @@
+package me.vocabulario.vocabuloid;
+
+import android.content.Context;
+
+/**
+ * Spaced-repetition scheduler (SM-2) for the vocabularies of one {@link VocabularyTable VocabularyTable}. Review
+ * state is kept per vocabulary id in {@link DeckStore DeckStore} and written back after every review. Cards are
+ * held in an indexed binary heap ordered by due time, so finding the next card is O(1) and rescheduling a card
+ * is O(log n). Cards never reviewed are due right after the overdue ones, in list order.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class Scheduler {
+
+	/** Grade for a card that wasn't known */
+	public static final int GRADE_AGAIN = 1;
+	/** Grade for a card that was known with some effort */
+	public static final int GRADE_GOOD = 4;
+	/** Grade for a card that was known right away */
+	public static final int GRADE_EASY = 5;
+	/** Ease factor of new cards */
+	public static final float DEFAULT_EASE = 2.5f;
+	/** Lowest ease factor */
+	public static final float MIN_EASE = 1.3f;
+	/** Length of a day (in ms) */
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	/** Context shared across application */
+	private final Context mContext;
+	/** Vocabularies to schedule */
+	private final VocabularyTable mTable;
+	/** Time new cards are due at (time the scheduler was created) */
+	private final long mCreated;
+	/** Number of successful reviews in a row, per row */
+	private final int[] repetitions;
+	/** Current interval (in days), per row */
+	private final int[] intervals;
+	/** Ease factor, per row */
+	private final float[] eases;
+	/** Due time (in ms, 0 for new cards), per row */
+	private final long[] due;
+	/** Heap of rows ordered by due time */
+	private final int[] heap;
+	/** Position of every row in heap */
+	private final int[] positions;
+
+	/**
+     * Initializes scheduler with all cards new
+     *
+     * @param ctx Context needed for accessing the store
+     * @param table Vocabularies to schedule (fully loaded)
+     */
+	public Scheduler(Context ctx, VocabularyTable table) {
+		mContext = ctx;
+		mTable = table;
+		mCreated = System.currentTimeMillis();
+		int size = table.size();
+		repetitions = new int[size];
+		intervals = new int[size];
+		eases = new float[size];
+		due = new long[size];
+		heap = new int[size];
+		positions = new int[size];
+		for (int i=0; i<size; i++) {
+			eases[i] = DEFAULT_EASE;
+			heap[i] = i;
+			positions[i] = i;
+		}
+	}
+
+	/**
+     * Loads the review state of all cards of a list from {@link DeckStore DeckStore} and orders the cards
+     *
+     * @param listId Id of list the table belongs to
+     */
+	public synchronized void load(int listId) {
+		DeckStore.getInstance(mContext).getReviews(listId, this);
+		for (int i=heap.length/2-1; i>=0; i--) { siftDown(i); }
+	}
+
+	/**
+     * Sets the review state of a card (used by {@link DeckStore DeckStore} while loading)
+     *
+     * @param row Row of vocabulary
+     * @param repetitions Number of successful reviews in a row
+     * @param interval Current interval (in days)
+     * @param ease Ease factor
+     * @param due Due time (in ms)
+     */
+	void restore(int row, int repetitions, int interval, float ease, long due) {
+		if (row < 0 || row >= heap.length) { return; }
+		this.repetitions[row] = repetitions;
+		this.intervals[row] = interval;
+		this.eases[row] = ease;
+		this.due[row] = due;
+	}
+
+	/** Returns number of scheduled cards */
+	public int size() { return heap.length; }
+
+	/** Returns row of the card due next (-1 if there are no cards) */
+	public synchronized int peek() {
+		return heap.length == 0 ? -1 : heap[0];
+	}
+
+	/** Returns due time of a card (in ms, time of creation for new cards) */
+	public synchronized long getDue(int row) {
+		return key(row);
+	}
+
+	/** Returns whether a card is due (or new) */
+	public synchronized boolean isDue(int row) {
+		return key(row) <= Math.max(System.currentTimeMillis(), mCreated);
+	}
+
+	/**
+     * Returns all rows ordered by due time (overdue cards first, then new cards, then cards due later)
+     */
+	public synchronized int[] getOrder() {
+		int[] order = new int[heap.length];
+		int[] queue = heap.clone();
+		int size = queue.length;
+		for (int i=0; i<order.length; i++) {
+			order[i] = queue[0];
+			queue[0] = queue[--size];
+			int parent = 0;
+			while (true) {
+				int child = 2 * parent + 1;
+				if (child >= size) { break; }
+				if (child + 1 < size && before(queue[child + 1], queue[child])) { child++; }
+				if (!before(queue[child], queue[parent])) { break; }
+				int swap = queue[child]; queue[child] = queue[parent]; queue[parent] = swap;
+				parent = child;
+			}
+		}
+		return order;
+	}
+
+	/**
+     * Records a review (SM-2), reschedules the card, stores its new state and appends the review to the
+     * {@link ReviewLog ReviewLog}
+     *
+     * @param row Row of vocabulary
+     * @param grade Quality of answer, 0 (blackout) to 5 (perfect), see GRADE_* constants
+     */
+	public void review(int row, int grade) {
+		int id, repetition, interval;
+		float ease;
+		long time;
+		synchronized (this) {
+			grade = Math.max(0, Math.min(5, grade));
+			if (grade < 3) {
+				repetitions[row] = 0;
+				intervals[row] = 1;
+			}
+			else {
+				if (repetitions[row] == 0) { intervals[row] = 1; }
+				else if (repetitions[row] == 1) { intervals[row] = 6; }
+				else { intervals[row] = Math.round(intervals[row] * eases[row]); }
+				repetitions[row]++;
+			}
+			eases[row] = Math.max(MIN_EASE, eases[row] + 0.1f - (5 - grade) * (0.08f + (5 - grade) * 0.02f));
+			due[row] = System.currentTimeMillis() + intervals[row] * DAY;
+			siftUp(positions[row]);
+			siftDown(positions[row]);
+			id = mTable.getId(row);
+			repetition = repetitions[row];
+			interval = intervals[row];
+			ease = eases[row];
+			time = due[row];
+		}
+		DeckStore.getInstance(mContext).putReview(id, repetition, interval, ease, time);
+		ReviewLog.getInstance(mContext).append(id, grade, System.currentTimeMillis());
+	}
+
+	/**
+     * Helper method: Returns the heap key of a row (new cards are due at creation time)
+     */
+	private long key(int row) {
+		return due[row] == 0 ? mCreated : due[row];
+	}
+
+	/**
+     * Helper method: Determines whether row a comes before row b (due time, then list order)
+     */
+	private boolean before(int a, int b) {
+		long ka = key(a);
+		long kb = key(b);
+		return ka < kb || (ka == kb && a < b);
+	}
+
+	/**
+     * Helper method: Moves the heap entry at position i up to its place
+     */
+	private void siftUp(int i) {
+		while (i > 0) {
+			int parent = (i - 1) / 2;
+			if (!before(heap[i], heap[parent])) { break; }
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	/**
+     * Helper method: Moves the heap entry at position i down to its place
+     */
+	private void siftDown(int i) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heap.length) { break; }
+			if (child + 1 < heap.length && before(heap[child + 1], heap[child])) { child++; }
+			if (!before(heap[child], heap[i])) { break; }
+			swap(i, child);
+			i = child;
+		}
+	}
+
+	/**
+     * Helper method: Swaps two heap entries and updates their positions
+     */
+	private void swap(int i, int j) {
+		int a = heap[i];
+		heap[i] = heap[j];
+		heap[j] = a;
+		positions[heap[i]] = i;
+		positions[heap[j]] = j;
+	}
+}
@@ -0,0 +1,105 @@
+package me.vocabulario.vocabuloid;
+
+import me.vocabulario.vocabuloid.R;
+
+import android.app.ListActivity;
+import android.content.Intent;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.ListView;
+
+/**
+ * Full-text search over all vocabularies stored in {@link DeckStore DeckStore}. Results are updated as the user
+ * types; picking one opens the list in {@link Flashcard Flashcard} at the matching card.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class Search extends ListActivity {
+
+	/** Results currently shown */
+	private SearchIndex.Result[] mResults = new SearchIndex.Result[0];
+	/** Query running in the background (or null) */
+	private Query mQuery;
+
+	/**
+     * Called when the activity is first created.
+     *
+     * @param Bundle Default Bundle information (inherited)
+     */
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+    	super.onCreate(savedInstanceState);
+    	setContentView(R.layout.search);
+    	setListAdapter(new ArrayAdapter<SearchIndex.Result>(this, R.layout.row, mResults));
+    	((EditText)findViewById(R.id.query)).addTextChangedListener(mQueryListener);
+    }
+
+    /**
+     * Called whenever the query changes. Replaces a query still running with a new one.
+     */
+    private TextWatcher mQueryListener = new TextWatcher() {
+    	public void afterTextChanged(Editable s) {
+    		if (mQuery != null) { mQuery.cancel(false); }
+    		mQuery = new Query();
+    		mQuery.execute(s.toString());
+    	}
+    	public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+    	public void onTextChanged(CharSequence s, int start, int before, int count) {}
+    };
+
+    /**
+     * Called when user picks a result. Opens its list in {@link Flashcard Flashcard} at the matching card.
+     */
+    @Override
+    protected void onListItemClick(ListView l, View v, int position, long id) {
+    	SearchIndex.Result result = mResults[position];
+    	Intent i = new Intent(getBaseContext(), Flashcard.class);
+		i.putExtra("me.vocabulario.vocabuloid.listId", result.listId);
+		i.putExtra("me.vocabulario.vocabuloid.listSize", result.listSize);
+		i.putExtra("me.vocabulario.vocabuloid.position", result.position);
+		startActivity(i);
+    }
+
+    /**
+     * Asynchronous task used by {@link Search Search} to look up a query in {@link DeckStore DeckStore}
+     *
+     * @author Ulf Moehring
+     * @version 0.3
+     */
+ 	class Query extends AsyncTask<String, Void, SearchIndex.Result[]> {
+
+ 		/**
+	     * Main method: Search stored vocabularies
+	     *
+	     * @param query Text entered by the user
+	     */
+		@Override
+		protected SearchIndex.Result[] doInBackground(String... query) {
+			long start = System.nanoTime();
+			try {
+				return DeckStore.getInstance(Search.this).search(query[0]);
+			}
+			catch (Exception e) { e.printStackTrace(); return null; }
+			finally { Metrics.time("load Search.query", start); }
+		}
+
+		/**
+	     * Shows results in main thread (unless a newer query has been started meanwhile)
+	     *
+	     * @param results Vocabularies found
+	     */
+		@Override
+		protected void onPostExecute(SearchIndex.Result[] results) {
+			if (results == null || mQuery != this) { return; }
+			mQuery = null;
+			mResults = results;
+			setListAdapter(new ArrayAdapter<SearchIndex.Result>(Search.this, R.layout.row, mResults));
+		}
+ 	}
+}
@@ -0,0 +1,87 @@
+package me.vocabulario.vocabuloid;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Term extraction for the full-text search over stored vocabularies. Words, translations and conjugations are split
+ * into terms, which are lower-cased and stripped of diacritics (an accented "e" matches a plain one). Terms are kept
+ * in {@link DeckStore DeckStore} sorted by term, so a prefix search is a range scan on its index.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class SearchIndex {
+
+	/** Maximum number of results returned by a search */
+	public static final int MAX_RESULTS = 50;
+	/** Combining marks left over after decomposition */
+	private static final Pattern MARKS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+	private SearchIndex() {}
+
+	/**
+     * Returns a text lower-cased and without diacritics
+     *
+     * @param text Text to normalize
+     */
+	public static String normalize(String text) {
+		String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+		return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+     * Returns the normalized terms of a text (runs of letters and digits)
+     *
+     * @param text Text to split (may be null)
+     * @return Terms in order of appearance (may contain duplicates)
+     */
+	public static ArrayList<String> getTerms(String text) {
+		ArrayList<String> terms = new ArrayList<String>();
+		if (text == null) { return terms; }
+		String normalized = normalize(text);
+		int start = -1;
+		for (int i=0; i<=normalized.length(); i++) {
+			boolean inTerm = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+			if (inTerm && start < 0) { start = i; }
+			else if (!inTerm && start >= 0) {
+				terms.add(normalized.substring(start, i));
+				start = -1;
+			}
+		}
+		return terms;
+	}
+
+	/**
+     * Returns the smallest string greater than all strings starting with a prefix (upper bound of a range scan)
+     *
+     * @param prefix Non-empty prefix
+     */
+	static String getUpperBound(String prefix) {
+		return prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1);
+	}
+
+	/**
+	 * Vocabulary found by {@link DeckStore#search(String) DeckStore.search}
+	 */
+	public static class Result {
+		/** Id of list containing the vocabulary */
+		public int listId;
+		/** Name of list */
+		public String listName;
+		/** Number of vocabularies in list */
+		public int listSize;
+		/** Position of vocabulary in list (its row once the list is loaded from the store) */
+		public int position;
+		/** Vocabulary */
+		public String word;
+
+		/** Returns word and list name (as shown in the result list) */
+		@Override
+		public String toString() {
+			return word + " (" + listName + ")";
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HttpContext;
+
+
+/**
+ * Process-wide HTTP client shared by all {@link RestClient RestClient} subclasses. Keeps a thread-safe pool of
+ * persistent connections, so subsequent requests to vocabulario.me skip the TCP (and TLS) handshake. Responses
+ * are requested gzip/deflate compressed and decompressed while they are read. The client never retries on its
+ * own: {@link RestClient RestClient} decides about retries, within the deadline and the circuit breaker.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public final class SharedHttpClient {
+
+	/** Default number of pooled connections per host */
+	public static final int DEFAULT_MAX_PER_HOST = 4;
+	/** Default number of pooled connections overall */
+	public static final int DEFAULT_MAX_TOTAL = 8;
+	/** Longest time (in ms) to wait for a free pooled connection */
+	public static final long POOL_TIMEOUT = 10000;
+	/** Time (in ms) after which an unused connection is closed by the reaper */
+	public static final long IDLE_TIMEOUT = 30000;
+	/** Shared client instance (created on first use) */
+	private static DefaultHttpClient sClient;
+	/** Per-host connection limits */
+	private static final ConnPerRouteBean sConnPerRoute = new ConnPerRouteBean(DEFAULT_MAX_PER_HOST);
+	/** Number of requests executed */
+	private static final AtomicLong sRequests = new AtomicLong();
+	/** Number of requests sent over an already open connection */
+	private static final AtomicLong sReusedConnections = new AtomicLong();
+	/** Number of response body bytes received over the wire */
+	private static final AtomicLong sWireBytes = new AtomicLong();
+	/** Number of response body bytes after decompression */
+	private static final AtomicLong sDecodedBytes = new AtomicLong();
+	/** Time (in ms) spent decompressing response bodies */
+	private static final AtomicLong sDecodeTime = new AtomicLong();
+
+	private SharedHttpClient() {}
+
+	/**
+     * Returns the shared client, setting up connection pool and idle connection reaper on first call
+     */
+	public static synchronized HttpClient getInstance() {
+		if (sClient == null) {
+			HttpParams params = new BasicHttpParams();
+			HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+			HttpProtocolParams.setContentCharset(params, "UTF-8");
+			HttpConnectionParams.setStaleCheckingEnabled(params, true);
+			HttpConnectionParams.setConnectionTimeout(params, RestClient.DEFAULT_CONNECT_TIMEOUT);
+			HttpConnectionParams.setSoTimeout(params, RestClient.DEFAULT_READ_TIMEOUT);
+			ConnManagerParams.setTimeout(params, POOL_TIMEOUT);
+			ConnManagerParams.setMaxTotalConnections(params, DEFAULT_MAX_TOTAL);
+			ConnManagerParams.setMaxConnectionsPerRoute(params, sConnPerRoute);
+
+			SchemeRegistry registry = new SchemeRegistry();
+			registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+			registry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+			sClient = new DefaultHttpClient(new ThreadSafeClientConnManager(params, registry), params);
+			sClient.setHttpRequestRetryHandler(new DefaultHttpRequestRetryHandler(0, false));
+			sClient.addRequestInterceptor(new ReuseCounter());
+			sClient.addRequestInterceptor(new AcceptEncoding());
+			sClient.addResponseInterceptor(new ContentDecoder());
+			startReaper(sClient.getConnectionManager());
+		}
+		return sClient;
+	}
+
+	/**
+     * Sets the maximum number of pooled connections for one host. The limit applies to the route requests to the
+     * host take, which is secure (layered) for https.
+     *
+     * @param host Host (including scheme and port, as in the request urls) to set the limit for
+     * @param max Maximum number of concurrent connections
+     */
+	public static void setMaxConnectionsPerHost(HttpHost host, int max) {
+		boolean secure = "https".equalsIgnoreCase(host.getSchemeName());
+		sConnPerRoute.setMaxForRoute(new HttpRoute(host, null, secure), max);
+	}
+
+	/** Returns number of requests executed through the shared client */
+	public static long getRequestCount() { return sRequests.get(); }
+
+	/** Returns number of requests that were sent over a pooled (reused) connection */
+	public static long getReusedConnectionCount() { return sReusedConnections.get(); }
+
+	/** Returns number of response body bytes received over the wire */
+	public static long getWireBytes() { return sWireBytes.get(); }
+
+	/** Returns number of response body bytes after decompression */
+	public static long getDecodedBytes() { return sDecodedBytes.get(); }
+
+	/** Returns time (in ms) spent decompressing response bodies */
+	public static long getDecodeTime() { return sDecodeTime.get(); }
+
+	/**
+     * Helper method: Starts a daemon thread that periodically closes expired and idle connections
+     *
+     * @param manager Connection manager to watch
+     */
+	private static void startReaper(final ClientConnectionManager manager) {
+		Thread reaper = new Thread("SharedHttpClient-reaper") {
+			@Override
+			public void run() {
+				while (true) {
+					try {
+						Thread.sleep(IDLE_TIMEOUT / 2);
+					}
+					catch (InterruptedException e) { return; }
+					manager.closeExpiredConnections();
+					manager.closeIdleConnections(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+				}
+			}
+		};
+		reaper.setDaemon(true);
+		reaper.start();
+	}
+
+	/**
+	 * Request interceptor counting requests and connection reuse. A connection that has already carried a
+	 * request is a pooled one.
+	 */
+	static class ReuseCounter implements HttpRequestInterceptor {
+		public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+			sRequests.incrementAndGet();
+			HttpConnection connection = (HttpConnection) context.getAttribute(ExecutionContext.HTTP_CONNECTION);
+			if (connection != null && connection.getMetrics().getRequestCount() > 0) {
+				sReusedConnections.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Request interceptor asking for compressed responses
+	 */
+	static class AcceptEncoding implements HttpRequestInterceptor {
+		public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+			if (!request.containsHeader("Accept-Encoding")) {
+				request.addHeader("Accept-Encoding", "gzip, deflate");
+			}
+		}
+	}
+
+	/**
+	 * Response interceptor wrapping every entity in a {@link DecodingEntity DecodingEntity}
+	 */
+	static class ContentDecoder implements HttpResponseInterceptor {
+		public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+			HttpEntity entity = response.getEntity();
+			if (entity == null) { return; }
+			Header encoding = entity.getContentEncoding();
+			Boolean gzip = null;
+			if (encoding != null && encoding.getValue().equalsIgnoreCase("gzip")) { gzip = true; }
+			if (encoding != null && encoding.getValue().equalsIgnoreCase("deflate")) { gzip = false; }
+			String uri = ((HttpRequest) context.getAttribute(ExecutionContext.HTTP_REQUEST)).getRequestLine().getUri();
+			response.setEntity(new DecodingEntity(entity, gzip, uri));
+		}
+	}
+
+	/**
+	 * Entity wrapper decompressing (gzip or deflate) content while it is read, and recording bytes on the wire
+	 * and decode time once the content stream is closed
+	 */
+	static class DecodingEntity extends HttpEntityWrapper {
+
+		/** True for gzip, false for deflate, null for uncompressed content */
+		private final Boolean gzip;
+		/** Request URI (for metrics) */
+		private final String uri;
+
+		/**
+	     * Initializes wrapper
+	     *
+	     * @param entity Entity as received
+	     * @param gzip True for gzip, false for deflate, null for uncompressed content
+	     * @param uri Request URI
+	     */
+		DecodingEntity(HttpEntity entity, Boolean gzip, String uri) {
+			super(entity);
+			this.gzip = gzip;
+			this.uri = uri;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			CountingInputStream wire = new CountingInputStream(wrappedEntity.getContent(), null, uri);
+			if (gzip == null) { return wire; }
+			wire.compressed = true;
+			InputStream decoded = gzip ? new GZIPInputStream(wire) : new InflaterInputStream(wire);
+			return new CountingInputStream(decoded, wire, uri);
+		}
+
+		@Override
+		public Header getContentEncoding() { return gzip == null ? super.getContentEncoding() : null; }
+
+		@Override
+		public long getContentLength() { return gzip == null ? super.getContentLength() : -1; }
+
+		@Override
+		public boolean isStreaming() { return true; }
+	}
+
+	/**
+	 * Input stream counting bytes and time spent reading. Used twice for compressed responses: once on the raw
+	 * (wire) stream and once on the decompressed stream, the difference in time being the decode time.
+	 */
+	static class CountingInputStream extends FilterInputStream {
+
+		/** Wire stream below this (decompressed) stream, or null if this is the wire stream */
+		private final CountingInputStream wire;
+		/** Request URI (for metrics) */
+		private final String uri;
+		/** Set on wire streams below a decompressing stream, which records statistics for both */
+		private boolean compressed;
+		/** Bytes read */
+		private long bytes;
+		/** Time (in ns) spent in read calls */
+		private long time;
+		/** Whether statistics have been recorded */
+		private boolean closed;
+
+		/**
+	     * Initializes stream
+	     *
+	     * @param in Stream to count
+	     * @param wire Wire stream below in (or null)
+	     * @param uri Request URI
+	     */
+		CountingInputStream(InputStream in, CountingInputStream wire, String uri) {
+			super(in);
+			this.wire = wire;
+			this.uri = uri;
+		}
+
+		@Override
+		public int read() throws IOException {
+			long start = System.nanoTime();
+			int c = super.read();
+			time += System.nanoTime() - start;
+			if (c >= 0) { bytes++; }
+			return c;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long start = System.nanoTime();
+			int n = super.read(b, off, len);
+			time += System.nanoTime() - start;
+			if (n > 0) { bytes += n; }
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			super.close();
+			if (closed) { return; }
+			closed = true;
+			if (compressed) { return; }
+			if (wire == null) {
+				sWireBytes.addAndGet(bytes);
+				sDecodedBytes.addAndGet(bytes);
+				Metrics.record("bytes " + Metrics.endpoint(uri), bytes);
+				return;
+			}
+			long decodeTime = (time - wire.time) / 1000000;
+			sWireBytes.addAndGet(wire.bytes);
+			sDecodedBytes.addAndGet(bytes);
+			sDecodeTime.addAndGet(decodeTime);
+			String endpoint = Metrics.endpoint(uri);
+			Metrics.record("bytes " + endpoint, wire.bytes);
+			Metrics.record("decoded " + endpoint, bytes);
+			Metrics.record("decode " + endpoint, decodeTime);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package me.vocabulario.vocabuloid;
+
+import java.util.Hashtable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import android.content.Context;
+
+/**
+ * Process-wide catalogue of the tenses supported per language (vocabulario.me /tenses.json). Verb lists sharing
+ * a language share one catalogue entry. Entries are loaded on first use, persisted in {@link DeckStore DeckStore}
+ * and refreshed from the server once they are older than {@link #TTL TTL}.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class TenseCatalogue extends RestClient {
+
+	/** Time (in ms) after which stored tenses are refreshed from the server */
+	public static final long TTL = 7 * 24 * 60 * 60 * 1000L;
+	/** Shared instance (created on first use) */
+	private static TenseCatalogue sInstance;
+	/** Loaded tenses by language id */
+	private final Hashtable<Integer,Entry> mEntries = new Hashtable<Integer,Entry>();
+
+	/**
+     * Returns the shared catalogue
+     *
+     * @param ctx Context needed for assessing shared resources
+     */
+	public static synchronized TenseCatalogue getInstance(Context ctx) {
+		if (sInstance == null) {
+			sInstance = new TenseCatalogue(ctx.getApplicationContext());
+		}
+		return sInstance;
+	}
+
+	/**
+     * Drops the shared catalogue along with the tenses cached for the previous user (called on sign out), so the next
+     * user's tenses are loaded afresh
+     */
+	public static synchronized void reset() {
+		sInstance = null;
+	}
+
+	/**
+     * Initializes RESTful connection
+     *
+     * @param ctx Context needed for assessing shared resources
+     */
+	private TenseCatalogue(Context ctx) {
+		super(ctx);
+	}
+
+	/**
+     * Returns the tenses of a language, loading them from {@link DeckStore DeckStore} or the server if necessary.
+     * Concurrent callers asking for the same language wait for a single load.
+     *
+     * @param languageId Id of language
+     * @return Tense names by id (empty if they couldn't be loaded)
+     */
+	public Hashtable<Integer,String> getTenses(int languageId) {
+		Entry entry;
+		synchronized (mEntries) {
+			entry = mEntries.get(languageId);
+			if (entry == null) {
+				entry = new Entry();
+				mEntries.put(languageId, entry);
+			}
+		}
+		synchronized (entry) {
+			if (entry.tenses == null || System.currentTimeMillis() - entry.fetchedAt > TTL) {
+				load(languageId, entry);
+			}
+			return entry.tenses;
+		}
+	}
+
+	/**
+     * Helper method: Fills an entry from {@link DeckStore DeckStore}, refreshing it from the server if it is
+     * missing or expired. Expired data is kept if the server can't be reached.
+     *
+     * @param languageId Id of language
+     * @param entry Entry to fill
+     */
+	private void load(int languageId, Entry entry) {
+		DeckStore store = DeckStore.getInstance(mContext);
+		if (entry.tenses == null) {
+			entry.tenses = store.getTenses(languageId);
+			entry.fetchedAt = store.getTensesFetchedAt(languageId);
+			if (entry.tenses != null && System.currentTimeMillis() - entry.fetchedAt <= TTL) { return; }
+		}
+		JSONArray result = getCollection("/tenses.json?language_id=" + languageId);
+		try {
+			Hashtable<Integer,String> tenses = new Hashtable<Integer,String>();
+			for (int i=0;i<result.length();i++) {
+				JSONObject remotetense = result.getJSONObject(i).getJSONObject("conjugation_time");
+				tenses.put(remotetense.getInt("id"), remotetense.getString("name"));
+	        }
+			entry.tenses = tenses;
+			entry.fetchedAt = System.currentTimeMillis();
+			store.putTenses(languageId, tenses, entry.fetchedAt);
+		}
+		catch (Exception e) { e.printStackTrace(); }
+		if (entry.tenses == null) { entry.tenses = new Hashtable<Integer,String>(); }
+	}
+
+	/**
+	 * Catalogue entry for one language (guarded by its own monitor)
+	 */
+	private static class Entry {
+		/** Tense names by id */
+		Hashtable<Integer,String> tenses;
+		/** Time the tenses were fetched from the server */
+		long fetchedAt;
+	}
+}
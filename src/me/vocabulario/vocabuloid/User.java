@@ -1,5 +1,8 @@
 package me.vocabulario.vocabuloid;
 
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
 import android.content.Context;
@@ -19,7 +22,9 @@ public class User extends RestClient {
 	/** Maps to admin (is user admin or no) */
 	private Boolean admin;
 	/** Collection of contained vocabularies */
-	private VocabularyList[] lists;
+	private volatile VocabularyList[] lists;
+	/** Lock serializing loads of lists, so concurrent callers share one fetch */
+	private final Object loadLock = new Object();
 	
 	/** 
      * Initializes RESTful connection
@@ -31,7 +36,7 @@ public class User extends RestClient {
 	}
 	
 	/** 
-     * Fetches user data from server
+     * Fetches user data from server (and refreshes {@link DeckStore DeckStore})
      */
 	protected void getRemoteData() {
 		try {
@@ -40,17 +45,40 @@ public class User extends RestClient {
 			id = root.getInt("id");
 			name = root.getString("name");
 			admin = root.getBoolean("admin");
+			DeckStore.getInstance(mContext).putUser(this);
 		}
 		catch (Exception e) { e.printStackTrace(); }
 	}
 	
+	/** 
+     * Loads user data from {@link DeckStore DeckStore}
+     *
+     * @return false if no user is stored
+     */
+	public boolean getLocalData() {
+		return DeckStore.getInstance(mContext).getUser(this);
+	}
+	
+	/** 
+     *  Initializes user based on stored data
+     *
+     * @param id id Field
+     * @param name name Field
+     * @param admin admin Field
+     */
+	public void initialize(int id, String name, Boolean admin) {
+		this.id = id;
+		this.name = name;
+		this.admin = admin;
+	}
+	
 	/** 
      * Returns a specific list from {@link VocabularyList VocabularyList} Array
      *
      * @param position Position of VocabularyList in Array
      */
 	public VocabularyList getList(int position) {
-		if (lists == null) { getRemoteLists(); }
+		if (lists == null) { load(); }
 		return lists[position];
 	}
 	
@@ -58,15 +86,22 @@ public class User extends RestClient {
      * Returns lists as VocabularyList Array
      */
 	public VocabularyList[] getLists() {
-		if (lists == null) { getRemoteLists(); }
+		if (lists == null) { load(); }
 		return lists;
 	}
 	
+	/** 
+     * Determines whether lists have been loaded (so they can be accessed without blocking)
+     */
+	public boolean isLoaded() {
+		return lists != null;
+	}
+	
 	/** 
      * Returns a String Array with the name of all lists
      */
 	public String[] getListsAsStrings() {
-		if (lists == null) { getRemoteLists(); }
+		if (lists == null) { load(); }
 		String[] values = new String[lists.length];
 		for (int i=0; i<lists.length; i++) {
 			values[i] = lists[i].getName();
@@ -75,26 +110,93 @@ public class User extends RestClient {
 	}
 	
 	/** 
-     * Fetches new Lists from server
+     * Loads lists from {@link DeckStore DeckStore} only (the snapshot shown before refreshing)
+     *
+     * @return false if no lists are stored
      */
-	protected void getRemoteLists() {
-		JSONArray result = getCollection("/users/" + id + "/lists.json");
-		lists = new VocabularyList[result.length()];
-		try {
-			for (int i=0;i<result.length();i++) {
-				JSONObject list = result.getJSONObject(i);
-				VocabularyList vocabularylist = new VocabularyList(mContext);
-				String root = list.names().getString(0);
-				vocabularylist.setId(list.getJSONObject(root).getInt("id"));
-				vocabularylist.setName(list.getJSONObject(root).getString("name"));
-				vocabularylist.setSize(list.getJSONObject(root).getInt("size"));
-				vocabularylist.setLanguageFromId(list.getJSONObject(root).getJSONObject("language_from").getInt("id"));
-				vocabularylist.setLanguageFromName(list.getJSONObject(root).getJSONObject("language_from").getString("word"));
-				vocabularylist.setType(root);
-				lists[i] = vocabularylist;
-            }
+	public boolean getLocalLists() {
+		synchronized (loadLock) {
+			if (lists != null) { return true; }
+			lists = DeckStore.getInstance(mContext).getLists(mContext, id);
+			return lists != null;
 		}
-		catch (Exception e) { e.printStackTrace(); }
+	}
+	
+	/** 
+     * Loads lists from {@link DeckStore DeckStore}, falling back to the server if none are stored. Concurrent
+     * callers wait for (and share) a single load.
+     *
+     * @throws IllegalStateException if lists could neither be read from the store nor fetched
+     */
+	private void load() {
+		synchronized (loadLock) {
+			if (lists != null) { return; }
+			VocabularyList[] stored = DeckStore.getInstance(mContext).getLists(mContext, id);
+			if (stored != null) {
+				lists = stored;
+				return;
+			}
+			try {
+				fetchLists();
+			}
+			catch (Exception e) { throw new IllegalStateException("Couldn't load lists of user " + id, e); }
+		}
+	}
+	
+	/** 
+     * Fetches new Lists from server (and refreshes {@link DeckStore DeckStore}). Falls back to an empty Array
+     * if nothing has been loaded yet and the server can't be reached.
+     *
+     * @return false if lists couldn't be fetched (lists loaded before are kept)
+     */
+	protected boolean getRemoteLists() {
+		synchronized (loadLock) {
+			boolean fetched = false;
+			try {
+				fetchLists();
+				fetched = true;
+			}
+			catch (Exception e) { e.printStackTrace(); }
+			if (lists == null) { lists = new VocabularyList[0]; }
+			return fetched;
+		}
+	}
+	
+	/** 
+     * Helper method: Fetches lists from server and stores them (caller holds loadLock). Once lists have been stored
+     * with a change cursor, only the changes since are requested ("/users/:id/lists.json?since=cursor"): lists added
+     * or changed in the usual format, lists deleted as {"deleted": {"id": ...}}. Changed lists keep their position,
+     * new ones are appended.
+     */
+	private void fetchLists() throws Exception {
+		DeckStore store = DeckStore.getInstance(mContext);
+		String path = "/users/" + id + "/lists.json";
+		String cursor = store.getListsCursor(id);
+		VocabularyList[] base = cursor == null ? null : lists != null ? lists : store.getLists(mContext, id);
+		JSONArray result = getCollection(base == null ? path : path + "?since=" + URLEncoder.encode(cursor, "UTF-8"));
+		if (result == null) { throw new IllegalStateException("No response for lists of user " + id); }
+		LinkedHashMap<Integer,VocabularyList> lists = new LinkedHashMap<Integer,VocabularyList>();
+		if (base != null && isDelta()) {
+			for (VocabularyList list : base) { lists.put(list.getId(), list); }
+		}
+		for (int i=0;i<result.length();i++) {
+			JSONObject list = result.getJSONObject(i);
+			String root = list.names().getString(0);
+			if (root.equals("deleted")) {
+				lists.remove(list.getJSONObject(root).getInt("id"));
+				continue;
+			}
+			VocabularyList vocabularylist = new VocabularyList(mContext);
+			vocabularylist.setId(list.getJSONObject(root).getInt("id"));
+			vocabularylist.setName(list.getJSONObject(root).getString("name"));
+			vocabularylist.setSize(list.getJSONObject(root).getInt("size"));
+			vocabularylist.setLanguageFromId(list.getJSONObject(root).getJSONObject("language_from").getInt("id"));
+			vocabularylist.setLanguageFromName(list.getJSONObject(root).getJSONObject("language_from").getString("word"));
+			vocabularylist.setType(root);
+			lists.put(vocabularylist.getId(), vocabularylist);
+		}
+		this.lists = lists.values().toArray(new VocabularyList[lists.size()]);
+		store.putLists(id, this.lists, getChangeCursor());
 	}
 
 	public int getId() { return id; }
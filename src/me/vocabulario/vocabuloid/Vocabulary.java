@@ -1,43 +1,44 @@
 package me.vocabulario.vocabuloid;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
 import me.vocabulario.vocabuloid.R;
-import android.content.Context;
 
 /**
- * Provides access to vocabulario.me Vocabulary model. 
+ * Provides access to vocabulario.me Vocabulary model. Instances are lightweight views on a row of a
+ * {@link VocabularyTable VocabularyTable}, which holds the actual data.
  *
  * @author Ulf Moehring
  * @version 0.3
  */
 public class Vocabulary {
 	
-	/** Context shared across application */
-	protected Context mContext;
-	/** Maps to id */
-	private int id;
-	/** Maps to word */
-	private String word;
-	/** Maps to type */
-	private String type;
-	/** Maps to language (field id) */
-	private int languageId;
-	/** Maps to language (field word) */
-	private String languageName;
-	/** Collection of contained vocabularies */
-	private Vocabulary[] translations;
-	/** Collection of conjugations */
-	private String[] conjugation;
+	/** Table holding the data */
+	private final VocabularyTable table;
+	/** Row of vocabulary (or translation) in table */
+	private final int row;
+	/** Whether row refers to the translation columns */
+	private final boolean isTranslation;
 	
 	/** 
-     * Initializes RESTful connection
+     * Initializes view on a vocabulary
      *
-     * @param ctx Context needed for assessing shared resources
+     * @param table Table holding the data
+     * @param row Row of vocabulary
      */
-	public Vocabulary(Context context) {
-		mContext = context;
+	public Vocabulary(VocabularyTable table, int row) {
+		this(table, row, false);
+	}
+	
+	/** 
+     * Initializes view on a vocabulary or translation
+     *
+     * @param table Table holding the data
+     * @param row Row of vocabulary or translation
+     * @param isTranslation Whether row refers to a translation
+     */
+	private Vocabulary(VocabularyTable table, int row, boolean isTranslation) {
+		this.table = table;
+		this.row = row;
+		this.isTranslation = isTranslation;
 	}
 	
 	/** 
@@ -59,94 +60,59 @@ public class Vocabulary {
      * @param languageId ID of language the translations should be in
      */
 	public String getConjugationsAsFormattedString(int tenseId) {
-		if (conjugation != null && conjugation.length > 0) {
-			String result = "";
-			for (String word : conjugation) {
-				result += word + "\n";
-			}
-			return result.substring(0,result.length()-1);
+		String result = isTranslation ? null : table.formatConjugations(row);
+		if (result != null) {
+			return result;
 		}
 		else {
-			return mContext.getString(R.string.message_no_conjugations);
+			return table.getContext().getString(R.string.message_no_conjugations);
 		}		
 	}
 	
-	/** 
-     *  Load translations for self from passed JSONArray
-     *
-     * @param result JSONArray with translation data
-     */
-	public void setConjugations(JSONArray result) {
-		try {
-			conjugation = new String[result.length()];
-			for (int i=0;i<result.length();i++) {
-				JSONObject remote_conjugation = result.getJSONObject(i);
-				conjugation[i] = remote_conjugation.getString("person").split("/")[0] + " - " + remote_conjugation.getString("verb");
-			}
-		}
-		catch (Exception e) { e.printStackTrace(); }
-	}
-	
 	/** 
      *  Returns a formatted String with all translations (as words)
      *
      * @param languageId ID of language the translations should be in
      */
 	public String getTranslationsAsFormattedString(int languageId) {
-		if (translations != null && translations.length > 0) {
-			String result = "";
-			for (Vocabulary vocabulary : translations) {
-				result += vocabulary.getWord() + "\n";
-			}
-			return result.substring(0,result.length()-1);
+		String result = isTranslation ? null : table.formatTranslations(row);
+		if (result != null) {
+			return result;
 		}
 		else {
-			return mContext.getString(R.string.message_no_translations);
+			return table.getContext().getString(R.string.message_no_translations);
 		}		
 	}
+
+	public int getId() { return isTranslation ? table.getTranslationId(row) : table.getId(row); }
 	
-	/** 
-     *  Load translations for self from passed JSONArray
-     *
-     * @param result JSONArray with translation data
-     */
-	public void setTranslations(JSONArray result) {
-		try {
-			translations = new Vocabulary[result.length()];
-			for (int i=0;i<result.length();i++) {
-				JSONObject remote_vocabulary = result.getJSONObject(i);
-				Vocabulary vocabulary = new Vocabulary(mContext);
-				vocabulary.initialize(remote_vocabulary.getInt("id"), type, remote_vocabulary.getString("word"), remote_vocabulary.getJSONObject("language").getInt("id"), remote_vocabulary.getJSONObject("language").getString("word"));
-				translations[i] = vocabulary;
-			}
-		}
-		catch (Exception e) { e.printStackTrace(); }
-	}
+	public String getWord() { return isTranslation ? table.getTranslationWord(row) : table.getWord(row); }
 	
-	/** 
-     *  Initializes a new vocabulary based on remote data
-     *
-     * @param id id Field
-     * @param type type Field
-     * @param word word Field
-     * @param languageId language_id Field
-     * @param languageName language_name Field
-     */
-	public void initialize(int id, String type, String word, int languageId, String languageName) {
-		this.id = id;
-		this.type = type;
-		this.word = word;
-		this.languageName = languageName;
-		this.languageId = languageId;
-	}
-
-	public int getId() { return id; }
+	public String getType() { return "Vocabulary"; }
 	
-	public String getWord() { return word; }
+	public int getLanguageId() { return isTranslation ? table.getTranslationLanguageId(row) : table.getLanguageId(row); }
 	
-	public String getType() { return type; }
+	public String getLanguageName() { return isTranslation ? table.getTranslationLanguageName(row) : table.getLanguageName(row); }
 	
-	public int getLanguageId() { return languageId; }
+	/** Returns translations (empty for verbs) */
+	public Vocabulary[] getTranslations() {
+		if (isTranslation) { return new Vocabulary[0]; }
+		int start = table.getTranslationStart(row);
+		Vocabulary[] translations = new Vocabulary[table.getTranslationEnd(row) - start];
+		for (int i=0; i<translations.length; i++) {
+			translations[i] = new Vocabulary(table, start + i, true);
+		}
+		return translations;
+	}
 	
-	public String getLanguageName() { return languageName; }
+	/** Returns formatted conjugations (empty for vocabularies) */
+	public String[] getConjugations() {
+		if (isTranslation) { return new String[0]; }
+		int start = table.getConjugationStart(row);
+		String[] conjugations = new String[table.getConjugationEnd(row) - start];
+		for (int i=0; i<conjugations.length; i++) {
+			conjugations[i] = table.getConjugation(start + i);
+		}
+		return conjugations;
+	}
 }
@@ -1,8 +1,11 @@
 package me.vocabulario.vocabuloid;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Hashtable;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import me.vocabulario.vocabuloid.R;
 
@@ -32,12 +35,20 @@ public class VocabularyList extends RestClient {
 	private String languageToName;
 	/** Number of vocabularies contained in list */
 	private int size;
-	/** Collection of contained vocabularies */	
-	private Vocabulary[] vocabularies;
+	/** Change cursor of the stored vocabularies (for delta sync) */
+	private String cursor;
+	/** Contained vocabularies (column-oriented) */	
+	private volatile VocabularyTable table;
+	/** Lock serializing loads of vocabularies, so concurrent callers share one fetch */
+	private final Object loadLock = new Object();
 	/** Collection of supported tenses */	
 	private Hashtable<Integer,String> tenses;
 	/** Currently selected tense */	
 	private int selectedTense;
+	/** Number of vocabularies parsed before {@link OnBatchLoadedListener OnBatchLoadedListener} is notified */
+	public static final int BATCH_SIZE = 50;
+	/** Listener notified while vocabularies are streamed in */
+	private OnBatchLoadedListener batchListener;
 	
 	/** 
      * Initializes RESTful connection
@@ -54,66 +65,241 @@ public class VocabularyList extends RestClient {
      * @param position Position of VocabularyList in Array
      */
 	public Vocabulary getVocabulary(int position) {
-		if (vocabularies == null) { getRemoteData(); }
-		return vocabularies[position];
+		if (table == null) { load(); }
+		return new Vocabulary(table, position);
 	}
 	
 	/** 
      * Returns contained vocabularies as {@link Vocabulary Vocabulary} Array
      */
 	public Vocabulary[] getVocabularies() {
-		if (vocabularies == null) { getRemoteData(); }
+		if (table == null) { load(); }
+		Vocabulary[] vocabularies = new Vocabulary[table.size()];
+		for (int i=0; i<vocabularies.length; i++) {
+			vocabularies[i] = new Vocabulary(table, i);
+		}
 		return vocabularies;
 	}
 	
+	/** 
+     * Returns number of contained vocabularies
+     */
+	public int getVocabularyCount() {
+		if (table == null) { load(); }
+		return table.size();
+	}
+	
+	/** 
+     * Returns the {@link VocabularyTable VocabularyTable} holding the contained vocabularies
+     */
+	public VocabularyTable getTable() {
+		if (table == null) { load(); }
+		return table;
+	}
+	
 	/** 
      * Returns a String Array with the words of all contained vocabularies
      */
 	public String[] getVocabulariesAsStrings() {
-		if (vocabularies == null) { getRemoteData(); }
-		String[] values = new String[vocabularies.length];
-		for (int i=0; i<vocabularies.length; i++) {
-			values[i] = vocabularies[i].getWord();
+		if (table == null) { load(); }
+		String[] values = new String[table.size()];
+		for (int i=0; i<values.length; i++) {
+			values[i] = table.getWord(i);
 		}
 		return values;
 	}
 	
 	/** 
-     * Fetches new vocabularies from server
+     * Sets contained vocabularies
+     *
+     * @param table Fully loaded VocabularyTable
+     */
+	public void setTable(VocabularyTable table) {
+		this.table = table;
+	}
+	
+	/** 
+     * Loads vocabularies from {@link DeckStore DeckStore}, falling back to the server if the list isn't
+     * available offline. Concurrent callers wait for (and share) a single load.
+     *
+     * @throws IllegalStateException if the list could neither be read from the store nor fetched
+     */
+	private void load() {
+		synchronized (loadLock) {
+			if (table != null || getLocalData()) { return; }
+			try {
+				fetch(true);
+			}
+			catch (Exception e) { throw new IllegalStateException("Couldn't load list " + id, e); }
+			if (table == null) { throw new IllegalStateException("Couldn't load list " + id); }
+		}
+	}
+	
+	/** 
+     * Loads vocabularies from {@link DeckStore DeckStore}
+     *
+     * @return false if list isn't available offline
+     */
+	public boolean getLocalData() {
+		return DeckStore.getInstance(mContext).getVocabularies(mContext, this);
+	}
+	
+	/** 
+     * Determines whether list can be opened without network connection
+     */
+	public boolean isAvailableOffline() {
+		return DeckStore.getInstance(mContext).hasVocabularies(id);
+	}
+	
+	/** 
+     * Fetches new vocabularies from server (and refreshes {@link DeckStore DeckStore}). The response is parsed
+     * while it is downloaded, appending vocabularies to a {@link VocabularyTable VocabularyTable} directly from the
+     * stream. If the list hasn't changed since it was stored, the stored version is used. Waits for a load
+     * already in progress.
+     *
+     * Once the list has been stored with a change cursor, only the changes since are requested
+     * ("/lists/:id.json?since=cursor"). A delta response has the same format as the full list, with "vocabularies"
+     * holding the vocabularies added or changed and "deleted" the ids of vocabularies deleted. Changes are merged
+     * into the stored version, rewriting only the changed rows unless vocabularies were deleted.
      */
 	protected void getRemoteData() {
+		synchronized (loadLock) {
+			try {
+				fetch(false);
+			}
+			catch (Exception e) { e.printStackTrace(); }
+		}
+	}
+	
+	/** 
+     * Helper method: Fetches vocabularies from server as described in {@link #getRemoteData() getRemoteData}
+     * (caller holds loadLock). Apart from the type and the tenses of verb lists (needed by batch listeners for the
+     * headings), fields are only replaced once the whole list has been read. Stops with an InterruptedIOException
+     * once the list is {@link #cancel() cancelled}.
+     *
+     * @param local Whether the stored version has already been read (into table, if there is one)
+     */
+	private void fetch(boolean local) throws IOException {
+		String path = "/lists/" + id + ".json";
+		if (table == null) { cursor = DeckStore.getInstance(mContext).getCursor(id); }
+		if (cursor != null && !local) {
+			getLocalData();
+			local = true;
+		}
+		String since = cursor != null && table != null ? cursor : null;
+		JsonPullReader reader = null;
 		try {
-			JSONObject response = getObject("/lists/" + id + ".json");
-			JSONObject root = response.getJSONObject(response.names().getString(0));
-			name = root.getString("name");
-			size = root.getInt("size");
-			languageFromId = root.getJSONObject("language_from").getInt("id");
-			languageFromName = root.getJSONObject("language_from").getString("word");
-			if (root.has("language_to")) { languageToId = root.getJSONObject("language_to").getInt("id"); languageToName = root.getJSONObject("language_to").getString("word"); };
-			setType(response.names().getString(0));
-			JSONArray result = root.getJSONArray("vocabularies");
-			vocabularies = new Vocabulary[result.length()];
-			for (int i=0;i<result.length();i++) {
-				JSONObject remote_vocabulary = result.getJSONObject(i);
-				Vocabulary vocabulary = new Vocabulary(mContext);
-				vocabulary.initialize(remote_vocabulary.getInt("id"), "Vocabulary", remote_vocabulary.getString("word"), root.getJSONObject("language_from").getInt("id"), root.getJSONObject("language_from").getString("word"));
-				if (isVerbList()) {
-					vocabulary.setConjugations(remote_vocabulary.getJSONArray("conjugations"));
+			reader = getStream(since == null ? path : path + "?since=" + URLEncoder.encode(since, "UTF-8"));
+			if (reader == null) {
+				if (table != null || (!local && getLocalData())) { return; }
+				removeValidator(path);
+				reader = getStream(path);
+			}
+			boolean delta = since != null && isDelta();
+			long start = System.nanoTime();
+			VocabularyTable result = new VocabularyTable(mContext, delta ? 0 : size);
+			HashSet<Integer> deleted = new HashSet<Integer>();
+			String name = this.name;
+			int size = this.size;
+			int languageFromId = this.languageFromId, languageToId = this.languageToId;
+			String languageFromName = this.languageFromName, languageToName = this.languageToName;
+			reader.beginObject();
+			String root = reader.nextName();
+			setType(root);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String field = reader.nextName();
+				if (reader.peek() == JsonPullReader.Token.NULL) { reader.skipValue(); }
+				else if (field.equals("name")) { name = reader.nextString(); }
+				else if (field.equals("size")) { size = reader.nextInt(); }
+				else if (field.equals("language_from")) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String key = reader.nextName();
+						if (key.equals("id")) { languageFromId = reader.nextInt(); }
+						else if (key.equals("word")) { languageFromName = reader.nextString(); }
+						else { reader.skipValue(); }
+					}
+					reader.endObject();
 				}
-				else {
-					vocabulary.setTranslations(remote_vocabulary.getJSONArray("translation"));
+				else if (field.equals("language_to")) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String key = reader.nextName();
+						if (key.equals("id")) { languageToId = reader.nextInt(); }
+						else if (key.equals("word")) { languageToName = reader.nextString(); }
+						else { reader.skipValue(); }
+					}
+					reader.endObject();
 				}
-				vocabularies[i] = vocabulary;
-            }
+				else if (field.equals("vocabularies")) {
+					if (batchListener != null && !delta && isVerbList() && tenses == null) {
+						setTenses(TenseCatalogue.getInstance(mContext).getTenses(languageFromId));
+					}
+					reader.beginArray();
+					while (reader.hasNext()) {
+						if (isCancelled()) { throw new InterruptedIOException("Loading list " + id + " cancelled"); }
+						result.read(reader);
+						if (batchListener != null && !delta && result.size() % BATCH_SIZE == 0) {
+							Vocabulary[] batch = new Vocabulary[BATCH_SIZE];
+							for (int i=0; i<BATCH_SIZE; i++) {
+								batch[i] = new Vocabulary(result, result.size() - BATCH_SIZE + i);
+							}
+							batchListener.onBatchLoaded(batch);
+						}
+					}
+					reader.endArray();
+				}
+				else if (field.equals("deleted")) {
+					reader.beginArray();
+					while (reader.hasNext()) { deleted.add(reader.nextInt()); }
+					reader.endArray();
+				}
+				else { reader.skipValue(); }
+			}
+			reader.endObject();
+			reader.endObject();
+			result.setLanguage(languageFromId, languageFromName);
+			result.trim();
+			int[] rows = new int[result.size()];
+			if (delta) { result = table.merge(result, deleted, rows); }
+			this.name = name;
+			this.size = size;
+			this.languageFromId = languageFromId;
+			this.languageFromName = languageFromName;
+			this.languageToId = languageToId;
+			this.languageToName = languageToName;
+			Metrics.time("parse " + Metrics.endpoint(path), start);
+			Metrics.record("objects " + Metrics.endpoint(path), rows.length);
+			table = result;
+			cursor = getChangeCursor();
+			if (delta && deleted.isEmpty()) { DeckStore.getInstance(mContext).putVocabularyChanges(this, rows); }
+			else { DeckStore.getInstance(mContext).putVocabularies(this); }
+			storeValidator();
 		}
-		catch (Exception e) { e.printStackTrace(); }
+		finally {
+			try {
+				if (reader != null) { reader.close(); }
+			}
+			catch (IOException e) { e.printStackTrace(); }
+		}
+	}
+	
+	/** 
+     * Sets listener notified with every {@link #BATCH_SIZE BATCH_SIZE} vocabularies parsed by
+     * {@link #getRemoteData() getRemoteData}. Vocabularies beyond the last full batch are not reported.
+     *
+     * @param listener Listener (or null)
+     */
+	public void setOnBatchLoadedListener(OnBatchLoadedListener listener) {
+		this.batchListener = listener;
 	}
 	
 	/** 
      * Determines whether list is empty
      */
 	public Boolean empty() {
-		return vocabularies == null || vocabularies.length == 0;
+		return table == null || table.size() == 0;
 	}
 	
 	/** 
@@ -129,11 +315,10 @@ public class VocabularyList extends RestClient {
 	/** Set new vocabulary list id */
 	public void setId(int id) { this.id = id; }
 	
-	/** Sets type of vocabulary list (verb or vocabulary list) */
+	/** Sets type of vocabulary list (verb or vocabulary list). Tenses of verb lists are loaded on first use. */
 	public void setType(String type) {
 		if (type.endsWith("_verb_list")) {
 			this.type = "VerbList";
-			if (tenses == null) { setTenses(); }
 		}
 		else {
 			this.type = "VocabularyList";
@@ -171,37 +356,76 @@ public class VocabularyList extends RestClient {
 	/** Sets new vocabulary list language (id) */
 	public void setLanguageFromId(int languageFromId) { this.languageFromId = languageFromId; }
 	
+	/** Returns vocabulary list language (name) */
+	public String getLanguageFromName() { return languageFromName; }
+	
 	/** Sets new vocabulary list language (name) -> only applies to vocabulary lists */
 	public void setLanguageFromName(String languageFromName) { this.languageFromName = languageFromName; }
 	
+	/** Returns target language (id) -> only applies to vocabulary lists */
+	public int getLanguageToId() { return languageToId; }
+	
+	/** Sets target language (id) -> only applies to vocabulary lists */
+	public void setLanguageToId(int languageToId) { this.languageToId = languageToId; }
+	
+	/** Returns target language (name) -> only applies to vocabulary lists */
+	public String getLanguageToName() { return languageToName; }
+	
+	/** Sets target language (name) -> only applies to vocabulary lists */
+	public void setLanguageToName(String languageToName) { this.languageToName = languageToName; }
+	
 	/** Returns size of vocabulary list */
 	public int getSize() { return size; }
 	
 	/** Sets size of vocabulary list */
 	public void setSize(int size) { this.size = size; }
 	
-	/** Returns tenses supported -> applies to verb lists only */
-	public Hashtable<Integer,String> getTenses() { return tenses; } 
+	/** Returns change cursor of the stored vocabularies (null if unknown) */
+	public String getCursor() { return cursor; }
 	
-	/** Sets supported tenses -> applies to verb lists only */
-	public void setTenses() {
-		JSONArray result = getCollection("/tenses.json?language_id=" + languageFromId);
-		tenses = new Hashtable<Integer,String>();
-		try {
-			for (int i=0;i<result.length();i++) {
-				JSONObject remotetense = result.getJSONObject(i).getJSONObject("conjugation_time");
-				tenses.put(remotetense.getInt("id"), remotetense.getString("name"));
-	        }
+	/** Sets change cursor of the stored vocabularies */
+	public void setCursor(String cursor) { this.cursor = cursor; }
+	
+	/**
+     * Returns tenses supported, loading them from {@link TenseCatalogue TenseCatalogue} if necessary -> applies to
+     * verb lists only. Selects the first tense (lowest id) if none of them is selected, e.g. for a list opened from
+     * {@link Search Search}.
+     */
+	public Hashtable<Integer,String> getTenses() {
+		if (tenses == null && isVerbList()) { setTenses(TenseCatalogue.getInstance(mContext).getTenses(languageFromId)); }
+		return tenses;
+	}
+	
+	/** 
+     * Helper method: Sets the tenses supported, selecting the first one if none of them is selected
+     *
+     * @param tenses Tense names by id
+     */
+	private void setTenses(Hashtable<Integer,String> tenses) {
+		this.tenses = tenses;
+		if (tenses != null && !tenses.isEmpty() && !tenses.containsKey(selectedTense)) {
+			selectedTense = Collections.min(tenses.keySet());
 		}
-		catch (Exception e) { e.printStackTrace(); }
 	}
 	
-	/** Returns selected tense name -> applies to verb lists only */
-	public String getSelectedTenseName() { return tenses.get(selectedTense); }
+	/** Returns selected tense name (null until tenses have been loaded via {@link #getTenses() getTenses}) -> applies to verb lists only */
+	public String getSelectedTenseName() { return tenses == null ? null : tenses.get(selectedTense); }
 	
 	/** Returns selected tense id -> applies to verb lists only */
 	public int getSelectedTenseId() { return selectedTense; }
 	
 	/** Sets selected tense -> applies to verb lists only */
 	public void setSelectedTense(int tenseId) { this.selectedTense = tenseId; }
-}
\ No newline at end of file
+	
+	/**
+	 * Listener for vocabularies arriving while a list is streamed from the server
+	 */
+	public interface OnBatchLoadedListener {
+		/** 
+	     * Called on the loading thread for every batch of parsed vocabularies
+	     *
+	     * @param batch Newly parsed vocabularies (their language is only set once the whole list has been read)
+	     */
+		void onBatchLoaded(Vocabulary[] batch);
+	}
+}
@@ -0,0 +1,550 @@
+package me.vocabulario.vocabuloid;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Set;
+
+import android.content.Context;
+
+/**
+ * Compact, column-oriented storage for the vocabularies of one {@link VocabularyList VocabularyList}. Ids and
+ * language references are kept in parallel int arrays, languages in a shared table and all words in a string
+ * dictionary (so repeated translations and conjugations are stored once). Translations and conjugations of a
+ * vocabulary are contiguous ranges addressed by offset arrays. {@link Vocabulary Vocabulary} objects are
+ * lightweight views on a row of this table.
+ *
+ * Rows are appended by a single loading thread; the table can be read while it grows (on the same thread).
+ * A complete table can be serialized as the payload of a {@link DeckPack DeckPack} and read back without
+ * parsing: the int arrays are copied in bulk and words are only decoded when first accessed.
+ *
+ * @author Ulf Moehring
+ * @version 0.3
+ */
+public class VocabularyTable {
+
+	/** Context shared across application (for messages) */
+	private final Context mContext;
+
+	/** Number of vocabularies */
+	private int count;
+	/** Vocabulary ids */
+	private int[] ids;
+	/** Vocabulary words (dictionary index) */
+	private int[] words;
+	/** Vocabulary languages (language table index) */
+	private int[] languages;
+	/** Index of first translation per vocabulary */
+	private int[] translationStart;
+	/** Index of first conjugation per vocabulary */
+	private int[] conjugationStart;
+
+	/** Number of translations */
+	private int translationCount;
+	/** Translation ids */
+	private int[] translationIds;
+	/** Translation words (dictionary index) */
+	private int[] translationWords;
+	/** Translation languages (language table index) */
+	private int[] translationLanguages;
+
+	/** Number of conjugations */
+	private int conjugationCount;
+	/** Formatted conjugations (dictionary index) */
+	private int[] conjugations;
+
+	/** Number of languages */
+	private int languageCount;
+	/** Language ids */
+	private int[] languageIds = new int[4];
+	/** Language names (dictionary index) */
+	private int[] languageNames = new int[4];
+
+	/** Number of dictionary entries */
+	private int stringCount;
+	/** String dictionary */
+	private String[] strings;
+	/** Reverse lookup for the dictionary (dropped once the table is complete) */
+	private HashMap<String,Integer> stringIndex = new HashMap<String,Integer>();
+	/** Encoded dictionary of a table read from a pack (words not decoded yet are null in strings), or null */
+	private ByteBuffer stringData;
+	/** Offsets of the dictionary entries in stringData (one more than entries) */
+	private int[] stringOffsets;
+	/** Encoding of dictionary entries in packs */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+     * Initializes an empty table
+     *
+     * @param ctx Context needed for messages
+     * @param capacity Expected number of vocabularies
+     */
+	public VocabularyTable(Context ctx, int capacity) {
+		mContext = ctx;
+		capacity = Math.max(capacity, 16);
+		ids = new int[capacity];
+		words = new int[capacity];
+		languages = new int[capacity];
+		translationStart = new int[capacity];
+		conjugationStart = new int[capacity];
+		translationIds = new int[capacity];
+		translationWords = new int[capacity];
+		translationLanguages = new int[capacity];
+		conjugations = new int[0];
+		strings = new String[capacity];
+	}
+
+	/** Returns context shared across application */
+	public Context getContext() { return mContext; }
+
+	/** Returns number of vocabularies */
+	public int size() { return count; }
+
+	/** Returns id of a vocabulary */
+	public int getId(int row) { return ids[row]; }
+
+	/** Returns word of a vocabulary */
+	public String getWord(int row) { return getString(words[row]); }
+
+	/** Returns language id of a vocabulary */
+	public int getLanguageId(int row) { return languageIds[languages[row]]; }
+
+	/** Returns language name of a vocabulary */
+	public String getLanguageName(int row) { return getString(languageNames[languages[row]]); }
+
+	/** Returns index of first translation of a vocabulary */
+	public int getTranslationStart(int row) { return translationStart[row]; }
+
+	/** Returns index after last translation of a vocabulary */
+	public int getTranslationEnd(int row) { return row + 1 < count ? translationStart[row + 1] : translationCount; }
+
+	/** Returns id of a translation */
+	public int getTranslationId(int translation) { return translationIds[translation]; }
+
+	/** Returns word of a translation */
+	public String getTranslationWord(int translation) { return getString(translationWords[translation]); }
+
+	/** Returns language id of a translation */
+	public int getTranslationLanguageId(int translation) { return languageIds[translationLanguages[translation]]; }
+
+	/** Returns language name of a translation */
+	public String getTranslationLanguageName(int translation) { return getString(languageNames[translationLanguages[translation]]); }
+
+	/** Returns index of first conjugation of a vocabulary */
+	public int getConjugationStart(int row) { return conjugationStart[row]; }
+
+	/** Returns index after last conjugation of a vocabulary */
+	public int getConjugationEnd(int row) { return row + 1 < count ? conjugationStart[row + 1] : conjugationCount; }
+
+	/** Returns a formatted conjugation */
+	public String getConjugation(int conjugation) { return getString(conjugations[conjugation]); }
+
+	/**
+     * Returns the translations of a vocabulary as one String (one word per line)
+     *
+     * @param row Row of vocabulary
+     * @return Formatted translations, or null if there are none
+     */
+	public String formatTranslations(int row) {
+		int start = getTranslationStart(row);
+		int end = getTranslationEnd(row);
+		if (end <= start) { return null; }
+		StringBuilder result = new StringBuilder(16 * (end - start));
+		for (int i=start; i<end; i++) {
+			if (i > start) { result.append('\n'); }
+			result.append(getTranslationWord(i));
+		}
+		return result.toString();
+	}
+
+	/**
+     * Returns the conjugations of a vocabulary as one String (one person per line)
+     *
+     * @param row Row of vocabulary
+     * @return Formatted conjugations, or null if there are none
+     */
+	public String formatConjugations(int row) {
+		int start = getConjugationStart(row);
+		int end = getConjugationEnd(row);
+		if (end <= start) { return null; }
+		StringBuilder result = new StringBuilder(24 * (end - start));
+		for (int i=start; i<end; i++) {
+			if (i > start) { result.append('\n'); }
+			result.append(getConjugation(i));
+		}
+		return result.toString();
+	}
+
+	/**
+     * Appends a vocabulary. Following calls to {@link #addTranslation addTranslation} and
+     * {@link #addConjugation addConjugation} belong to it.
+     *
+     * @param id id Field
+     * @param word word Field
+     * @param languageId language_id Field
+     * @param languageName language_name Field
+     * @return Row of new vocabulary
+     */
+	public int addVocabulary(int id, String word, int languageId, String languageName) {
+		if (count == ids.length) {
+			int capacity = count * 2;
+			ids = grow(ids, capacity);
+			words = grow(words, capacity);
+			languages = grow(languages, capacity);
+			translationStart = grow(translationStart, capacity);
+			conjugationStart = grow(conjugationStart, capacity);
+		}
+		ids[count] = id;
+		words[count] = intern(word);
+		languages[count] = language(languageId, languageName);
+		translationStart[count] = translationCount;
+		conjugationStart[count] = conjugationCount;
+		return count++;
+	}
+
+	/**
+     * Appends a translation to the last vocabulary
+     *
+     * @param id id Field
+     * @param word word Field
+     * @param languageId language_id Field
+     * @param languageName language_name Field
+     */
+	public void addTranslation(int id, String word, int languageId, String languageName) {
+		if (translationCount == translationIds.length) {
+			int capacity = translationCount * 2;
+			translationIds = grow(translationIds, capacity);
+			translationWords = grow(translationWords, capacity);
+			translationLanguages = grow(translationLanguages, capacity);
+		}
+		translationIds[translationCount] = id;
+		translationWords[translationCount] = intern(word);
+		translationLanguages[translationCount] = language(languageId, languageName);
+		translationCount++;
+	}
+
+	/**
+     * Appends a formatted conjugation to the last vocabulary
+     *
+     * @param text Formatted conjugation ("person - verb")
+     */
+	public void addConjugation(String text) {
+		if (conjugationCount == conjugations.length) {
+			conjugations = grow(conjugations, Math.max(conjugationCount * 2, 64));
+		}
+		conjugations[conjugationCount++] = intern(text);
+	}
+
+	/**
+     * Sets the language of all vocabularies (the list's source language, which may only be known once the
+     * whole list has been read)
+     *
+     * @param languageId language_id Field
+     * @param languageName language_name Field
+     */
+	public void setLanguage(int languageId, String languageName) {
+		int language = language(languageId, languageName);
+		for (int i=0; i<count; i++) { languages[i] = language; }
+	}
+
+	/**
+     * Reads a vocabulary object (including translations or conjugations) from a reader and appends it
+     *
+     * @param reader JsonPullReader positioned at a vocabulary object
+     * @return Row of new vocabulary
+     */
+	public int read(JsonPullReader reader) throws IOException {
+		int row = -1;
+		int id = 0;
+		String word = null;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			if (reader.peek() == JsonPullReader.Token.NULL) { reader.skipValue(); }
+			else if (name.equals("id")) { id = reader.nextInt(); }
+			else if (name.equals("word")) { word = reader.nextString(); }
+			else if (name.equals("translation") || name.equals("conjugations")) {
+				if (row < 0) { row = addVocabulary(id, word, 0, null); }
+				if (name.equals("translation")) { readTranslations(reader); }
+				else { readConjugations(reader); }
+			}
+			else { reader.skipValue(); }
+		}
+		reader.endObject();
+		if (row < 0) { row = addVocabulary(id, word, 0, null); }
+		else {
+			ids[row] = id;
+			words[row] = intern(word);
+		}
+		return row;
+	}
+
+	/**
+     * Appends a copy of a vocabulary of another table, including its translations and conjugations
+     *
+     * @param from Table to copy from
+     * @param row Row in from
+     * @return Row of new vocabulary
+     */
+	public int copy(VocabularyTable from, int row) {
+		int copy = addVocabulary(from.getId(row), from.getWord(row), from.getLanguageId(row), from.getLanguageName(row));
+		for (int j=from.getTranslationStart(row); j<from.getTranslationEnd(row); j++) {
+			addTranslation(from.getTranslationId(j), from.getTranslationWord(j), from.getTranslationLanguageId(j), from.getTranslationLanguageName(j));
+		}
+		for (int j=from.getConjugationStart(row); j<from.getConjugationEnd(row); j++) {
+			addConjugation(from.getConjugation(j));
+		}
+		return copy;
+	}
+
+	/**
+     * Returns a new (trimmed) table with changes applied: vocabularies deleted are dropped, vocabularies changed
+     * replace the old version in place, new vocabularies are appended in the order given
+     *
+     * @param changes Vocabularies added or changed
+     * @param deleted Ids of vocabularies deleted
+     * @param rows Filled with the row of every vocabulary of changes in the new table
+     */
+	public VocabularyTable merge(VocabularyTable changes, Set<Integer> deleted, int[] rows) {
+		HashMap<Integer,Integer> changed = new HashMap<Integer,Integer>();
+		for (int i=0; i<changes.size(); i++) { changed.put(changes.getId(i), i); }
+		VocabularyTable merged = new VocabularyTable(mContext, count + changes.size());
+		for (int i=0; i<count; i++) {
+			if (deleted.contains(ids[i])) { continue; }
+			Integer change = changed.remove(ids[i]);
+			if (change == null) { merged.copy(this, i); }
+			else { rows[change] = merged.copy(changes, change); }
+		}
+		for (int i=0; i<changes.size(); i++) {
+			if (changed.containsKey(changes.getId(i))) { rows[i] = merged.copy(changes, i); }
+		}
+		merged.trim();
+		return merged;
+	}
+
+	/**
+     * Releases spare capacity and the dictionary lookup once all rows have been added. No rows can be added
+     * afterwards.
+     */
+	public void trim() {
+		ids = grow(ids, count);
+		words = grow(words, count);
+		languages = grow(languages, count);
+		translationStart = grow(translationStart, count);
+		conjugationStart = grow(conjugationStart, count);
+		translationIds = grow(translationIds, translationCount);
+		translationWords = grow(translationWords, translationCount);
+		translationLanguages = grow(translationLanguages, translationCount);
+		conjugations = grow(conjugations, conjugationCount);
+		String[] trimmed = new String[stringCount];
+		System.arraycopy(strings, 0, trimmed, 0, stringCount);
+		strings = trimmed;
+		stringIndex = null;
+	}
+
+	/**
+     * Serializes the (trimmed) table: counts, int columns, dictionary offsets and UTF-8 encoded dictionary, all
+     * little-endian, ints first so they stay aligned
+     *
+     * @return Buffer holding the payload (position 0)
+     */
+	public ByteBuffer toPack() {
+		byte[][] encoded = new byte[stringCount][];
+		int stringBytes = 0;
+		for (int i=0; i<stringCount; i++) {
+			encoded[i] = getString(i).getBytes(UTF8);
+			stringBytes += encoded[i].length;
+		}
+		int ints = 5 + 5 * count + 3 * translationCount + conjugationCount + 2 * languageCount + stringCount + 1;
+		ByteBuffer buffer = ByteBuffer.allocate(ints * 4 + stringBytes).order(ByteOrder.LITTLE_ENDIAN);
+		IntBuffer columns = buffer.asIntBuffer();
+		columns.put(count).put(translationCount).put(conjugationCount).put(languageCount).put(stringCount);
+		columns.put(ids, 0, count).put(words, 0, count).put(languages, 0, count);
+		columns.put(translationStart, 0, count).put(conjugationStart, 0, count);
+		columns.put(translationIds, 0, translationCount).put(translationWords, 0, translationCount);
+		columns.put(translationLanguages, 0, translationCount).put(conjugations, 0, conjugationCount);
+		columns.put(languageIds, 0, languageCount).put(languageNames, 0, languageCount);
+		int offset = 0;
+		for (int i=0; i<stringCount; i++) {
+			columns.put(offset);
+			offset += encoded[i].length;
+		}
+		columns.put(offset);
+		buffer.position(ints * 4);
+		for (byte[] string : encoded) { buffer.put(string); }
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+     * Reads a table serialized by {@link #toPack() toPack}. The table keeps a reference to the buffer (which may be
+     * memory-mapped) for decoding words on first access.
+     *
+     * @param ctx Context needed for messages
+     * @param payload Little-endian buffer positioned at the payload
+     * @throws IOException if the payload is inconsistent
+     */
+	public static VocabularyTable fromPack(Context ctx, ByteBuffer payload) throws IOException {
+		IntBuffer columns = payload.order(ByteOrder.LITTLE_ENDIAN).slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+		VocabularyTable table = new VocabularyTable(ctx, 0);
+		try {
+			table.count = columns.get();
+			table.translationCount = columns.get();
+			table.conjugationCount = columns.get();
+			table.languageCount = columns.get();
+			table.stringCount = columns.get();
+			table.ids = read(columns, table.count);
+			table.words = read(columns, table.count);
+			table.languages = read(columns, table.count);
+			table.translationStart = read(columns, table.count);
+			table.conjugationStart = read(columns, table.count);
+			table.translationIds = read(columns, table.translationCount);
+			table.translationWords = read(columns, table.translationCount);
+			table.translationLanguages = read(columns, table.translationCount);
+			table.conjugations = read(columns, table.conjugationCount);
+			table.languageIds = read(columns, table.languageCount);
+			table.languageNames = read(columns, table.languageCount);
+			table.stringOffsets = read(columns, table.stringCount + 1);
+			ByteBuffer strings = payload.slice();
+			strings.position(columns.position() * 4);
+			table.stringData = strings.slice();
+		}
+		catch (RuntimeException e) { throw new IOException("Corrupt deck pack: " + e); }
+		if (table.stringOffsets[table.stringCount] > table.stringData.remaining()) { throw new IOException("Corrupt deck pack: dictionary truncated"); }
+		table.strings = new String[table.stringCount];
+		table.stringIndex = null;
+		return table;
+	}
+
+	/**
+     * Helper method: Reads an int column of a pack
+     */
+	private static int[] read(IntBuffer columns, int length) throws IOException {
+		if (length < 0 || length > columns.remaining()) { throw new IOException("Corrupt deck pack: bad length " + length); }
+		int[] column = new int[length];
+		columns.get(column);
+		return column;
+	}
+
+	/**
+     * Helper method: Reads a translation array, appending to the last vocabulary
+     */
+	private void readTranslations(JsonPullReader reader) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			int id = 0;
+			String word = null;
+			int languageId = 0;
+			String languageName = null;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (reader.peek() == JsonPullReader.Token.NULL) { reader.skipValue(); }
+				else if (name.equals("id")) { id = reader.nextInt(); }
+				else if (name.equals("word")) { word = reader.nextString(); }
+				else if (name.equals("language")) {
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String key = reader.nextName();
+						if (reader.peek() == JsonPullReader.Token.NULL) { reader.skipValue(); }
+						else if (key.equals("id")) { languageId = reader.nextInt(); }
+						else if (key.equals("word")) { languageName = reader.nextString(); }
+						else { reader.skipValue(); }
+					}
+					reader.endObject();
+				}
+				else { reader.skipValue(); }
+			}
+			reader.endObject();
+			addTranslation(id, word, languageId, languageName);
+		}
+		reader.endArray();
+	}
+
+	/**
+     * Helper method: Reads a conjugation array, appending to the last vocabulary
+     */
+	private void readConjugations(JsonPullReader reader) throws IOException {
+		reader.beginArray();
+		while (reader.hasNext()) {
+			String person = "";
+			String verb = "";
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (reader.peek() == JsonPullReader.Token.NULL) { reader.skipValue(); }
+				else if (name.equals("person")) { person = reader.nextString(); }
+				else if (name.equals("verb")) { verb = reader.nextString(); }
+				else { reader.skipValue(); }
+			}
+			reader.endObject();
+			int slash = person.indexOf('/');
+			addConjugation((slash < 0 ? person : person.substring(0, slash)) + " - " + verb);
+		}
+		reader.endArray();
+	}
+
+	/**
+     * Helper method: Returns the dictionary index of a string, adding it if necessary
+     */
+	private int intern(String value) {
+		if (value == null) { return -1; }
+		Integer index = stringIndex.get(value);
+		if (index != null) { return index; }
+		if (stringCount == strings.length) {
+			String[] grown = new String[stringCount * 2];
+			System.arraycopy(strings, 0, grown, 0, stringCount);
+			strings = grown;
+		}
+		strings[stringCount] = value;
+		stringIndex.put(value, stringCount);
+		return stringCount++;
+	}
+
+	/**
+     * Helper method: Returns a string from the dictionary (null for index -1)
+     */
+	private String getString(int index) {
+		if (index < 0) { return null; }
+		String value = strings[index];
+		if (value == null && stringData != null) {
+			ByteBuffer data = stringData.duplicate();
+			data.position(stringOffsets[index]);
+			byte[] bytes = new byte[stringOffsets[index + 1] - stringOffsets[index]];
+			data.get(bytes);
+			value = new String(bytes, UTF8);
+			strings[index] = value;
+		}
+		return value;
+	}
+
+	/**
+     * Helper method: Returns the language table index of a language, adding it if necessary
+     */
+	private int language(int languageId, String languageName) {
+		int name = intern(languageName);
+		for (int i=0; i<languageCount; i++) {
+			if (languageIds[i] == languageId && languageNames[i] == name) { return i; }
+		}
+		if (languageCount == languageIds.length) {
+			languageIds = grow(languageIds, languageCount * 2);
+			languageNames = grow(languageNames, languageCount * 2);
+		}
+		languageIds[languageCount] = languageId;
+		languageNames[languageCount] = name;
+		return languageCount++;
+	}
+
+	/**
+     * Helper method: Copies an int array into one of the given length
+     */
+	private static int[] grow(int[] array, int length) {
+		if (array.length == length) { return array; }
+		int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+}
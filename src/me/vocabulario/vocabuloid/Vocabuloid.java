@@ -1,5 +1,7 @@
 package me.vocabulario.vocabuloid;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 
@@ -11,10 +13,8 @@ import oauth.signpost.commonshttp.CommonsHttpOAuthProvider;
 import android.app.Dialog;
 import android.app.ListActivity;
 import android.app.ProgressDialog;
-import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.net.ConnectivityManager;
 import android.net.Uri;
 import android.os.AsyncTask;
 import android.os.Bundle;
@@ -44,6 +44,8 @@ public class Vocabuloid extends ListActivity {
 	public static final int DIALOG_LOADING_LISTS = 0;
 	/** Identifier for flash card sub-activity */
 	private static final int FLASHCARD = 0;
+	/** Time (in ms) refreshing user and lists may take overall, including retries */
+	private static final long LOAD_LISTS_DEADLINE = 30000;
 	/** Name of application-wide preference store (used mainly for OAuth data) */
 	private static final String PREFERENCES = "VOCABULOID_PREFERENCES";
 	/** Application-wide preference store object (used mainly for OAuth data) */
@@ -56,8 +58,14 @@ public class Vocabuloid extends ListActivity {
 	private User mUser;
 	/** Global selected vocabulary list */
 	VocabularyList mSelected;
+	/** Background prefetch of lists not yet available offline (or null) */
+	private Prefetcher mPrefetcher;
 	/** Global ArrayAdapter object for handling the list of vocabulary lists */
 	private ArrayAdapter<String> mAdapter;
+	/** Names shown (the adapter's backing list, edited in place) */
+	private final ArrayList<String> mNames = new ArrayList<String>();
+	/** Lists currently shown (positions match mAdapter) */
+	private VocabularyList[] mLists = new VocabularyList[0];
 	/** Progress dialog object */
 	ProgressDialog mProgressDialog;
 	String[] data;
@@ -69,7 +77,7 @@ public class Vocabuloid extends ListActivity {
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
-    	StrictMode.ThreadPolicy policy = new StrictMode.ThreadPolicy.Builder().permitAll().build();
+    	StrictMode.ThreadPolicy policy = new StrictMode.ThreadPolicy.Builder().detectNetwork().penaltyLog().penaltyDeath().build();
         StrictMode.setThreadPolicy(policy);
         super.onCreate(savedInstanceState);
         setContentView(R.layout.main);
@@ -82,33 +90,46 @@ public class Vocabuloid extends ListActivity {
     
     /** 
      * Called when the activity is resumed (primary use: save OAuth tokens when coming back in from initial authorization
-     * process.
+     * process. The access token is retrieved by {@link RetrieveAccessToken RetrieveAccessToken} in the background.
      */
     public void onResume() {
     	super.onResume();
     	if (this.getIntent().getScheme() != null && this.getIntent().getScheme().startsWith("vocabulario-android-app")) {
     		Uri uri = this.getIntent().getData();
         	if(uri != null) {
+        		getIntent().setData(null);
         		initializeHandlers();
         		mSettings = getSharedPreferences(PREFERENCES, MODE_PRIVATE);
         		mConsumer.setTokenWithSecret(mSettings.getString("requestToken",null), mSettings.getString("requestSecret",null));
         		mProvider.setOAuth10a(true);
-        		try {
-        			mProvider.retrieveAccessToken(mConsumer, uri.getQueryParameter("oauth_verifier"));
-        			SharedPreferences.Editor editor = mSettings.edit();
-        			editor.remove("requestToken");
-        			editor.remove("requestSecret");
-        			editor.putString("accessToken", mConsumer.getToken());
-        			editor.putString("accessSecret", mConsumer.getTokenSecret());
-        			editor.commit();
-        			initializeAdapter();
-        			toast(R.string.message_signed_in);
-        		}
-        		catch (Exception e) { e.printStackTrace(); }
+        		new RetrieveAccessToken().execute(uri.getQueryParameter("oauth_verifier"));
         	}
     	}
     }
     
+    /** 
+     * Called when the activity is destroyed. Dumps the {@link Metrics Metrics} collected so far to metrics.tsv
+     * in the application's files directory.
+     */
+    @Override
+    public void onDestroy() {
+    	super.onDestroy();
+    	stopPrefetching();
+    	try {
+    		Metrics.dump(new File(getFilesDir(), "metrics.tsv"));
+    	}
+    	catch (Exception e) { e.printStackTrace(); }
+    }
+    
+    /** 
+     * Called when the system runs low on memory. Stops prefetching lists.
+     */
+    @Override
+    public void onLowMemory() {
+    	super.onLowMemory();
+    	stopPrefetching();
+    }
+    
     /** 
      * Called by {@link LoadVocabularies LoadVocabularies} task when it starts loading vocabularies. Configures
      * and constructs a {@link Dialog ProgressDialog}.
@@ -143,12 +164,16 @@ public class Vocabuloid extends ListActivity {
     }
     
     /** 
-     * Called when user selects one menu item. Checks which one and launches appropriate action
+     * Called when user selects one menu item. Checks which one and launches appropriate action (searching
+     * works offline)
      *
      * @param MenuItem Selected menu item (inherited)
      */
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
+    	if (item.getItemId() == R.id.search) {
+    		return onSearchRequested();
+    	}
     	if (isOnline()) {
     		switch (item.getItemId()) {
         		case R.id.sign_in:
@@ -170,21 +195,29 @@ public class Vocabuloid extends ListActivity {
     	}
     }
     
+    /** 
+     * Called when user hits the search button or picks search from the menu. Opens {@link Search Search}.
+     */
+    @Override
+    public boolean onSearchRequested() {
+    	startActivity(new Intent(getBaseContext(), Search.class));
+    	return true;
+    }
+    
     /** 
      * Called when user selects a {@link VocabularyList VocabularyList} from {@link ListView ListView}. Kicks off
      * {@link Flashcard Flashcard}, provided that selected {@link VocabularyList VocabularyList} isn't empty.
      */
     private OnItemClickListener mListsListener = new OnItemClickListener() {
         public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-        	mSelected = mUser.getLists()[position];
-        	if (!isOnline() || mSelected.getSize() == 0) {
+        	if (position >= mLists.length) { return; }
+        	mSelected = mLists[position];
+        	if ((!isOnline() && !mSelected.isAvailableOffline()) || mSelected.getSize() == 0) {
         		toast(R.string.message_no_vocabularies);
         	}
         	else {
         		if (mSelected.isVerbList()) {
-        			ListView v = getListView();
-        			registerForContextMenu(v);
-                    v.showContextMenu();
+        			new LoadTenses().execute(mSelected);
         		}
         		else {
         			Intent i = new Intent(getBaseContext(), Flashcard.class);
@@ -228,22 +261,42 @@ public class Vocabuloid extends ListActivity {
      * {@link VocabularyList VocabularyLists}
      */
     private void initializeAdapter() {
-    	if (isOnline() && mSettings.contains("accessToken") && mSettings.contains("accessSecret")) {
+    	if (mSettings.contains("accessToken") && mSettings.contains("accessSecret")) {
         	mUser = new User(this);
         	new LoadLists().execute(mUser);
         }
     	else {
-    		mAdapter = new ArrayAdapter<String>(getBaseContext(), R.layout.row, new String[0]);
-	        setListAdapter(mAdapter);
-	        mAdapter.notifyDataSetChanged();
+    		showLists(new VocabularyList[0]);
+    	}
+    }
+    
+    /** 
+     * Helper method: Shows lists, updating the adapter in place (so scroll position is kept). Only the names
+     * between the unchanged head and tail are replaced, and nothing is redrawn if the names haven't changed.
+     *
+     * @param lists Lists to show
+     */
+    private void showLists(VocabularyList[] lists) {
+    	mLists = lists;
+    	if (mAdapter == null) {
+    		mAdapter = new ArrayAdapter<String>(getBaseContext(), R.layout.row, mNames);
+    		setListAdapter(mAdapter);
     	}
+    	int head = 0, tail = 0;
+    	while (head < lists.length && head < mNames.size() && mNames.get(head).equals(lists[head].getName())) { head++; }
+    	while (tail < lists.length - head && tail < mNames.size() - head
+    			&& mNames.get(mNames.size() - 1 - tail).equals(lists[lists.length - 1 - tail].getName())) { tail++; }
+    	if (head + tail == lists.length && head + tail == mNames.size()) { return; }
+    	mNames.subList(head, mNames.size() - tail).clear();
+    	for (int i=head; i<lists.length-tail; i++) { mNames.add(i, lists[i].getName()); }
+    	mAdapter.notifyDataSetChanged();
     }
     
     /** 
      * Helper method: Initializes the OAuth consumer and provider objects to talk with vocabulario.me web service
      */
     private void initializeHandlers() {
-    	String mBaseUrl = this.getString(R.string.base_url);
+    	String mBaseUrl = RestClient.getBaseUrl(this);
     	
 		mConsumer = new CommonsHttpOAuthConsumer(this.getString(R.string.consumer_key), this.getString(R.string.consumer_secret));
 		mProvider = new CommonsHttpOAuthProvider(mBaseUrl + this.getString(R.string.request_token), mBaseUrl + this.getString(R.string.access_token), mBaseUrl + this.getString(R.string.authorize));
@@ -251,21 +304,11 @@ public class Vocabuloid extends ListActivity {
     
     /** 
      * Helper method: Called by {@link onOptionsItemSelected(MenuItem item) onOptionsItemSelecte} when user clicks on sign in menu item.
+     * The request token is retrieved by {@link RetrieveRequestToken RetrieveRequestToken} in the background.
      */
     private void signIn() {
-    	String requestUrl = null;
         initializeHandlers();
-        try {
-        	requestUrl = mProvider.retrieveRequestToken(mConsumer, "vocabulario-android-app:///");
-        	SharedPreferences.Editor editor = mSettings.edit();
-            editor.putString("requestToken", mConsumer.getToken());
-            editor.putString("requestSecret", mConsumer.getTokenSecret());
-            editor.commit();
-        }
-        catch (Exception e) { e.printStackTrace(); }
-        Intent i = new Intent(Intent.ACTION_VIEW);
-        i.setData(Uri.parse(requestUrl));
-        startActivity(i);
+        new RetrieveRequestToken().execute();
     }
     
     /** 
@@ -275,10 +318,35 @@ public class Vocabuloid extends ListActivity {
     	SharedPreferences.Editor editor = mSettings.edit();
 		if (mSettings.contains("accessToken")) { editor.remove("accessToken"); editor.commit(); }
 		if (mSettings.contains("accessSecret")) { editor.remove("accessSecret"); editor.commit(); }
+		stopPrefetching();
+		DeckStore.getInstance(this).clear();
+		ReviewLog.getInstance(this).clear();
+		TenseCatalogue.reset();
 		initializeAdapter();
 		toast(R.string.message_signed_out);
     }
     
+    /** 
+     * Helper method: Starts fetching the lists of the current user that aren't available offline in the background,
+     * if the network is unmetered (see {@link Prefetcher Prefetcher})
+     */
+    private void startPrefetching() {
+    	stopPrefetching();
+    	if (mUser == null || !mUser.isLoaded() || !Prefetcher.isUnmetered(this)) { return; }
+    	mPrefetcher = new Prefetcher(this);
+    	mPrefetcher.start(mUser.getId(), mUser.getLists());
+    }
+    
+    /** 
+     * Helper method: Stops prefetching lists
+     */
+    private void stopPrefetching() {
+    	if (mPrefetcher != null) {
+    		mPrefetcher.stop();
+    		mPrefetcher = null;
+    	}
+    }
+    
     /** 
      * Helper method: Called whenever the user needs to be notified of whatever
      * 
@@ -293,54 +361,220 @@ public class Vocabuloid extends ListActivity {
      * Helper method: Checks if device is currently online (a requirement for using this app)
      */
     public boolean isOnline() {
-    	ConnectivityManager cm = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-    	return cm.getActiveNetworkInfo() != null && cm.getActiveNetworkInfo().isConnectedOrConnecting();
+    	return RestClient.isOnline(this);
     }
     
     /**
      * Asynchronous task used by {@link Vocabuloid Vocabuloid} to execute the lengthy task of loading lists
-     * from vocabulario.me
+     * from vocabulario.me. Lists stored in {@link DeckStore DeckStore} by the last run are shown right away; the
+     * refreshed lists replace them when (and if) they arrive. The progress dialog is only shown if nothing is stored.
      *
      * @author Ulf Moehring
-     * @version 0.1
+     * @version 0.3
      */
- 	class LoadLists extends AsyncTask<User, Void, String[]> {
+ 	class LoadLists extends AsyncTask<User, Boolean, VocabularyList[]> {
+ 		
+ 		/** Time loading started (System.nanoTime()) */
+ 		private long start;
+ 		/** User whose lists are loaded */
+ 		private User user;
+ 		/** Whether the progress dialog is shown */
+ 		private boolean showingDialog;
+ 		/** Whether lists couldn't be refreshed from the server */
+ 		private boolean refreshFailed;
 
- 		/** Set up {@link ProgressDialog ProgressDialog} before executing self  */
+ 		/** Remember start time before executing self  */
 		@Override
 		protected void onPreExecute() {
 			super.onPreExecute();
-			showDialog(DIALOG_LOADING_LISTS);
+			start = System.nanoTime();
+		}
+		
+		/** 
+	     * Main method: Load {@link VocabularyList VocabularyLists} of given {@link User User}. Publishes whether
+	     * stored lists have been found, then refreshes {@link DeckStore DeckStore} when online.
+	     *
+	     * @param user User to use (currently only one) 
+	     * @return Refreshed (or, when offline, stored) lists, null if there are none
+	     */
+		@Override
+		protected VocabularyList[] doInBackground(User... user) {
+			this.user = user[0];
+			try {
+				boolean stored = user[0].getLocalData() && user[0].getLocalLists();
+				publishProgress(stored);
+				if (!isOnline()) { return stored ? user[0].getLists() : null; }
+				RestClient.setDeadline(LOAD_LISTS_DEADLINE);
+				try {
+					user[0].getRemoteData();
+					refreshFailed = !user[0].getRemoteLists();
+					return user[0].getLists();
+				}
+				finally { RestClient.clearDeadline(); }
+			}
+			catch (Exception e) { e.printStackTrace(); refreshFailed = true; return null; }
 		}
 		
 		/** 
-	     * Main method: Load {@link VocabularyList VocabularyLists} from given {@link User User}
+	     * Shows stored lists in main thread, or the {@link ProgressDialog ProgressDialog} if there are none
+	     *
+	     * @param stored Whether stored lists have been loaded
+	     */
+		@Override
+		protected void onProgressUpdate(Boolean... stored) {
+			if (stored[0]) {
+				long render = System.nanoTime();
+				showLists(user.getLists());
+				Metrics.time("render Vocabuloid.stored", render);
+				Metrics.time("load Vocabuloid.stored", start);
+			}
+			else {
+				showingDialog = true;
+				showDialog(DIALOG_LOADING_LISTS);
+			}
+		}
+		
+		/** 
+	     * Takes end result from {@link doInBackground(User... user) doInBackground(...)} and updates
+	     * UI in main thread (lists shown already are kept if loading failed, and the user is told that refreshing
+	     * failed). Also dismisses {@link ProgressDialog ProgressDialog} when done.
+	     *
+	     * @param result Lists loaded by main method
+	     */
+		@Override
+		protected void onPostExecute(VocabularyList[] result) {
+			long render = System.nanoTime();
+			if (showingDialog) { dismissDialog(DIALOG_LOADING_LISTS); }
+			if (result != null) { showLists(result); }
+			else if (mAdapter == null) { showLists(new VocabularyList[0]); }
+			if (refreshFailed) { toast(R.string.message_lists_refresh_failed); }
+	        Metrics.time("render Vocabuloid.lists", render);
+	        Metrics.time("load Vocabuloid.lists", start);
+	        if (result != null) { startPrefetching(); }
+		}
+	}
+	
+	/**
+     * Asynchronous task used by {@link Vocabuloid Vocabuloid} to load the tenses of a verb list (see
+     * {@link TenseCatalogue TenseCatalogue}) before offering them in a context menu
+     *
+     * @author Ulf Moehring
+     * @version 0.3
+     */
+ 	class LoadTenses extends AsyncTask<VocabularyList, Void, Void> {
+ 		
+ 		/** 
+	     * Main method: Load tenses of given {@link VocabularyList VocabularyList}
 	     *
 	     * @param lists VocabularyList to use (currently only one) 
 	     */
 		@Override
-		protected String[] doInBackground(User... user) {
+		protected Void doInBackground(VocabularyList... lists) {
+			lists[0].getTenses();
+			return null;
+		}
+		
+		/** 
+	     * Shows context menu for picking a tense in main thread
+	     *
+	     * @param result Nothing
+	     */
+		@Override
+		protected void onPostExecute(Void result) {
+			ListView v = getListView();
+			registerForContextMenu(v);
+            v.showContextMenu();
+		}
+	}
+	
+	/**
+     * Asynchronous task used by {@link Vocabuloid Vocabuloid} to retrieve an OAuth request token and send the
+     * user to the authorization page
+     *
+     * @author Ulf Moehring
+     * @version 0.3
+     */
+ 	class RetrieveRequestToken extends AsyncTask<Void, Void, String> {
+ 		
+ 		/** 
+	     * Main method: Retrieve request token and store it in preferences
+	     *
+	     * @param params Nothing
+	     * @return Authorization url, or null on failure
+	     */
+		@Override
+		protected String doInBackground(Void... params) {
 			try {
-				user[0].getRemoteData();
-		        return user[0].getListsAsStrings();
+				String requestUrl = mProvider.retrieveRequestToken(mConsumer, "vocabulario-android-app:///");
+				SharedPreferences.Editor editor = mSettings.edit();
+				editor.putString("requestToken", mConsumer.getToken());
+				editor.putString("requestSecret", mConsumer.getTokenSecret());
+				editor.commit();
+				return requestUrl;
 			}
 			catch (Exception e) { e.printStackTrace(); return null; }
 		}
 		
 		/** 
-	     * Takes end result from {@link doInBackground(User... user) doInBackground(...)} and updates
-	     * UI in main thread. Also dismisses {@link ProgressDialog ProgressDialog} when done.
+	     * Opens authorization page in main thread
+	     *
+	     * @param requestUrl Authorization url generated by main method
+	     */
+		@Override
+		protected void onPostExecute(String requestUrl) {
+			if (requestUrl == null) {
+				toast(R.string.message_sign_in_failed);
+				return;
+			}
+			Intent i = new Intent(Intent.ACTION_VIEW);
+			i.setData(Uri.parse(requestUrl));
+			startActivity(i);
+		}
+	}
+	
+	/**
+     * Asynchronous task used by {@link Vocabuloid Vocabuloid} to exchange the authorized request token for an
+     * OAuth access token when coming back from the authorization page
+     *
+     * @author Ulf Moehring
+     * @version 0.3
+     */
+ 	class RetrieveAccessToken extends AsyncTask<String, Void, Boolean> {
+ 		
+ 		/** 
+	     * Main method: Retrieve access token and store it in preferences
+	     *
+	     * @param verifier OAuth verifier passed back by the authorization page
+	     */
+		@Override
+		protected Boolean doInBackground(String... verifier) {
+			try {
+				mProvider.retrieveAccessToken(mConsumer, verifier[0]);
+				SharedPreferences.Editor editor = mSettings.edit();
+				editor.remove("requestToken");
+				editor.remove("requestSecret");
+				editor.putString("accessToken", mConsumer.getToken());
+				editor.putString("accessSecret", mConsumer.getTokenSecret());
+				editor.commit();
+				return true;
+			}
+			catch (Exception e) { e.printStackTrace(); return false; }
+		}
+		
+		/** 
+	     * Loads the user's lists in main thread once signed in
 	     *
-	     * @param result Vocabularies array generated by main method
+	     * @param success Whether access token could be retrieved
 	     */
 		@Override
-		protected void onPostExecute(String[] result) {
-			String[] returnvalue = new String[0];
-			dismissDialog(DIALOG_LOADING_LISTS);
-			if (result != null) { returnvalue = result; }
-			mAdapter = new ArrayAdapter<String>(getBaseContext(), R.layout.row, returnvalue);
-	        setListAdapter(mAdapter);
-	        mAdapter.notifyDataSetChanged();
+		protected void onPostExecute(Boolean success) {
+			if (success) {
+				initializeAdapter();
+				toast(R.string.message_signed_in);
+			}
+			else {
+				toast(R.string.message_sign_in_failed);
+			}
 		}
 	}
-}
\ No newline at end of file
+}